@@ -6,6 +6,9 @@ module uk.ac.soton.comp1206 {
     requires org.apache.logging.log4j;
     requires nv.websocket.client;
   requires java.desktop;
+  requires java.management;
+  requires jdk.management;
+  requires jdk.jfr;
   opens uk.ac.soton.comp1206.ui to javafx.fxml;
     exports uk.ac.soton.comp1206;
     exports uk.ac.soton.comp1206.ui;
@@ -14,5 +17,9 @@ module uk.ac.soton.comp1206 {
     exports uk.ac.soton.comp1206.event;
     exports uk.ac.soton.comp1206.component;
     exports uk.ac.soton.comp1206.game;
+    exports uk.ac.soton.comp1206.scores;
+    exports uk.ac.soton.comp1206.telemetry;
+    exports uk.ac.soton.comp1206.jfr;
+    exports uk.ac.soton.comp1206.metrics;
   opens uk.ac.soton.comp1206.component to javafx.fxml;
 }
\ No newline at end of file
@@ -1,9 +1,11 @@
 package uk.ac.soton.comp1206;
 
+import java.nio.file.Path;
 import javafx.application.Application;
 import javafx.stage.Stage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.jfr.FlightRecording;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
 /**
@@ -24,11 +26,21 @@ public class App extends Application {
     private Stage stage;
 
     /**
-     * Start the game
+     * The GameWindow associated with the app
+     */
+    private GameWindow gameWindow;
+
+    /**
+     * Start the game. Setting the tetrecs.jfr system property to a file records the game with Java Flight
+     * Recorder to that file
      * @param args commandline arguments
      */
     public static void main(String[] args) {
         logger.info("Starting client");
+        var jfr = System.getProperty("tetrecs.jfr");
+        if (jfr != null) {
+            FlightRecording.start(Path.of(jfr));
+        }
         launch();
     }
 
@@ -55,7 +67,7 @@ public class App extends Application {
 
       int width = 800;
       int height = 600;
-      var gameWindow = new GameWindow(stage, width, height);
+      gameWindow = new GameWindow(stage, width, height);
 
         //Display the GameWindow
         stage.show();
@@ -66,6 +78,10 @@ public class App extends Application {
      */
     public void shutdown() {
         logger.info("Shutting down");
+        if (gameWindow != null) {
+            gameWindow.shutdown();
+        }
+        FlightRecording.stop();
         System.exit(0);
     }
 
@@ -0,0 +1,86 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.geometry.Orientation;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ScrollBar;
+import uk.ac.soton.comp1206.utilities.ChatHistory;
+
+/**
+ * Shows a chat, keeping only a window of its lines in memory. Older lines are paged back in from the
+ * chat's log when the list is scrolled to the top, and newer ones when it is scrolled back to the
+ * bottom. New lines are followed while the list is at the bottom, and otherwise wait in the log so
+ * what is being read doesn't move.
+ */
+public class ChatView extends ListView<String> {
+
+  /**
+   * How many lines are paged in at a time
+   */
+  private static final int PAGE = 50;
+
+  /**
+   * The lines of the chat
+   */
+  private final ChatHistory history;
+
+  /**
+   * Create a new chat view
+   * @param limit The most lines to hold in memory
+   */
+  public ChatView(int limit) {
+    history = new ChatHistory(limit);
+    setItems(history);
+    setCellFactory(list -> new ListCell<>() {
+      @Override
+      protected void updateItem(String line, boolean empty) {
+        super.updateItem(line, empty);
+        setText(empty ? null : line);
+      }
+    });
+    skinProperty().addListener((observable, oldSkin, newSkin) -> watchScrolling());
+  }
+
+  /**
+   * Add a line to the end of the chat, scrolling to it if the list is following
+   * @param line The line
+   */
+  public void append(String line) {
+    history.append(line);
+    if (history.isFollowing()) {
+      scrollTo(history.size() - 1);
+    }
+  }
+
+  /**
+   * Get the lines of the chat
+   * @return The chat history
+   */
+  public ChatHistory getHistory() {
+    return history;
+  }
+
+  /**
+   * Page lines in when the vertical scroll bar reaches either end, and follow new lines only while it
+   * is at the bottom
+   */
+  private void watchScrolling() {
+    for (var node : lookupAll(".scroll-bar")) {
+      if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+        bar.valueProperty().addListener((observable, oldValue, value) -> {
+          if (value.doubleValue() >= bar.getMax()) {
+            if (history.hasNewer()) {
+              history.pageNewer(PAGE);
+            }
+            history.setFollowing(!history.hasNewer());
+          } else {
+            history.setFollowing(false);
+            if (value.doubleValue() <= bar.getMin() && history.hasOlder()) {
+              scrollTo(history.pageOlder(PAGE));
+            }
+          }
+        });
+      }
+    }
+  }
+}
@@ -17,9 +17,9 @@ import javafx.scene.paint.Paint;
 public class GameBlock extends Canvas {
 
     /**
-     * The set of colours for different pieces
+     * The set of colours for different pieces. Also used to draw other players' boards
      */
-    private static final Color[] COLOURS = {
+    static final Color[] COLOURS = {
             Color.TRANSPARENT,
             Color.DEEPPINK,
             Color.RED,
@@ -0,0 +1,118 @@
+package uk.ac.soton.comp1206.component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.Node;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A titled list of nodes, one for each key, kept in step with snapshots of the keys. Each snapshot
+ * is compared with the keys already shown so that only nodes for keys that were added, removed or
+ * moved are touched. Nodes for keys that stay keep their hover state and handlers, and a snapshot
+ * that matches what is shown does nothing at all.
+ */
+public class KeyedList extends VBox {
+
+  private static final Logger logger = LogManager.getLogger(KeyedList.class);
+
+  /**
+   * The title shown above the entries
+   */
+  private final Text title;
+
+  /**
+   * Creates the node for a key
+   */
+  private final Function<String, Node> factory;
+
+  /**
+   * The node shown for each key
+   */
+  private final Map<String, Node> nodes = new HashMap<>();
+
+  /**
+   * The keys shown, in order
+   */
+  private final ObservableList<String> keys = FXCollections.observableArrayList();
+
+  /**
+   * A read only view of the keys shown
+   */
+  private final ObservableList<String> readOnlyKeys = FXCollections.unmodifiableObservableList(keys);
+
+  /**
+   * Create a new keyed list
+   * @param title The text of the title
+   * @param factory Creates the node for a key, called once when the key first appears
+   */
+  public KeyedList(String title, Function<String, Node> factory) {
+    this.title = new Text(title);
+    this.title.getStyleClass().add("title");
+    this.factory = factory;
+    getChildren().add(this.title);
+  }
+
+  /**
+   * Show a new snapshot of the keys. Repeated keys are shown once
+   * @param snapshot The keys to show, in order
+   */
+  public void update(List<String> snapshot) {
+    if (snapshot.equals(keys)) {
+      return;
+    }
+    var wanted = new LinkedHashSet<>(snapshot);
+    var children = getChildren();
+
+    int removed = 0;
+    for (var key : new ArrayList<>(keys)) {
+      if (!wanted.contains(key)) {
+        children.remove(nodes.remove(key));
+        removed++;
+      }
+    }
+
+    int added = 0;
+    int index = 1;
+    for (var key : wanted) {
+      var node = nodes.get(key);
+      if (node == null) {
+        node = factory.apply(key);
+        nodes.put(key, node);
+        children.add(index, node);
+        added++;
+      } else if (children.get(index) != node) {
+        children.remove(node);
+        children.add(index, node);
+      }
+      index++;
+    }
+
+    keys.setAll(wanted);
+    logger.debug("{} now shows {} entries, {} added, {} removed", title.getText(), keys.size(), added,
+        removed);
+  }
+
+  /**
+   * Remove every entry, leaving the title
+   */
+  public void clear() {
+    update(List.of());
+  }
+
+  /**
+   * Get the keys shown, in order
+   * @return A read only view of the keys
+   */
+  public ObservableList<String> getKeys() {
+    return readOnlyKeys;
+  }
+}
@@ -0,0 +1,194 @@
+package uk.ac.soton.comp1206.component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import javafx.animation.AnimationTimer;
+import javafx.scene.Node;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import uk.ac.soton.comp1206.network.PlayerScore;
+
+/**
+ * The live scores of the players in a multiplayer game, highest first. Players are kept sorted in a
+ * tree so a changed score moves in O(log n), and each SCORES snapshot only touches the rows of players
+ * whose score or lives changed. Rows that change rank slide to their new place, all driven by one
+ * animation timer.
+ */
+public class Leaderboard extends VBox {
+
+  /**
+   * Highest score first, then by name so every player has a distinct place
+   */
+  private static final Comparator<PlayerScore> RANKING =
+      Comparator.comparingInt(PlayerScore::score).reversed().thenComparing(PlayerScore::name);
+
+  /**
+   * A player shown on the leaderboard
+   */
+  private static class Row {
+
+    /**
+     * The score and lives shown
+     */
+    private PlayerScore score;
+
+    /**
+     * The place the row is shown at, or -1 if not yet placed
+     */
+    private int rank = -1;
+
+    /**
+     * The text showing the player
+     */
+    private final Text text = new Text();
+
+    private Row(PlayerScore score) {
+      this.score = score;
+      text.getStyleClass().add("heading");
+      show();
+    }
+
+    private void show() {
+      text.setText(score.name() + ":" + score.score() + ":" + score.lives());
+    }
+  }
+
+  /**
+   * The row of each player by name
+   */
+  private final Map<String, Row> rows = new HashMap<>();
+
+  /**
+   * The players in rank order. Holds the score each was last placed with
+   */
+  private final TreeSet<PlayerScore> ranking = new TreeSet<>(RANKING);
+
+  /**
+   * Slides rows that changed rank
+   */
+  private final RankAnimator animator = new RankAnimator();
+
+  /**
+   * Show a new snapshot of the scores
+   * @param scores The score and lives of every player in the game
+   */
+  public void update(List<PlayerScore> scores) {
+    boolean reordered = false;
+    var seen = new HashSet<String>();
+    for (var score : scores) {
+      if (!seen.add(score.name())) {
+        continue;
+      }
+      var row = rows.get(score.name());
+      if (row == null) {
+        rows.put(score.name(), new Row(score));
+        ranking.add(score);
+        reordered = true;
+      } else if (!row.score.equals(score)) {
+        if (row.score.score() != score.score()) {
+          ranking.remove(row.score);
+          ranking.add(score);
+          reordered = true;
+        }
+        row.score = score;
+        row.show();
+      }
+    }
+
+    if (rows.size() > seen.size()) {
+      var gone = rows.values().iterator();
+      while (gone.hasNext()) {
+        var row = gone.next();
+        if (!seen.contains(row.score.name())) {
+          ranking.remove(row.score);
+          getChildren().remove(row.text);
+          gone.remove();
+          reordered = true;
+        }
+      }
+    }
+
+    if (reordered) {
+      rerank();
+    }
+  }
+
+  /**
+   * Put every row at its place in the ranking, sliding those that moved
+   */
+  private void rerank() {
+    var children = getChildren();
+    int rank = 0;
+    for (var score : ranking) {
+      var row = rows.get(score.name());
+      if (rank >= children.size() || children.get(rank) != row.text) {
+        children.remove(row.text);
+        children.add(rank, row.text);
+      }
+      if (row.rank >= 0 && row.rank != rank) {
+        animator.move(row.text, (row.rank - rank) * (row.text.getLayoutBounds().getHeight() + getSpacing()));
+      }
+      row.rank = rank;
+      rank++;
+    }
+  }
+
+  /**
+   * Eases the nodes it is given from where they were back to their place in the layout, using one
+   * timer for all of them that only runs while something is moving
+   */
+  private static class RankAnimator extends AnimationTimer {
+
+    /**
+     * The time taken to cover most of the distance, in nanoseconds
+     */
+    private static final double EASE_NANOS = 80_000_000;
+
+    /**
+     * The nodes still moving
+     */
+    private final HashSet<Node> moving = new HashSet<>();
+
+    /**
+     * The time of the last frame, or 0 if stopped
+     */
+    private long last = 0;
+
+    /**
+     * Start a node moving from an offset from its place in the layout
+     * @param node The node
+     * @param offset How far above or below its place it starts
+     */
+    private void move(Node node, double offset) {
+      node.setTranslateY(node.getTranslateY() + offset);
+      if (moving.add(node) && moving.size() == 1) {
+        last = 0;
+        start();
+      }
+    }
+
+    @Override
+    public void handle(long now) {
+      double factor = last == 0 ? 1 : Math.exp(-(now - last) / EASE_NANOS);
+      last = now;
+      var nodes = moving.iterator();
+      while (nodes.hasNext()) {
+        var node = nodes.next();
+        double offset = node.getTranslateY() * factor;
+        if (Math.abs(offset) < 0.5) {
+          node.setTranslateY(0);
+          nodes.remove();
+        } else {
+          node.setTranslateY(offset);
+        }
+      }
+      if (moving.isEmpty()) {
+        stop();
+      }
+    }
+  }
+}
@@ -0,0 +1,340 @@
+package uk.ac.soton.comp1206.component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import uk.ac.soton.comp1206.jfr.CanvasRepaintEvent;
+import uk.ac.soton.comp1206.metrics.Metrics;
+import uk.ac.soton.comp1206.network.BoardDecoder;
+import uk.ac.soton.comp1206.network.BoardDelta;
+import uk.ac.soton.comp1206.network.BoardUpdate;
+import uk.ac.soton.comp1206.utilities.Histogram;
+
+/**
+ * Shows every other player's board, small, on one canvas. Boards are fed from BOARD and BOARDDELTA
+ * messages and only redrawn when they have changed, at most a set number of times a second each.
+ * Redrawing stops for the frame once it has used its time budget and carries on next frame from the
+ * board after the last one drawn, so a large channel can't hold up the game. As more players join the
+ * boards shrink to keep within the height given.
+ */
+public class OpponentBoards extends Canvas {
+
+  /**
+   * The most time spent redrawing boards each frame, in nanoseconds
+   */
+  private static final long FRAME_BUDGET_NANOS = 2_000_000;
+
+  /**
+   * The space between boards
+   */
+  private static final double GAP = 4;
+
+  /**
+   * The height of the name under each board
+   */
+  private static final double LABEL = 10;
+
+  /**
+   * The largest a cell is drawn
+   */
+  private static final double MAX_CELL = 10;
+
+  /**
+   * The smallest a cell is drawn
+   */
+  private static final double MIN_CELL = 2;
+
+  /**
+   * How long each frame's batch of redraws takes
+   */
+  private static final Histogram repaintNanos = Metrics.histogram("ui.opponentRepaint.nanos");
+
+  /**
+   * One player's board
+   */
+  private static class Slot {
+
+    /**
+     * The name of the player
+     */
+    private final String player;
+
+    /**
+     * The place of the board on the canvas
+     */
+    private int position;
+
+    /**
+     * The cells, or null while the board is unknown
+     */
+    private int[] cells;
+
+    /**
+     * True if the board has changed since it was last drawn
+     */
+    private boolean dirty = true;
+
+    /**
+     * When the board was last drawn
+     */
+    private long drawn = Long.MIN_VALUE / 2;
+
+    private Slot(String player) {
+      this.player = player;
+    }
+  }
+
+  /**
+   * The columns on each board
+   */
+  private final int cols;
+
+  /**
+   * The rows on each board
+   */
+  private final int rows;
+
+  /**
+   * The most height the boards can take
+   */
+  private final double maxHeight;
+
+  /**
+   * The least time between redraws of one board, in nanoseconds
+   */
+  private final long interval;
+
+  /**
+   * Rebuilds boards from keyframes and deltas
+   */
+  private final BoardDecoder decoder;
+
+  /**
+   * The board of each player
+   */
+  private final Map<String, Slot> slots = new HashMap<>();
+
+  /**
+   * The boards in the order they were first seen, which is the order they are drawn in
+   */
+  private final List<Slot> order = new ArrayList<>();
+
+  /**
+   * The number of boards with changes not yet drawn
+   */
+  private int dirty = 0;
+
+  /**
+   * The position to start redrawing from next frame
+   */
+  private int next = 0;
+
+  /**
+   * The size cells are drawn at
+   */
+  private double cell = MAX_CELL;
+
+  /**
+   * The number of boards across the canvas
+   */
+  private int across = 1;
+
+  /**
+   * Redraws changed boards each frame while any are waiting
+   */
+  private final AnimationTimer redraw = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      redraw(now);
+    }
+  };
+
+  /**
+   * Create a new opponent panel
+   * @param cols The columns on each board
+   * @param rows The rows on each board
+   * @param width The width of the panel
+   * @param maxHeight The most height the panel can take
+   * @param updatesPerSecond The most times a second each board is redrawn
+   */
+  public OpponentBoards(int cols, int rows, double width, double maxHeight, double updatesPerSecond) {
+    super(width, 0);
+    this.cols = cols;
+    this.rows = rows;
+    this.maxHeight = maxHeight;
+    this.interval = (long) (1_000_000_000 / updatesPerSecond);
+    this.decoder = new BoardDecoder(cols * rows);
+  }
+
+  /**
+   * Show a player's board from a keyframe
+   * @param update The keyframe
+   */
+  public void apply(BoardUpdate update) {
+    changed(update.player(), decoder.apply(update));
+  }
+
+  /**
+   * Show a player's board from a delta
+   * @param delta The delta
+   */
+  public void apply(BoardDelta delta) {
+    changed(delta.player(), decoder.apply(delta));
+  }
+
+  /**
+   * Remove the boards of players no longer in the game
+   * @param players The players still in the game
+   */
+  public void retain(Collection<String> players) {
+    var keep = new HashSet<>(players);
+    if (order.removeIf(slot -> !keep.contains(slot.player))) {
+      var gone = new ArrayList<>(slots.keySet());
+      gone.removeAll(keep);
+      for (var player : gone) {
+        slots.remove(player);
+        decoder.remove(player);
+      }
+      layoutBoards();
+    }
+  }
+
+  /**
+   * Mark a player's board as changed, adding it if it is new
+   */
+  private void changed(String player, int[] cells) {
+    var slot = slots.get(player);
+    if (slot == null) {
+      slot = new Slot(player);
+      slots.put(player, slot);
+      order.add(slot);
+      slot.cells = cells;
+      layoutBoards();
+      return;
+    }
+    slot.cells = cells;
+    markDirty(slot);
+  }
+
+  /**
+   * Queue a board to be redrawn
+   */
+  private void markDirty(Slot slot) {
+    if (!slot.dirty) {
+      slot.dirty = true;
+      dirty++;
+    }
+    if (dirty == 1) {
+      redraw.start();
+    }
+  }
+
+  /**
+   * Work out the size and place of every board, shrinking them until they fit, and redraw them all
+   */
+  private void layoutBoards() {
+    int count = order.size();
+    for (cell = MAX_CELL; cell > MIN_CELL; cell--) {
+      across = Math.max(1, (int) ((getWidth() + GAP) / (cols * cell + GAP)));
+      int down = (count + across - 1) / across;
+      if (down * (rows * cell + LABEL + GAP) <= maxHeight) {
+        break;
+      }
+    }
+    across = Math.max(1, (int) ((getWidth() + GAP) / (cols * cell + GAP)));
+    int down = (count + across - 1) / across;
+    setHeight(Math.min(maxHeight, down * (rows * cell + LABEL + GAP)));
+    getGraphicsContext2D().clearRect(0, 0, getWidth(), getHeight());
+
+    dirty = 0;
+    for (int i = 0; i < count; i++) {
+      var slot = order.get(i);
+      slot.position = i;
+      slot.dirty = false;
+      slot.drawn = Long.MIN_VALUE / 2;
+      markDirty(slot);
+    }
+    next = 0;
+  }
+
+  /**
+   * Draw the boards waiting to be redrawn, in turn from where the last frame stopped, until they are
+   * done or the frame's budget is used
+   * @param now The time of the frame
+   */
+  private void redraw(long now) {
+    var event = new CanvasRepaintEvent();
+    event.begin();
+    long start = System.nanoTime();
+    int count = order.size();
+    int drawn = 0;
+    for (int i = 0; i < count && dirty > 0; i++) {
+      var slot = order.get((next + i) % count);
+      if (!slot.dirty || now - slot.drawn < interval) {
+        continue;
+      }
+      draw(slot);
+      slot.dirty = false;
+      slot.drawn = now;
+      dirty--;
+      drawn++;
+      if (System.nanoTime() - start > FRAME_BUDGET_NANOS) {
+        next = (next + i + 1) % count;
+        break;
+      }
+    }
+    if (dirty == 0) {
+      redraw.stop();
+    }
+    if (drawn > 0) {
+      repaintNanos.record(System.nanoTime() - start);
+    }
+    if (drawn > 0 && event.shouldCommit()) {
+      event.drawn = drawn;
+      event.waiting = dirty;
+      event.commit();
+    }
+  }
+
+  /**
+   * Draw one board and its player's name
+   */
+  private void draw(Slot slot) {
+    var gc = getGraphicsContext2D();
+    double width = cols * cell;
+    double height = rows * cell;
+    double x = (slot.position % across) * (width + GAP);
+    double y = (slot.position / across) * (height + LABEL + GAP);
+    if (y + height + LABEL > getHeight()) {
+      return;
+    }
+
+    gc.clearRect(x, y, width, height + LABEL);
+    gc.setFill(Color.color(0, 0, 0, 0.24));
+    gc.fillRect(x, y, width, height);
+    if (slot.cells != null) {
+      for (int i = 0; i < slot.cells.length; i++) {
+        int value = slot.cells[i];
+        if (value > 0 && value < GameBlock.COLOURS.length) {
+          gc.setFill(GameBlock.COLOURS[value]);
+          gc.fillRect(x + (i % cols) * cell, y + (i / cols) * cell, cell, cell);
+        }
+      }
+    }
+    gc.setStroke(Color.color(1, 1, 1, 0.5));
+    gc.strokeRect(x, y, width, height);
+
+    gc.setFill(Color.WHITE);
+    gc.setFont(Font.font(LABEL - 1));
+    gc.setTextAlign(TextAlignment.LEFT);
+    gc.fillText(slot.player, x, y + height + LABEL - 1, width);
+  }
+}
@@ -0,0 +1,16 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Message Listener is used for listening to one kind of parsed message received by the
+ * communicator.
+ *
+ * @param <T> The type the message's payload is parsed into
+ */
+public interface MessageListener<T> {
+
+  /**
+   * Handle an incoming message
+   * @param message the parsed payload of the message
+   */
+  void receiveMessage(T message);
+}
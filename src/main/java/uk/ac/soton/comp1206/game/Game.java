@@ -3,6 +3,7 @@ package uk.ac.soton.comp1206.game;
 import java.util.HashSet;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.beans.property.IntegerProperty;
@@ -15,6 +16,12 @@ import uk.ac.soton.comp1206.component.GameBlockCoordinate;
 import uk.ac.soton.comp1206.event.GameLoopListener;
 import uk.ac.soton.comp1206.event.BlockClearedListener;
 import uk.ac.soton.comp1206.event.NextPieceListener;
+import uk.ac.soton.comp1206.jfr.AfterPieceEvent;
+import uk.ac.soton.comp1206.jfr.PiecePlacedEvent;
+import uk.ac.soton.comp1206.jfr.PieceTimeoutEvent;
+import uk.ac.soton.comp1206.metrics.Metrics;
+import uk.ac.soton.comp1206.telemetry.GameTelemetry;
+import uk.ac.soton.comp1206.utilities.Histogram;
 import uk.ac.soton.comp1206.utilities.Multimedia;
 
 /**
@@ -29,6 +36,20 @@ public class Game {
 
   private final Random random = new Random();
 
+  /**
+   * Counts of what happens in every game
+   */
+  private static final LongAdder gamesStarted = Metrics.counter("game.games.started");
+  private static final LongAdder piecesPlaced = Metrics.counter("game.pieces.placed");
+  private static final LongAdder piecesRejected = Metrics.counter("game.pieces.rejected");
+  private static final LongAdder piecesTimedOut = Metrics.counter("game.pieces.timedOut");
+  private static final LongAdder linesCleared = Metrics.counter("game.lines.cleared");
+
+  /**
+   * How long checking for and clearing lines takes after each piece
+   */
+  private static final Histogram afterPieceNanos = Metrics.histogram("game.afterPiece.nanos");
+
   /**
    * Number of rows
    */
@@ -99,6 +120,11 @@ public class Game {
    */
   private Timeline timeline;
 
+  /**
+   * Records every move made in the game
+   */
+  private final GameTelemetry telemetry = new GameTelemetry();
+
 
 
 
@@ -121,6 +147,7 @@ public class Game {
    */
   public void start() {
     logger.info("Starting game");
+    gamesStarted.increment();
     initialiseGame();
   }
 
@@ -150,7 +177,7 @@ public class Game {
 
     currentPiece(currentPiece);
     nextPiece(nextPiece);
-    logger.info("The next piece is: {}", currentPiece);
+    logger.debug("The next piece is: {}", currentPiece);
   }
 
   /**
@@ -171,6 +198,9 @@ public class Game {
    * columns and incrementing the score.
    */
   private void afterPiece() {
+    long start = System.nanoTime();
+    var event = new AfterPieceEvent();
+    event.begin();
     int numberOfLines = 0;
     boolean toIncrementMultiplier = false;
     Set<GameBlockCoordinate> blocksCleared = new HashSet<>();
@@ -215,11 +245,21 @@ public class Game {
     }
 
     blockCleared(blocksCleared);
+    telemetry.cleared(numberOfLines, blocksCleared.size());
     score(numberOfLines, blocksCleared.size());
 
     multiplier(toIncrementMultiplier);
 
     level();
+
+    linesCleared.add(numberOfLines);
+    afterPieceNanos.record(System.nanoTime() - start);
+    if (event.shouldCommit()) {
+      event.lines = numberOfLines;
+      event.blocks = blocksCleared.size();
+      event.multiplier = getMultiplier();
+      event.commit();
+    }
   }
 
 
@@ -283,6 +323,16 @@ public class Game {
       return;
     }
     logger.info("Could not place a piece in time");
+    telemetry.timedOut(currentPiece.getValue(), getMultiplier(), getLevel());
+    piecesTimedOut.increment();
+    var event = new PieceTimeoutEvent();
+    if (event.shouldCommit()) {
+      event.piece = currentPiece.getValue();
+      event.lives = getLives() - 1;
+      event.level = getLevel();
+      event.delay = getTimerDelay();
+      event.commit();
+    }
     lives.set(getLives()-1);
     currentPiece = spawnPiece();
     currentPiece(currentPiece);
@@ -366,8 +416,21 @@ public class Game {
   public void blockClicked(GameBlock gameBlock) {
     int placeX = gameBlock.getX();
     int placeY = gameBlock.getY();
-    logger.info("Checking if piece {} can be played at {} {}", currentPiece, placeX, placeY);
-    if (grid.canPlayPiece(currentPiece, placeX, placeY)) {
+    var piece = currentPiece;
+    int playedMultiplier = getMultiplier();
+    int playedLevel = getLevel();
+    logger.debug("Checking if piece {} can be played at {} {}", currentPiece, placeX, placeY);
+    boolean placed = grid.canPlayPiece(currentPiece, placeX, placeY);
+    var event = new PiecePlacedEvent();
+    if (event.shouldCommit()) {
+      event.piece = piece.getValue();
+      event.x = placeX;
+      event.y = placeY;
+      event.placed = placed;
+      event.level = playedLevel;
+      event.commit();
+    }
+    if (placed) {
       grid.playPiece(currentPiece, placeX, placeY);
 
       //After the piece has been played, put the next piece as the current piece, create a new next piece, restart the timer and play the audio
@@ -375,11 +438,18 @@ public class Game {
       startTimeline();
       Multimedia.playAudio("place.mp3");
     } else {
-      logger.error("Unable to place piece: {} at {} {}", currentPiece, placeX, placeY);
+      logger.debug("Unable to place piece: {} at {} {}", currentPiece, placeX, placeY);
       Multimedia.playAudio("fail.wav");
     }
 
     afterPiece();
+    if (placed) {
+      piecesPlaced.increment();
+      telemetry.placed(piece.getValue(), placeX, placeY, playedMultiplier, playedLevel);
+    } else {
+      piecesRejected.increment();
+      telemetry.rejected(piece.getValue(), placeX, placeY, playedMultiplier, playedLevel);
+    }
   }
 
 
@@ -388,6 +458,7 @@ public class Game {
    */
   public void swapPiece() {
     Multimedia.playAudio("swappiece.mp3");
+    telemetry.swapped();
     var tempPiece = currentPiece;
     currentPiece = nextPiece;
 
@@ -436,6 +507,15 @@ public class Game {
   }
 
 
+  /**
+   * Get the record of every move made in this game
+   *
+   * @return The game's telemetry
+   */
+  public GameTelemetry getTelemetry() {
+    return telemetry;
+  }
+
   /**
    * Get the grid model inside this game representing the game state of the board
    *
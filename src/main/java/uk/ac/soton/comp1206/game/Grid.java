@@ -89,7 +89,7 @@ public class Grid {
      * @param placeY The y coordinate of the piece to be played
      */
     public void playPiece(GamePiece piece, int placeX, int placeY){
-        logger.info("Piece {} played at {} {}.", piece.toString(), placeX, placeY);
+        logger.debug("Piece {} played at {} {}.", piece, placeX, placeY);
         int value = piece.getValue();
         int[][] blocks = piece.getBlocks();
 
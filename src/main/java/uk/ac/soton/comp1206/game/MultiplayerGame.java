@@ -1,8 +1,8 @@
 package uk.ac.soton.comp1206.game;
 
-import javafx.application.Platform;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.network.BoardSync;
 import uk.ac.soton.comp1206.network.Communicator;
 
 /**
@@ -12,15 +12,20 @@ public class MultiplayerGame extends Game{
   private final Logger logger = LogManager.getLogger(MultiplayerGame.class);
 
   /**
-   * The value of the next piece got from the communicator
+   * The pieces requested from the server ahead of time
    */
-  private int generatedPieceValue;
+  private final PieceQueue pieceQueue;
 
   /**
    * The communicator associated with the multiplayer game
    */
   private final Communicator communicator;
 
+  /**
+   * Tracks the board as last sent so only changes are sent
+   */
+  private final BoardSync boardSync;
+
 
   /**
    * Create a new multiplayer game with the specified rows and columns. Creates a corresponding grid model.
@@ -31,19 +36,22 @@ public class MultiplayerGame extends Game{
   public MultiplayerGame(int cols, int rows, Communicator communicator) {
     super(cols, rows);
     this.communicator = communicator;
+    this.boardSync = new BoardSync(cols * rows, 20, communicator.isBoardDeltas());
     logger.info(communicator);
-    communicator.addListener((message) -> Platform.runLater(() -> this.receiveMessage(message)));
-
-    currentPiece = spawnPiece();
-    nextPiece = spawnPiece();
+    pieceQueue = new PieceQueue(communicator, 4, 3000);
+    pieceQueue.fill();
   }
 
   /**
-   * Initialize the multiplayer game
+   * Initialize the multiplayer game. The first pieces are taken from the queue here, so the game
+   * should only be started once the queue has filled
    */
   @Override
   public void initialiseGame() {
-    logger.info("Initialising multiplayer game");    startTimeline();
+    logger.info("Initialising multiplayer game");
+    currentPiece = spawnPiece();
+    nextPiece = spawnPiece();
+    startTimeline();
   }
 
   /**
@@ -57,34 +65,31 @@ public class MultiplayerGame extends Game{
   }
 
   /**
-   * Creates a piece based on a given value from the communicator
+   * Creates a piece based on the next value requested from the communicator
    * @return The piece created
    */
   @Override
   public GamePiece spawnPiece() {
-    communicator.send("PIECE");
-    StringBuilder boardState = new StringBuilder();
+    int[] boardState = new int[getCols() * getRows()];
     for (int gridY = 0; gridY < getCols(); gridY++) {
       for (int gridX = 0; gridX < getRows(); gridX++) {
-        boardState.append(" ").append(getGrid().get(gridX, gridY));
+        boardState[gridY * getRows() + gridX] = getGrid().get(gridX, gridY);
       }
     }
-    communicator.send("BOARD"+boardState);
+    var boardMessage = boardSync.update(boardState);
+    if (boardMessage != null) {
+      communicator.send(boardMessage);
+    }
 
-    return GamePiece.createPiece(generatedPieceValue);
+    return GamePiece.createPiece(pieceQueue.take());
   }
 
   /**
-   * Handles the receiving of communications from the communicator
-   * @param communication The communication received
+   * Get the queue of pieces requested from the server, for its metrics
+   * @return The piece queue
    */
-  private void receiveMessage(String communication){
-    logger.info(communication);
-    if (communication.split(" ")[0].equals("PIECE")) {
-
-      String message = communication.replaceFirst("PIECE ", "");
-      generatedPieceValue = Integer.parseInt(message);
-    }
+  public PieceQueue getPieceQueue() {
+    return pieceQueue;
   }
 
   /**
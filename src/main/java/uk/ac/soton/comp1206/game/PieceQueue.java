@@ -0,0 +1,213 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.network.Command;
+import uk.ac.soton.comp1206.network.Communicator;
+
+/**
+ * Keeps a number of pieces requested from the server ahead of when they are needed, so that
+ * spawning a piece takes one that has already arrived instead of waiting on the network. Taking a
+ * piece never waits: the game should only start once the queue has filled, and if a piece is still
+ * needed before one arrives a random piece is used. The server's reply to that request is then
+ * thrown away, so the pieces that follow stay in step with every other player's.
+ */
+public class PieceQueue {
+
+  private static final Logger logger = LogManager.getLogger(PieceQueue.class);
+
+  /**
+   * The communicator pieces are requested through
+   */
+  private final Communicator communicator;
+
+  /**
+   * How many pieces to keep requested or waiting
+   */
+  private final int depth;
+
+  /**
+   * How long to wait for the queue to fill before starting anyway, in milliseconds
+   */
+  private final long waitMillis;
+
+  /**
+   * Pieces that have arrived and not yet been taken
+   */
+  private final Deque<Integer> pieces = new ArrayDeque<>();
+
+  /**
+   * The time each outstanding request was sent, oldest first
+   */
+  private final Deque<Long> requestTimes = new ArrayDeque<>();
+
+  /**
+   * Used when no piece arrives in time
+   */
+  private final Random random = new Random();
+
+  /**
+   * The number of times no piece had arrived when one was needed and a random one was used
+   */
+  private final LongAdder fallbacks = new LongAdder();
+
+  /**
+   * The number of pieces still to arrive that stand for random pieces already used, and are dropped
+   */
+  private int skip;
+
+  /**
+   * Run once the queue has filled, or null if nothing is waiting for it
+   */
+  private Runnable onFull;
+
+  /**
+   * The number of replies received
+   */
+  private long replies;
+
+  /**
+   * The total round-trip time of all replies, in nanoseconds
+   */
+  private long totalRoundTripNanos;
+
+  /**
+   * The round-trip time of the latest reply, in nanoseconds
+   */
+  private long lastRoundTripNanos;
+
+  /**
+   * Create a new piece queue and start listening for pieces
+   * @param communicator The communicator pieces are requested through
+   * @param depth How many pieces to keep requested or waiting
+   * @param waitMillis How long to wait for the queue to fill before starting anyway
+   */
+  public PieceQueue(Communicator communicator, int depth, long waitMillis) {
+    this.communicator = communicator;
+    this.depth = depth;
+    this.waitMillis = waitMillis;
+    communicator.addListener(Command.PIECE, this::receivePiece);
+  }
+
+  /**
+   * Request pieces until the queue is full
+   */
+  public synchronized void fill() {
+    while (pieces.size() + requestTimes.size() - skip < depth) {
+      requestTimes.addLast(System.nanoTime());
+      communicator.send("PIECE");
+    }
+  }
+
+  /**
+   * Run an action on the JavaFX Application Thread once the queue has filled, or once the wait has run
+   * out if the server is slow. Must be called on the JavaFX Application Thread
+   * @param action The action, such as starting the game
+   */
+  public void whenFull(Runnable action) {
+    synchronized (this) {
+      fill();
+      if (pieces.size() < depth) {
+        onFull = action;
+        var timeout = new PauseTransition(Duration.millis(waitMillis));
+        timeout.setOnFinished(event -> {
+          if (takeOnFull() != null) {
+            logger.warn("Only {} of {} pieces arrived in time, starting anyway", getReady(), depth);
+            action.run();
+          }
+        });
+        timeout.play();
+        return;
+      }
+    }
+    action.run();
+  }
+
+  /**
+   * Take the action waiting for the queue to fill, so that it only runs once
+   * @return The action, or null if it has already been taken
+   */
+  private synchronized Runnable takeOnFull() {
+    var action = onFull;
+    onFull = null;
+    return action;
+  }
+
+  /**
+   * Take the next piece without waiting, requesting another to replace it
+   * @return The value of the piece
+   */
+  public synchronized int take() {
+    int piece;
+    if (pieces.isEmpty()) {
+      fallbacks.increment();
+      skip++;
+      piece = random.nextInt(GamePiece.PIECES);
+      logger.warn("No piece received from the server in time, using random piece {}", piece);
+    } else {
+      piece = pieces.removeFirst();
+    }
+    fill();
+    return piece;
+  }
+
+  /**
+   * Handle a piece arriving from the server. Called on the communicator's delivery thread
+   * @param piece The value of the piece
+   */
+  private synchronized void receivePiece(int piece) {
+    var sentAt = requestTimes.pollFirst();
+    if (sentAt != null) {
+      lastRoundTripNanos = System.nanoTime() - sentAt;
+      totalRoundTripNanos += lastRoundTripNanos;
+      replies++;
+    }
+    if (skip > 0) {
+      skip--;
+      return;
+    }
+    pieces.addLast(piece);
+    if (onFull != null && pieces.size() >= depth) {
+      Platform.runLater(takeOnFull());
+    }
+  }
+
+  /**
+   * Get the number of pieces waiting to be taken
+   * @return The number of pieces ready
+   */
+  public synchronized int getReady() {
+    return pieces.size();
+  }
+
+  /**
+   * Get the number of times no piece had arrived when one was needed and a random one was used
+   * @return The number of fallbacks
+   */
+  public long getFallbacks() {
+    return fallbacks.sum();
+  }
+
+  /**
+   * Get the mean time between requesting a piece and receiving it
+   * @return The mean round-trip time in nanoseconds
+   */
+  public synchronized long getMeanRoundTripNanos() {
+    return replies == 0 ? 0 : totalRoundTripNanos / replies;
+  }
+
+  /**
+   * Get the time between requesting the latest piece received and receiving it
+   * @return The latest round-trip time in nanoseconds
+   */
+  public synchronized long getLastRoundTripNanos() {
+    return lastRoundTripNanos;
+  }
+}
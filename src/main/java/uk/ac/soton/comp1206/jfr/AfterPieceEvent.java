@@ -0,0 +1,28 @@
+package uk.ac.soton.comp1206.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Checking the grid for full lines after a piece is tried, clearing them and scoring
+ */
+@Name("uk.ac.soton.comp1206.AfterPiece")
+@Label("After Piece")
+@Category({"TetrECS", "Game"})
+@Description("Checking the grid for full lines after a piece is tried, clearing them and scoring")
+@StackTrace(false)
+public class AfterPieceEvent extends Event {
+
+  @Label("Lines Cleared")
+  public int lines;
+
+  @Label("Blocks Cleared")
+  public int blocks;
+
+  @Label("Multiplier")
+  public int multiplier;
+}
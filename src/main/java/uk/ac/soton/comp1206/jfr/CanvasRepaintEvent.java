@@ -0,0 +1,26 @@
+package uk.ac.soton.comp1206.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One frame's batch of opponent boards redrawn
+ */
+@Name("uk.ac.soton.comp1206.CanvasRepaint")
+@Label("Canvas Repaint")
+@Category({"TetrECS", "Render"})
+@Description("One frame's batch of opponent boards redrawn")
+@StackTrace(false)
+public class CanvasRepaintEvent extends Event {
+
+  @Label("Boards Drawn")
+  public int drawn;
+
+  @Label("Boards Waiting")
+  @Description("Boards still waiting to be redrawn after this frame")
+  public int waiting;
+}
@@ -0,0 +1,65 @@
+package uk.ac.soton.comp1206.jfr;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Objects;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Records the game with Java Flight Recorder, using the JDK's default settings together with the
+ * TetrECS events as configured in the bundled jfr/tetrecs.jfc. The same settings file can be given to
+ * JDK Mission Control or {@code jcmd <pid> JFR.start settings=...} to record a game already running.
+ */
+public class FlightRecording {
+
+  private static final Logger logger = LogManager.getLogger(FlightRecording.class);
+
+  /**
+   * The recording in progress, or null if there is none
+   */
+  private static Recording recording;
+
+  /**
+   * Start recording to a file. The recording is written when it is stopped, or when the game exits
+   * @param file The file to write the recording to
+   */
+  public static synchronized void start(Path file) {
+    if (recording != null) {
+      return;
+    }
+    try (var reader = new InputStreamReader(Objects.requireNonNull(
+        FlightRecording.class.getResourceAsStream("/jfr/tetrecs.jfc")), StandardCharsets.UTF_8)) {
+      var settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+      settings.putAll(Configuration.create(reader).getSettings());
+
+      recording = new Recording(settings);
+      recording.setName("TetrECS");
+      recording.setDestination(file);
+      recording.setDumpOnExit(true);
+      recording.start();
+      logger.info("Recording to {}", file);
+    } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+      logger.error("Unable to start a flight recording: {}", e.getMessage());
+      recording = null;
+    }
+  }
+
+  /**
+   * Stop recording and write the recording out
+   */
+  public static synchronized void stop() {
+    if (recording == null) {
+      return;
+    }
+    recording.stop();
+    recording.close();
+    recording = null;
+  }
+}
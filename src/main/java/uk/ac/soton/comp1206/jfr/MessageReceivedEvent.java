@@ -0,0 +1,30 @@
+package uk.ac.soton.comp1206.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A message from the server, handed to every listener for it
+ */
+@Name("uk.ac.soton.comp1206.MessageReceived")
+@Label("Message Received")
+@Category({"TetrECS", "Network"})
+@Description("A message from the server, handed to every listener for it")
+@StackTrace(false)
+public class MessageReceivedEvent extends Event {
+
+  @Label("Command")
+  public String command;
+
+  @Label("Size")
+  @DataAmount
+  public int size;
+
+  @Label("Binary")
+  public boolean binary;
+}
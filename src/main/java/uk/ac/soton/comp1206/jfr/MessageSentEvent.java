@@ -0,0 +1,30 @@
+package uk.ac.soton.comp1206.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A message written to the server
+ */
+@Name("uk.ac.soton.comp1206.MessageSent")
+@Label("Message Sent")
+@Category({"TetrECS", "Network"})
+@Description("A message written to the server")
+@StackTrace(false)
+public class MessageSentEvent extends Event {
+
+  @Label("Command")
+  public String command;
+
+  @Label("Size")
+  @DataAmount
+  public int size;
+
+  @Label("Binary")
+  public boolean binary;
+}
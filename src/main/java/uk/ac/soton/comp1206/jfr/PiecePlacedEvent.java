@@ -0,0 +1,35 @@
+package uk.ac.soton.comp1206.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A piece the player tried to place, and whether the grid took it
+ */
+@Name("uk.ac.soton.comp1206.PiecePlaced")
+@Label("Piece Placed")
+@Category({"TetrECS", "Game"})
+@Description("A piece the player tried to place, and whether the grid took it")
+@StackTrace(false)
+public class PiecePlacedEvent extends Event {
+
+  @Label("Piece")
+  public int piece;
+
+  @Label("X")
+  public int x;
+
+  @Label("Y")
+  public int y;
+
+  @Label("Placed")
+  @Description("False if the grid rejected the piece")
+  public boolean placed;
+
+  @Label("Level")
+  public int level;
+}
@@ -0,0 +1,33 @@
+package uk.ac.soton.comp1206.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A piece that ran out of time, losing a life
+ */
+@Name("uk.ac.soton.comp1206.PieceTimeout")
+@Label("Piece Timeout")
+@Category({"TetrECS", "Game"})
+@Description("A piece that ran out of time, losing a life")
+@StackTrace(false)
+public class PieceTimeoutEvent extends Event {
+
+  @Label("Piece")
+  public int piece;
+
+  @Label("Lives Left")
+  public int lives;
+
+  @Label("Level")
+  public int level;
+
+  @Label("Timer Delay")
+  @Timespan(Timespan.MILLISECONDS)
+  public long delay;
+}
@@ -0,0 +1,22 @@
+package uk.ac.soton.comp1206.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Building a scene and putting it on the stage
+ */
+@Name("uk.ac.soton.comp1206.SceneBuild")
+@Label("Scene Build")
+@Category({"TetrECS", "Render"})
+@Description("Building a scene and putting it on the stage")
+@StackTrace(false)
+public class SceneBuildEvent extends Event {
+
+  @Label("Scene")
+  public String scene;
+}
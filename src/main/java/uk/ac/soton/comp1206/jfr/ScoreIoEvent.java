@@ -0,0 +1,26 @@
+package uk.ac.soton.comp1206.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Reading or writing the local score files
+ */
+@Name("uk.ac.soton.comp1206.ScoreIo")
+@Label("Score I/O")
+@Category({"TetrECS", "I/O"})
+@Description("Reading or writing the local score files")
+@StackTrace(false)
+public class ScoreIoEvent extends Event {
+
+  @Label("Operation")
+  @Description("open, journal or compact")
+  public String operation;
+
+  @Label("Scores")
+  public long scores;
+}
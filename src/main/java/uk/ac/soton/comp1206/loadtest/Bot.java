@@ -0,0 +1,396 @@
+package uk.ac.soton.comp1206.loadtest;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.network.BinaryCodec;
+import uk.ac.soton.comp1206.network.BoardSync;
+import uk.ac.soton.comp1206.server.LocalServer;
+import uk.ac.soton.comp1206.utilities.Histogram;
+
+/**
+ * A simulated player. It joins a channel the way the lobby does, then plays the way a multiplayer
+ * game does: requesting pieces ahead, placing them with BotBoard's heuristic and sending its board,
+ * score and lives, and chatting. Nothing runs on a thread of its own; moves and chat are scheduled
+ * on a shared executor, and replies are handled as they arrive.
+ */
+class Bot {
+
+  /**
+   * A score a player sent, and when it was sent
+   * @param score The score
+   * @param sentAt When SCORE was sent
+   */
+  record ScoreSent(int score, long sentAt) { }
+
+  /**
+   * How many pieces to keep requested ahead
+   */
+  private static final int PIECE_DEPTH = 2;
+
+  /**
+   * The server to play on
+   */
+  private final LocalServer server;
+
+  /**
+   * The bot's nickname
+   */
+  private final String nickname;
+
+  /**
+   * The channel to play in
+   */
+  private final String channel;
+
+  /**
+   * True if this bot creates and starts the channel
+   */
+  private final boolean host;
+
+  /**
+   * How many players the host waits for before starting
+   */
+  private final int channelSize;
+
+  /**
+   * Runs moves and chat
+   */
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * The last score each player in the channel sent, shared by the channel's bots
+   */
+  private final ConcurrentMap<String, ScoreSent> scoresSent;
+
+  /**
+   * Where latencies are recorded
+   */
+  private final LoadStats stats;
+
+  /**
+   * How the bot behaves
+   */
+  private final LoadTest.Options options;
+
+  /**
+   * The send time of each PIECE request awaiting a reply
+   */
+  private final Queue<Long> pieceRequests = new ConcurrentLinkedQueue<>();
+
+  /**
+   * The last score of each other player that has reached this bot in SCORES
+   */
+  private final Map<String, ScoreSent> scoresSeen = new HashMap<>();
+
+  /**
+   * Pieces received and not yet played
+   */
+  private final Deque<Integer> pieces = new ArrayDeque<>();
+
+  /**
+   * The bot's board
+   */
+  private final BotBoard board = new BotBoard();
+
+  /**
+   * Works out the BOARD messages to send
+   */
+  private final BoardSync boardSync;
+
+  /**
+   * The scheduled moves and chat
+   */
+  private final List<ScheduledFuture<?>> tasks = new ArrayList<>();
+
+  /**
+   * The connection to the server
+   */
+  private volatile LocalServer.Endpoint endpoint;
+
+  /**
+   * True once the server has agreed to binary frames
+   */
+  private volatile boolean binary = false;
+
+  /**
+   * True once in the channel
+   */
+  private boolean joined = false;
+
+  /**
+   * True once the host has asked to start the game
+   */
+  private boolean starting = false;
+
+  /**
+   * True once the game has started
+   */
+  private boolean started = false;
+
+  /**
+   * True once out of lives
+   */
+  private boolean dead = false;
+
+  /**
+   * True once stopped
+   */
+  private boolean stopped = false;
+
+  /**
+   * The bot's score
+   */
+  private int score = 0;
+
+  /**
+   * The bot's lives
+   */
+  private int lives = 3;
+
+  /**
+   * Create a new bot. Nothing happens until it is started
+   * @param server The server to play on
+   * @param nickname The bot's nickname
+   * @param channel The channel to play in
+   * @param host True if this bot creates and starts the channel
+   * @param channelSize How many players the host waits for before starting
+   * @param scheduler Runs moves and chat
+   * @param scoresSent The last score each player in the channel sent, shared by the channel's bots
+   * @param stats Where latencies are recorded
+   * @param options How the bot behaves
+   */
+  Bot(LocalServer server, String nickname, String channel, boolean host, int channelSize,
+      ScheduledExecutorService scheduler, ConcurrentMap<String, ScoreSent> scoresSent, LoadStats stats,
+      LoadTest.Options options) {
+    this.server = server;
+    this.nickname = nickname;
+    this.channel = channel;
+    this.host = host;
+    this.channelSize = channelSize;
+    this.scheduler = scheduler;
+    this.scoresSent = scoresSent;
+    this.stats = stats;
+    this.options = options;
+    this.boardSync = new BoardSync(BotBoard.SIZE * BotBoard.SIZE, 20, options.deltas);
+  }
+
+  /**
+   * Connect, set a nickname and create or join the channel
+   * @throws IOException If the server has shut down
+   */
+  void start() throws IOException {
+    endpoint = server.connect(this::receive, this::receiveBinary, closedByServer -> { });
+    send("NICK " + nickname);
+    if (options.binary) {
+      send("BINARY");
+    }
+    send(host ? "CREATE " + channel : "JOIN " + channel);
+  }
+
+  /**
+   * Leave the channel and disconnect
+   */
+  synchronized void stop() {
+    stopped = true;
+    tasks.forEach(task -> task.cancel(false));
+    var current = endpoint;
+    if (current != null) {
+      send("PART");
+      current.close();
+    }
+  }
+
+  /**
+   * Handle a message from the server. Runs on the server's delivery
+   * @param message The message
+   */
+  private synchronized void receive(String message) {
+    stats.received.increment();
+    if (stopped) {
+      return;
+    }
+    int space = message.indexOf(' ');
+    var command = space < 0 ? message : message.substring(0, space);
+    var argument = space < 0 ? "" : message.substring(space + 1);
+
+    switch (command) {
+      case "JOIN" -> joined = true;
+      case "BINARY" -> binary = true;
+      case "USERS" -> {
+        if (host && !starting && argument.split("\n").length >= channelSize) {
+          starting = true;
+          send("START");
+        }
+      }
+      case "START" -> begin();
+      case "PIECE" -> {
+        record(stats.piece, pieceRequests.poll());
+        pieces.addLast(Integer.parseInt(argument));
+      }
+      case "SCORES" -> scores(argument);
+      case "MSG" -> {
+        int stamp = argument.indexOf(":t");
+        if (stamp >= 0) {
+          stats.chat.record(System.nanoTime() - Long.parseLong(argument, stamp + 2, argument.length(), 10));
+        }
+      }
+      case "ERROR" -> {
+        if (!joined && !host) {
+          //The host hasn't created the channel yet
+          scheduler.schedule(() -> send("JOIN " + channel), 50, TimeUnit.MILLISECONDS);
+        } else {
+          stats.errors.increment();
+        }
+      }
+      default -> { }
+    }
+  }
+
+  /**
+   * Record how long each other player's newest score took to reach this bot, the first time a
+   * SCORES broadcast carries it
+   * @param argument The SCORES lines, as nickname:score:lives
+   */
+  private void scores(String argument) {
+    for (String line : argument.split("\n")) {
+      int first = line.indexOf(':');
+      int second = line.indexOf(':', first + 1);
+      if (first < 0 || second < 0) {
+        continue;
+      }
+      var player = line.substring(0, first);
+      var sent = player.equals(nickname) ? null : scoresSent.get(player);
+      if (sent != null && scoresSeen.get(player) != sent
+          && Integer.parseInt(line, first + 1, second, 10) == sent.score()) {
+        scoresSeen.put(player, sent);
+        stats.scores.record(System.nanoTime() - sent.sentAt());
+      }
+    }
+  }
+
+  /**
+   * Handle a binary frame from the server. Runs on the server's delivery
+   * @param frame The frame
+   */
+  private synchronized void receiveBinary(byte[] frame) {
+    stats.received.increment();
+    if (!stopped && frame[0] == BinaryCodec.PIECE) {
+      record(stats.piece, pieceRequests.poll());
+      pieces.addLast(BinaryCodec.decodeInt(frame));
+    }
+  }
+
+  /**
+   * Start playing once the game starts
+   */
+  private void begin() {
+    if (started) {
+      return;
+    }
+    started = true;
+    for (int i = 0; i < PIECE_DEPTH; i++) {
+      requestPiece();
+    }
+    send(boardSync.keyframe(board.cells()));
+
+    long moveMillis = options.moveMillis;
+    tasks.add(scheduler.scheduleAtFixedRate(this::move, jitter(moveMillis), moveMillis, TimeUnit.MILLISECONDS));
+    if (options.chatPerMinute > 0) {
+      long chatMillis = 60000 / options.chatPerMinute;
+      tasks.add(scheduler.scheduleAtFixedRate(this::chat, jitter(chatMillis), chatMillis, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  /**
+   * Play the next piece, if one has arrived
+   */
+  private synchronized void move() {
+    if (stopped || dead) {
+      return;
+    }
+    var piece = pieces.pollFirst();
+    if (piece == null) {
+      return;
+    }
+    requestPiece();
+
+    int points = board.place(GamePiece.createPiece(piece));
+    if (points < 0) {
+      lives--;
+      board.clear();
+      if (lives < 0) {
+        dead = true;
+        send("DIE");
+      }
+      send("LIVES " + lives);
+    } else if (points > 0) {
+      score += points;
+      scoresSent.put(nickname, new ScoreSent(score, System.nanoTime()));
+      send("SCORE " + score);
+    }
+    var update = boardSync.update(board.cells());
+    if (update != null) {
+      send(update);
+    }
+  }
+
+  /**
+   * Send a chat message stamped with the time it was sent
+   */
+  private void chat() {
+    send("MSG t" + System.nanoTime());
+  }
+
+  /**
+   * Request a piece
+   */
+  private void requestPiece() {
+    pieceRequests.add(System.nanoTime());
+    send("PIECE");
+  }
+
+  /**
+   * Send a message to the server
+   */
+  private void send(String message) {
+    var current = endpoint;
+    if (current != null && current.isOpen()) {
+      stats.sent.increment();
+      var frame = binary ? BinaryCodec.encode(message) : null;
+      if (frame != null) {
+        current.sendBinary(frame);
+      } else {
+        current.send(message);
+      }
+    }
+  }
+
+  /**
+   * Record the time since a request was sent, if there was one
+   */
+  private static void record(Histogram histogram, Long sentAt) {
+    if (sentAt != null) {
+      histogram.record(System.nanoTime() - sentAt);
+    }
+  }
+
+  /**
+   * Get a random first delay, so bots don't all act at once
+   */
+  private static long jitter(long periodMillis) {
+    return ThreadLocalRandom.current().nextLong(Math.max(1, periodMillis));
+  }
+}
@@ -0,0 +1,171 @@
+package uk.ac.soton.comp1206.loadtest;
+
+import java.util.Arrays;
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * A bot's board and the heuristic it places pieces with: try every rotation and position, and take
+ * the one that clears the most lines, breaking ties by how many filled cells the piece touches.
+ */
+class BotBoard {
+
+  /**
+   * The width and height of the board
+   */
+  static final int SIZE = 5;
+
+  /**
+   * The value of each cell, indexed y * SIZE + x
+   */
+  private final int[] cells = new int[SIZE * SIZE];
+
+  /**
+   * Place a piece in the best spot, clearing any full lines
+   * @param piece The piece
+   * @return The score for the placement, or -1 if the piece fits nowhere
+   */
+  int place(GamePiece piece) {
+    int bestValue = -1;
+    int bestRotation = 0;
+    int bestX = 0;
+    int bestY = 0;
+    for (int rotation = 0; rotation < 4; rotation++) {
+      var blocks = piece.getBlocks();
+      for (int x = 0; x < SIZE; x++) {
+        for (int y = 0; y < SIZE; y++) {
+          int value = evaluate(blocks, x, y);
+          if (value > bestValue) {
+            bestValue = value;
+            bestRotation = rotation;
+            bestX = x;
+            bestY = y;
+          }
+        }
+      }
+      piece.rotate();
+    }
+    if (bestValue < 0) {
+      return -1;
+    }
+
+    for (int rotation = 0; rotation < bestRotation; rotation++) {
+      piece.rotate();
+    }
+    var blocks = piece.getBlocks();
+    int placed = 0;
+    for (int bx = 0; bx < 3; bx++) {
+      for (int by = 0; by < 3; by++) {
+        if (blocks[bx][by] > 0) {
+          cells[index(bestX + bx - 1, bestY + by - 1)] = piece.getValue();
+          placed++;
+        }
+      }
+    }
+    int lines = clearLines();
+    return lines * placed * 10;
+  }
+
+  /**
+   * Get the cell values, for a BOARD message
+   * @return The cells
+   */
+  int[] cells() {
+    return cells;
+  }
+
+  /**
+   * Empty the board
+   */
+  void clear() {
+    Arrays.fill(cells, 0);
+  }
+
+  /**
+   * Score a placement: lines it would complete first, then filled neighbours
+   * @return The score, or -1 if the piece doesn't fit there
+   */
+  private int evaluate(int[][] blocks, int x, int y) {
+    int neighbours = 0;
+    int[] rows = new int[SIZE];
+    int[] cols = new int[SIZE];
+    for (int bx = 0; bx < 3; bx++) {
+      for (int by = 0; by < 3; by++) {
+        if (blocks[bx][by] == 0) {
+          continue;
+        }
+        int cx = x + bx - 1;
+        int cy = y + by - 1;
+        if (cx < 0 || cy < 0 || cx >= SIZE || cy >= SIZE || cells[index(cx, cy)] != 0) {
+          return -1;
+        }
+        rows[cy]++;
+        cols[cx]++;
+        neighbours += filled(cx - 1, cy) + filled(cx + 1, cy) + filled(cx, cy - 1) + filled(cx, cy + 1);
+      }
+    }
+    int lines = 0;
+    for (int i = 0; i < SIZE; i++) {
+      if (rows[i] > 0 && rows[i] + count(0, i, 1, 0) == SIZE) {
+        lines++;
+      }
+      if (cols[i] > 0 && cols[i] + count(i, 0, 0, 1) == SIZE) {
+        lines++;
+      }
+    }
+    return lines * 100 + neighbours;
+  }
+
+  /**
+   * Clear every full row and column
+   * @return The number of lines cleared
+   */
+  private int clearLines() {
+    boolean[] clear = new boolean[cells.length];
+    int lines = 0;
+    for (int i = 0; i < SIZE; i++) {
+      if (count(0, i, 1, 0) == SIZE) {
+        lines++;
+        for (int x = 0; x < SIZE; x++) {
+          clear[index(x, i)] = true;
+        }
+      }
+      if (count(i, 0, 0, 1) == SIZE) {
+        lines++;
+        for (int y = 0; y < SIZE; y++) {
+          clear[index(i, y)] = true;
+        }
+      }
+    }
+    for (int i = 0; i < cells.length; i++) {
+      if (clear[i]) {
+        cells[i] = 0;
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Count the filled cells in a line starting at x, y
+   */
+  private int count(int x, int y, int dx, int dy) {
+    int filled = 0;
+    for (int i = 0; i < SIZE; i++) {
+      filled += filled(x + dx * i, y + dy * i);
+    }
+    return filled;
+  }
+
+  /**
+   * 1 if a cell is on the board and filled, otherwise 0
+   */
+  private int filled(int x, int y) {
+    return x >= 0 && y >= 0 && x < SIZE && y < SIZE && cells[index(x, y)] != 0 ? 1 : 0;
+  }
+
+  /**
+   * Get the index of a cell
+   */
+  private static int index(int x, int y) {
+    return y * SIZE + x;
+  }
+}
@@ -0,0 +1,306 @@
+package uk.ac.soton.comp1206.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.ToLongFunction;
+import uk.ac.soton.comp1206.network.BinaryCodec;
+import uk.ac.soton.comp1206.network.BoardCodec;
+import uk.ac.soton.comp1206.network.BoardDecoder;
+import uk.ac.soton.comp1206.network.BoardSync;
+import uk.ac.soton.comp1206.network.BoardUpdate;
+import uk.ac.soton.comp1206.network.Command;
+import uk.ac.soton.comp1206.network.MessageDispatcher;
+
+/**
+ * Compares receiving the busiest messages as text against receiving them as binary frames,
+ * reporting the time and bytes allocated per message and the size on the wire. PIECE and BOARD go
+ * through the same MessageDispatcher path the Communicator uses, from the raw message to the payload
+ * handed to a listener, so both formats pay for parsing and for the payload they deliver. Each case
+ * is warmed up before it is timed. It also compares keeping a board in sync with full BOARD
+ * keyframes against BOARDDELTA changes, as text and as binary frames, from the sender's BoardSync
+ * through the server's relay to the receiver's BoardDecoder, after first checking that boards
+ * survive encoding and decoding unchanged.
+ *
+ * <p>Run with {@code mvn -Ploadtest exec:java -Dexec.mainClass=uk.ac.soton.comp1206.loadtest.CodecBenchmark}.
+ * With {@code --check} only the round trips are checked; {@code mvn -Ploadtest test} does this.
+ */
+public class CodecBenchmark {
+
+  /**
+   * Messages decoded to warm up each case
+   */
+  private static final int WARMUP = 2_000_000;
+
+  /**
+   * Messages decoded for each measurement
+   */
+  private static final int ITERATIONS = 5_000_000;
+
+  /**
+   * Run the benchmark
+   * @param args --check to check the round trips without timing anything
+   */
+  public static void main(String[] args) {
+    checkRoundTrip();
+    if (args.length > 0 && args[0].equals("--check")) {
+      return;
+    }
+
+    var cells = new int[25];
+    for (int i = 0; i < cells.length; i++) {
+      cells[i] = (i * 7) % 16;
+    }
+    var boardText = new StringBuilder("BOARD player1:");
+    BoardCodec.encodeKeyframe(cells, boardText);
+    var board = boardText.toString();
+    var boardFrame = BinaryCodec.encode(board);
+    var piece = "PIECE 12";
+    var pieceFrame = BinaryCodec.encode(piece);
+    var lives = "LIVES -1";
+    var livesFrame = BinaryCodec.encode(lives);
+
+    var dispatcher = new MessageDispatcher();
+    var received = new long[1];
+    dispatcher.addListener(Command.BOARD, update -> received[0] += update.cells()[3]);
+    dispatcher.addListener(Command.PIECE, value -> received[0] += value);
+
+    System.out.printf("%-16s %10s %12s %8s%n", "case", "ns/msg", "bytes alloc", "size");
+    run("BOARD text", board.length(), i -> {
+      dispatcher.dispatch(board);
+      return received[0];
+    });
+    run("BOARD binary", boardFrame.length, i -> {
+      dispatcher.dispatchBinary(boardFrame);
+      return received[0];
+    });
+    run("PIECE text", piece.length(), i -> {
+      dispatcher.dispatch(piece);
+      return received[0];
+    });
+    run("PIECE binary", pieceFrame.length, i -> {
+      dispatcher.dispatchBinary(pieceFrame);
+      return received[0];
+    });
+    run("LIVES text", lives.length(), i -> Integer.parseInt(lives, 6, lives.length(), 10));
+    run("LIVES binary", livesFrame.length, i -> BinaryCodec.decodeInt(livesFrame));
+
+    var keyframes = new BoardSync(cells.length, 20, false);
+    var keyframeBoard = cells.clone();
+    var keyframeDecoder = new BoardDecoder(cells.length);
+    run("BOARD sync", averageSize(new BoardSync(cells.length, 20, false), cells.clone()),
+        i -> sync(keyframes, keyframeBoard, keyframeDecoder, i));
+    var deltas = new BoardSync(cells.length, 20, true);
+    var deltaBoard = cells.clone();
+    var deltaDecoder = new BoardDecoder(cells.length);
+    run("BOARDDELTA sync", averageSize(new BoardSync(cells.length, 20, true), cells.clone()),
+        i -> sync(deltas, deltaBoard, deltaDecoder, i));
+    var binaryDeltas = new BoardSync(cells.length, 20, true);
+    var binaryBoard = cells.clone();
+    var binaryDecoder = new BoardDecoder(cells.length);
+    run("BOARDDELTA bin", averageFrameSize(new BoardSync(cells.length, 20, true), cells.clone()),
+        i -> syncBinary(binaryDeltas, binaryBoard, binaryDecoder, i));
+  }
+
+  /**
+   * Check that random boards come back unchanged from keyframes, from deltas, and from a run of
+   * BoardSync messages relayed the way the server relays them
+   * @throws IllegalStateException If any board comes back different
+   */
+  private static void checkRoundTrip() {
+    var random = new Random(1206);
+    var board = new int[25];
+    var previous = new int[25];
+    var decoded = new int[25];
+    for (int round = 0; round < 10_000; round++) {
+      System.arraycopy(board, 0, previous, 0, board.length);
+      for (int i = 0; i < board.length; i++) {
+        if (random.nextInt(4) == 0) {
+          board[i] = random.nextInt(BoardCodec.MAX_DELTA_VALUE + 1);
+        }
+      }
+
+      var keyframe = new StringBuilder();
+      BoardCodec.encodeKeyframe(board, keyframe);
+      BoardCodec.decodeKeyframe(keyframe.toString(), 0, keyframe.length(), decoded);
+      expect(board, decoded, "keyframe");
+
+      var delta = new StringBuilder();
+      BoardCodec.encodeDelta(previous, board, delta);
+      System.arraycopy(previous, 0, decoded, 0, decoded.length);
+      BoardCodec.applyDelta(delta.toString(), 0, delta.length(), decoded);
+      expect(board, decoded, "delta");
+    }
+
+    var sync = new BoardSync(board.length, 20, true);
+    var decoder = new BoardDecoder(board.length);
+    for (int i = 0; i < 10_000; i++) {
+      mutate(board, i);
+      var message = sync.update(board);
+      if (message != null) {
+        receive(decoder, message);
+      }
+      expect(board, decoder.get("player1"), "BoardSync message " + i);
+    }
+
+    var binarySync = new BoardSync(board.length, 20, true);
+    var binaryDecoder = new BoardDecoder(board.length);
+    for (int i = 0; i < 10_000; i++) {
+      mutate(board, i);
+      var message = binarySync.update(board);
+      if (message != null) {
+        receiveBinary(binaryDecoder, BinaryCodec.encode(message));
+      }
+      expect(board, binaryDecoder.get("player1"), "binary BoardSync message " + i);
+    }
+    System.out.println("Board round trips ok");
+  }
+
+  /**
+   * Throw if a decoded board differs from the original
+   */
+  private static void expect(int[] board, int[] decoded, String what) {
+    if (!Arrays.equals(board, decoded)) {
+      throw new IllegalStateException("Board changed by " + what + ": expected "
+          + Arrays.toString(board) + " but got " + Arrays.toString(decoded));
+    }
+  }
+
+  /**
+   * Change a few cells of a board, as placing a piece would
+   */
+  private static void mutate(int[] board, int i) {
+    int at = (i * 7) % board.length;
+    board[at] = 1 + i % 15;
+    board[(at + 1) % board.length] = 1 + i % 15;
+    board[(at + 5) % board.length] = 1 + i % 15;
+  }
+
+  /**
+   * Change a board, send it, relay it and apply it to the receiver's copy
+   * @return A cell of the receiver's copy
+   */
+  private static long sync(BoardSync sync, int[] board, BoardDecoder decoder, int i) {
+    mutate(board, i);
+    var message = sync.update(board);
+    if (message == null) {
+      return 0;
+    }
+    var received = receive(decoder, message);
+    return received == null ? -1 : received[i % received.length];
+  }
+
+  /**
+   * Change a board, send it as a binary frame, relay it and apply it to the receiver's copy
+   * @return A cell of the receiver's copy
+   */
+  private static long syncBinary(BoardSync sync, int[] board, BoardDecoder decoder, int i) {
+    mutate(board, i);
+    var message = sync.update(board);
+    if (message == null) {
+      return 0;
+    }
+    var received = receiveBinary(decoder, BinaryCodec.encode(message));
+    return received == null ? -1 : received[i % received.length];
+  }
+
+  /**
+   * Relay a BOARD or BOARDDELTA frame as the server does and apply it to a decoder
+   * @return The receiver's copy of the board, or null if it is out of sync
+   */
+  private static int[] receiveBinary(BoardDecoder decoder, byte[] frame) {
+    var message = BinaryCodec.toText(frame);
+    if (message.startsWith("BOARDDELTA ")) {
+      var relayed = BinaryCodec.encode("BOARDDELTA player1:" + message.substring(11).replace(' ', ':'));
+      return decoder.apply(BinaryCodec.decodeBoardDelta(relayed));
+    }
+    var relayed = BinaryCodec.encode("BOARD player1:" + message.substring(6));
+    var cells = new int[BinaryCodec.cellCount(relayed)];
+    BinaryCodec.decodeBoard(relayed, cells);
+    return decoder.apply(new BoardUpdate(BinaryCodec.decodePlayer(relayed), cells));
+  }
+
+  /**
+   * Relay a BOARD or BOARDDELTA message as the server does and apply it to a decoder
+   * @return The receiver's copy of the board, or null if it is out of sync
+   */
+  private static int[] receive(BoardDecoder decoder, String message) {
+    if (message.startsWith("BOARDDELTA ")) {
+      var relayed = "BOARDDELTA player1:" + message.substring(11).replace(' ', ':');
+      return decoder.apply(Command.BOARDDELTA.parse(relayed, 11));
+    }
+    var relayed = "BOARD player1:" + message.substring(6);
+    return decoder.apply(Command.BOARD.parse(relayed, 6));
+  }
+
+  /**
+   * Get the mean size of the messages a board sync sends for a run of changes
+   */
+  private static int averageSize(BoardSync sync, int[] board) {
+    long total = 0;
+    int messages = 0;
+    for (int i = 0; i < 1000; i++) {
+      mutate(board, i);
+      var message = sync.update(board);
+      if (message != null) {
+        total += message.length();
+        messages++;
+      }
+    }
+    return messages == 0 ? 0 : (int) (total / messages);
+  }
+
+  /**
+   * Get the mean size of the binary frames a board sync sends for a run of changes
+   */
+  private static int averageFrameSize(BoardSync sync, int[] board) {
+    long total = 0;
+    int frames = 0;
+    for (int i = 0; i < 1000; i++) {
+      mutate(board, i);
+      var message = sync.update(board);
+      if (message != null) {
+        total += BinaryCodec.encode(message).length;
+        frames++;
+      }
+    }
+    return frames == 0 ? 0 : (int) (total / frames);
+  }
+
+  /**
+   * Warm up and time one case
+   * @param name The name of the case
+   * @param size The size of the message on the wire
+   * @param decode Decodes the message once, returning something from it so it isn't optimised away
+   */
+  private static void run(String name, int size, ToLongFunction<Integer> decode) {
+    long sink = 0;
+    for (int i = 0; i < WARMUP; i++) {
+      sink += decode.applyAsLong(i & 127);
+    }
+
+    long allocatedBefore = allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink += decode.applyAsLong(i & 127);
+    }
+    long nanos = System.nanoTime() - start;
+    long allocated = allocatedBytes() - allocatedBefore;
+
+    System.out.printf("%-16s %10.1f %12s %8d%s%n", name, (double) nanos / ITERATIONS,
+        allocated < 0 ? "n/a" : String.format("%.1f", (double) allocated / ITERATIONS), size,
+        sink == 42 ? " " : "");
+  }
+
+  /**
+   * Get the bytes allocated by this thread so far
+   * @return The bytes, or a negative number if the JVM can't measure it
+   */
+  private static long allocatedBytes() {
+    var bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean threads) {
+      return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,52 @@
+package uk.ac.soton.comp1206.loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+import uk.ac.soton.comp1206.utilities.Histogram;
+
+/**
+ * The latencies and counts gathered from every bot over one reporting interval.
+ */
+class LoadStats {
+
+  /**
+   * Time from sending PIECE to receiving the piece
+   */
+  final Histogram piece = new Histogram();
+
+  /**
+   * Time from a player sending SCORE to each other player in the channel receiving it in SCORES
+   */
+  final Histogram scores = new Histogram();
+
+  /**
+   * Time from sending a chat message to each player in the channel receiving it
+   */
+  final Histogram chat = new Histogram();
+
+  /**
+   * The number of messages the bots sent
+   */
+  final LongAdder sent = new LongAdder();
+
+  /**
+   * The number of messages the bots received
+   */
+  final LongAdder received = new LongAdder();
+
+  /**
+   * The number of ERROR messages the bots received
+   */
+  final LongAdder errors = new LongAdder();
+
+  /**
+   * Start a new interval
+   */
+  void reset() {
+    piece.reset();
+    scores.reset();
+    chat.reset();
+    sent.reset();
+    received.reset();
+    errors.reset();
+  }
+}
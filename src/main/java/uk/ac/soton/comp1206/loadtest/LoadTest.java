@@ -0,0 +1,263 @@
+package uk.ac.soton.comp1206.loadtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import uk.ac.soton.comp1206.server.LocalServer;
+import uk.ac.soton.comp1206.utilities.Histogram;
+
+/**
+ * Puts a LocalServer under load from simulated players and reports how it copes. Channels of bots
+ * are added at the start and, optionally, more every interval, so the report shows where latency
+ * starts to climb. Each interval reports the PIECE round trip, score and chat delivery to every
+ * player in the channel, the server's message rate, CPU and the heap in use.
+ *
+ * <p>Run with {@code mvn -Ploadtest exec:java -Dexec.args="--channels 100 --ramp 50"}. Options are
+ * listed in {@link Options}.
+ */
+public class LoadTest {
+
+  /**
+   * How the load test runs. Each field can be set with a command line option of the same name
+   */
+  static class Options {
+
+    /**
+     * --players: players in each channel
+     */
+    int players = 4;
+
+    /**
+     * --channels: channels to start with
+     */
+    int channels = 50;
+
+    /**
+     * --ramp: channels to add each interval
+     */
+    int ramp = 0;
+
+    /**
+     * --max-channels: the most channels to ramp up to
+     */
+    int maxChannels = Integer.MAX_VALUE;
+
+    /**
+     * --interval: seconds between reports
+     */
+    int interval = 5;
+
+    /**
+     * --duration: seconds to run for
+     */
+    int duration = 60;
+
+    /**
+     * --move-ms: milliseconds between each bot's moves
+     */
+    long moveMillis = 500;
+
+    /**
+     * --chat-per-minute: chat messages each bot sends a minute
+     */
+    int chatPerMinute = 6;
+
+    /**
+     * --threads: threads running the bots
+     */
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * --server-threads: threads running the server
+     */
+    int serverThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * --deltas: send board changes as BOARDDELTA messages
+     */
+    boolean deltas = false;
+
+    /**
+     * --binary: ask for binary frames
+     */
+    boolean binary = false;
+
+    /**
+     * Read the options from the command line
+     * @param args The command line
+     * @return The options
+     */
+    static Options parse(String[] args) {
+      var options = new Options();
+      for (int i = 0; i < args.length; i++) {
+        var name = args[i];
+        if (name.equals("--deltas")) {
+          options.deltas = true;
+          continue;
+        }
+        if (name.equals("--binary")) {
+          options.binary = true;
+          continue;
+        }
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("No value given for " + name);
+        }
+        var value = args[++i];
+        switch (name) {
+          case "--players" -> options.players = Integer.parseInt(value);
+          case "--channels" -> options.channels = Integer.parseInt(value);
+          case "--ramp" -> options.ramp = Integer.parseInt(value);
+          case "--max-channels" -> options.maxChannels = Integer.parseInt(value);
+          case "--interval" -> options.interval = Integer.parseInt(value);
+          case "--duration" -> options.duration = Integer.parseInt(value);
+          case "--move-ms" -> options.moveMillis = Long.parseLong(value);
+          case "--chat-per-minute" -> options.chatPerMinute = Integer.parseInt(value);
+          case "--threads" -> options.threads = Integer.parseInt(value);
+          case "--server-threads" -> options.serverThreads = Integer.parseInt(value);
+          default -> throw new IllegalArgumentException("Unknown option " + name);
+        }
+      }
+      return options;
+    }
+  }
+
+  /**
+   * How the test runs
+   */
+  private final Options options;
+
+  /**
+   * The server under test
+   */
+  private final LocalServer server;
+
+  /**
+   * Runs every bot
+   */
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * The latencies and counts of the current interval
+   */
+  private final LoadStats stats = new LoadStats();
+
+  /**
+   * Every bot started
+   */
+  private final List<Bot> bots = new ArrayList<>();
+
+  /**
+   * The number of channels created
+   */
+  private int channels = 0;
+
+  /**
+   * Create a new load test
+   * @param options How the test runs
+   */
+  public LoadTest(Options options) {
+    this.options = options;
+    this.server = new LocalServer(options.serverThreads);
+    var count = new AtomicInteger();
+    this.scheduler = Executors.newScheduledThreadPool(options.threads, runnable -> {
+      var thread = new Thread(runnable, "load-bot-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Run the load test from the command line
+   * @param args The options
+   */
+  public static void main(String[] args) throws Exception {
+    new LoadTest(Options.parse(args)).run();
+  }
+
+  /**
+   * Run the test, reporting every interval, then stop every bot
+   * @throws IOException If a bot can't connect
+   * @throws InterruptedException If interrupted while waiting
+   */
+  public void run() throws IOException, InterruptedException {
+    System.out.printf("Load test: %d players a channel, %d channels, +%d each %ds, %ds, %d bot threads, "
+            + "%d server threads%n", options.players, options.channels, options.ramp, options.interval,
+        options.duration, options.threads, options.serverThreads);
+    addChannels(options.channels);
+
+    long start = System.nanoTime();
+    long lastReport = start;
+    long lastCpu = server.getCpuNanos();
+    long lastHandled = server.getHandled();
+    for (int elapsed = options.interval; elapsed <= options.duration; elapsed += options.interval) {
+      TimeUnit.SECONDS.sleep(options.interval);
+
+      long now = System.nanoTime();
+      long cpu = server.getCpuNanos();
+      long handled = server.getHandled();
+      report(elapsed, now - lastReport, cpu - lastCpu, handled - lastHandled);
+      stats.reset();
+      lastReport = now;
+      lastCpu = cpu;
+      lastHandled = handled;
+
+      if (options.ramp > 0 && channels < options.maxChannels) {
+        addChannels(Math.min(options.ramp, options.maxChannels - channels));
+      }
+    }
+
+    bots.forEach(Bot::stop);
+    scheduler.shutdownNow();
+    server.shutdown();
+  }
+
+  /**
+   * Start more channels full of bots
+   * @param count The number of channels to add
+   * @throws IOException If a bot can't connect
+   */
+  private void addChannels(int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      var channel = "load" + channels++;
+      var scoresSent = new ConcurrentHashMap<String, Bot.ScoreSent>();
+      for (int player = 0; player < options.players; player++) {
+        var bot = new Bot(server, channel + "-" + player, channel, player == 0, options.players, scheduler,
+            scoresSent, stats, options);
+        bots.add(bot);
+        bot.start();
+      }
+    }
+  }
+
+  /**
+   * Print the report for an interval
+   * @param elapsed Seconds since the test started
+   * @param wallNanos The length of the interval
+   * @param cpuNanos The CPU time the server used in the interval
+   * @param handled The messages the server handled in the interval
+   */
+  private void report(int elapsed, long wallNanos, long cpuNanos, long handled) {
+    double seconds = wallNanos / 1e9;
+    var runtime = Runtime.getRuntime();
+    long heapMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+    System.out.printf("%4ds channels %d players %d | server %.0f msg/s cpu %s heap %dMB | errors %d%n"
+            + "      piece %s | scores %s | chat %s%n",
+        elapsed, server.getChannelCount(), server.getPlayerCount(), handled / seconds,
+        cpuNanos < 0 ? "n/a" : String.format("%.0f%%", 100.0 * cpuNanos / wallNanos), heapMb,
+        stats.errors.sum(), percentiles(stats.piece), percentiles(stats.scores), percentiles(stats.chat));
+  }
+
+  /**
+   * Format the latency percentiles of a histogram in milliseconds
+   */
+  private static String percentiles(Histogram histogram) {
+    return String.format("p50 %.2f p99 %.2f p99.9 %.2f max %.2fms (%d)",
+        histogram.getPercentile(50) / 1e6, histogram.getPercentile(99) / 1e6,
+        histogram.getPercentile(99.9) / 1e6, histogram.getMax() / 1e6, histogram.getCount());
+  }
+}
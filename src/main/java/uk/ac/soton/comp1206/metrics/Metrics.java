@@ -0,0 +1,96 @@
+package uk.ac.soton.comp1206.metrics;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import uk.ac.soton.comp1206.utilities.Histogram;
+
+/**
+ * The one registry of metrics for the whole game. Every layer registers into it by name: counters
+ * that only go up, gauges read when they are reported, and histograms of times or sizes. Counters are
+ * LongAdders and histograms count into striped buckets, so recording from many threads at once never
+ * contends on a lock.
+ *
+ * <p>Names are dotted, starting with the layer, such as {@code game.pieces.placed}. Times are in
+ * nanoseconds and end in {@code .nanos}. Asking for a counter or histogram that already exists returns
+ * the one registered, so callers can look them up once and keep them.
+ */
+public class Metrics {
+
+  /**
+   * Every counter, by name
+   */
+  private static final NavigableMap<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+
+  /**
+   * Every gauge, by name
+   */
+  private static final NavigableMap<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+  /**
+   * Every histogram, by name
+   */
+  private static final NavigableMap<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+
+  /**
+   * Get a counter, creating it if needed
+   * @param name The name of the counter
+   * @return The counter
+   */
+  public static LongAdder counter(String name) {
+    return counters.computeIfAbsent(name, n -> new LongAdder());
+  }
+
+  /**
+   * Get a histogram, creating it if needed
+   * @param name The name of the histogram
+   * @return The histogram
+   */
+  public static Histogram histogram(String name) {
+    return histograms.computeIfAbsent(name, n -> new Histogram());
+  }
+
+  /**
+   * Report a histogram kept elsewhere, replacing any registered under the same name
+   * @param name The name to report it under
+   * @param histogram The histogram
+   */
+  public static void histogram(String name, Histogram histogram) {
+    histograms.put(name, histogram);
+  }
+
+  /**
+   * Register a gauge, replacing any registered under the same name
+   * @param name The name to report it under
+   * @param gauge Supplies the current value
+   */
+  public static void gauge(String name, LongSupplier gauge) {
+    gauges.put(name, gauge);
+  }
+
+  /**
+   * Get every counter
+   * @return The counters, sorted by name
+   */
+  static Map<String, LongAdder> getCounters() {
+    return counters;
+  }
+
+  /**
+   * Get every gauge
+   * @return The gauges, sorted by name
+   */
+  static Map<String, LongSupplier> getGauges() {
+    return gauges;
+  }
+
+  /**
+   * Get every histogram
+   * @return The histograms, sorted by name
+   */
+  static Map<String, Histogram> getHistograms() {
+    return histograms;
+  }
+}
@@ -0,0 +1,177 @@
+package uk.ac.soton.comp1206.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.utilities.Histogram;
+
+/**
+ * Writes every metric to a local file at a fixed interval, one JSON object per line, and publishes
+ * them over JMX as {@value #OBJECT_NAME}. When the file grows past its size limit it is rolled over
+ * to file.1, file.1 to file.2 and so on, keeping a fixed number of old files.
+ */
+public class MetricsExporter {
+
+  private static final Logger logger = LogManager.getLogger(MetricsExporter.class);
+
+  /**
+   * The name the metrics are published under over JMX
+   */
+  static final String OBJECT_NAME = "uk.ac.soton.comp1206:type=Metrics";
+
+  /**
+   * The size past which the file is rolled over
+   */
+  private static final long MAX_BYTES = 4 * 1024 * 1024;
+
+  /**
+   * The number of old files kept
+   */
+  private static final int KEEP = 3;
+
+  /**
+   * Writes the metrics in the background
+   */
+  private final ScheduledExecutorService exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    var thread = new Thread(runnable, "metrics-export");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * The file written to
+   */
+  private final Path file;
+
+  /**
+   * The name published over JMX, or null if publishing failed
+   */
+  private ObjectName published;
+
+  /**
+   * Start exporting metrics
+   * @param file The file to write to
+   * @param intervalSeconds The seconds between each export
+   */
+  public MetricsExporter(Path file, int intervalSeconds) {
+    this.file = file;
+    try {
+      published = new ObjectName(OBJECT_NAME);
+      var server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(published)) {
+        server.unregisterMBean(published);
+      }
+      server.registerMBean(new MetricsMBean(), published);
+    } catch (JMException e) {
+      logger.error("Unable to publish metrics over JMX: {}", e.getMessage());
+      published = null;
+    }
+    exporter.scheduleAtFixedRate(this::export, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Write the metrics one last time and stop exporting them
+   */
+  public void close() {
+    exporter.shutdown();
+    try {
+      exporter.awaitTermination(2, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    export();
+    if (published != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(published);
+      } catch (JMException e) {
+        logger.error("Unable to withdraw metrics from JMX: {}", e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Append a line holding every metric to the file, rolling it over first if it is full
+   */
+  private synchronized void export() {
+    var line = new StringBuilder("{\"time\":\"").append(Instant.now()).append('"');
+    line.append(",\"counters\":{");
+    var first = true;
+    for (var counter : Metrics.getCounters().entrySet()) {
+      first = field(line, first, counter.getKey());
+      line.append(counter.getValue().sum());
+    }
+    line.append("},\"gauges\":{");
+    first = true;
+    for (var gauge : Metrics.getGauges().entrySet()) {
+      first = field(line, first, gauge.getKey());
+      line.append(gauge.getValue().getAsLong());
+    }
+    line.append("},\"histograms\":{");
+    first = true;
+    for (var entry : Metrics.getHistograms().entrySet()) {
+      Histogram histogram = entry.getValue();
+      first = field(line, first, entry.getKey());
+      line.append("{\"count\":").append(histogram.getCount())
+          .append(",\"mean\":").append(histogram.getMean())
+          .append(",\"p50\":").append(histogram.getPercentile(50))
+          .append(",\"p90\":").append(histogram.getPercentile(90))
+          .append(",\"p99\":").append(histogram.getPercentile(99))
+          .append(",\"max\":").append(histogram.getMax()).append('}');
+    }
+    line.append("}}\n");
+
+    try {
+      if (Files.exists(file) && Files.size(file) > MAX_BYTES) {
+        roll();
+      }
+      Files.writeString(file, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      logger.error("Unable to write metrics to {}: {}", file, e.getMessage());
+    }
+  }
+
+  /**
+   * Shift the old files along one, dropping the oldest, and move the file to file.1
+   */
+  private void roll() throws IOException {
+    for (int i = KEEP - 1; i >= 1; i--) {
+      var older = file.resolveSibling(file.getFileName() + "." + i);
+      if (Files.exists(older)) {
+        Files.move(older, file.resolveSibling(file.getFileName() + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Start a field of a JSON object, with a comma before it unless it is the first
+   * @return False, for the next field
+   */
+  private static boolean field(StringBuilder line, boolean first, String name) {
+    if (!first) {
+      line.append(',');
+    }
+    line.append('"');
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c == '"' || c == '\\') {
+        line.append('\\');
+      }
+      line.append(c);
+    }
+    line.append("\":");
+    return false;
+  }
+}
@@ -0,0 +1,110 @@
+package uk.ac.soton.comp1206.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+import uk.ac.soton.comp1206.utilities.Histogram;
+
+/**
+ * Shows every metric as a read-only JMX attribute. Counters and gauges are attributes of the same
+ * name, and each histogram is shown as name.count, name.mean, name.p50, name.p90, name.p99 and
+ * name.max. The attributes are listed afresh each time, so metrics registered later still show up.
+ */
+class MetricsMBean implements DynamicMBean {
+
+  /**
+   * The statistics shown for each histogram, in order
+   */
+  private static final List<String> STATISTICS = List.of("count", "mean", "p50", "p90", "p99", "max");
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    var counter = Metrics.getCounters().get(attribute);
+    if (counter != null) {
+      return counter.sum();
+    }
+    var gauge = Metrics.getGauges().get(attribute);
+    if (gauge != null) {
+      return gauge.getAsLong();
+    }
+    int dot = attribute.lastIndexOf('.');
+    if (dot > 0) {
+      var histogram = Metrics.getHistograms().get(attribute.substring(0, dot));
+      var statistic = statistic(attribute.substring(dot + 1));
+      if (histogram != null && statistic != null) {
+        return statistic.applyAsLong(histogram);
+      }
+    }
+    throw new AttributeNotFoundException(attribute);
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    var list = new AttributeList();
+    for (var attribute : attributes) {
+      try {
+        list.add(new Attribute(attribute, getAttribute(attribute)));
+      } catch (AttributeNotFoundException e) {
+        //Left out of the list, as JMX expects
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+    throw new ReflectionException(new NoSuchMethodException(actionName), "There are no operations");
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    var attributes = new ArrayList<MBeanAttributeInfo>();
+    Metrics.getCounters().keySet().forEach(name -> attributes.add(attribute(name, "Counter")));
+    Metrics.getGauges().keySet().forEach(name -> attributes.add(attribute(name, "Gauge")));
+    Metrics.getHistograms().keySet().forEach(name -> STATISTICS.forEach(
+        statistic -> attributes.add(attribute(name + "." + statistic, "Histogram " + statistic))));
+    return new MBeanInfo(getClass().getName(), "TetrECS metrics",
+        attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+  }
+
+  /**
+   * Describe a read-only long attribute
+   */
+  private static MBeanAttributeInfo attribute(String name, String description) {
+    return new MBeanAttributeInfo(name, "long", description, true, false, false);
+  }
+
+  /**
+   * Get how to read a statistic from a histogram
+   * @return The statistic, or null if there is no statistic by that name
+   */
+  private static ToLongFunction<Histogram> statistic(String name) {
+    return switch (name) {
+      case "count" -> Histogram::getCount;
+      case "mean" -> Histogram::getMean;
+      case "p50" -> histogram -> histogram.getPercentile(50);
+      case "p90" -> histogram -> histogram.getPercentile(90);
+      case "p99" -> histogram -> histogram.getPercentile(99);
+      case "max" -> Histogram::getMax;
+      default -> null;
+    };
+  }
+}
@@ -0,0 +1,45 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter, used to space out reconnection attempts so that many clients
+ * losing the server at once don't all retry at the same moment
+ */
+public class Backoff {
+
+  /**
+   * The delay before the first retry, in milliseconds
+   */
+  private final long baseMillis;
+
+  /**
+   * The longest delay between retries, in milliseconds
+   */
+  private final long maxMillis;
+
+  /**
+   * Create a new backoff
+   * @param baseMillis The delay before the first retry
+   * @param maxMillis The longest delay between retries
+   */
+  public Backoff(long baseMillis, long maxMillis) {
+    this.baseMillis = baseMillis;
+    this.maxMillis = maxMillis;
+  }
+
+  /**
+   * Get how long to wait before a retry. The delay doubles with each attempt up to the maximum, and
+   * a random delay between half and all of that is chosen
+   * @param attempt The number of attempts that have failed so far, starting at 1
+   * @return The delay in milliseconds
+   */
+  public long delayMillis(int attempt) {
+    int doublings = Math.min(Math.max(attempt - 1, 0), 30);
+    long ceiling = Math.min(maxMillis, baseMillis << doublings);
+    if (ceiling <= 0) {
+      ceiling = maxMillis;
+    }
+    return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+  }
+}
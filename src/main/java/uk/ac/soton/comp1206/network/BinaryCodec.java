@@ -0,0 +1,338 @@
+package uk.ac.soton.comp1206.network;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes and decodes the binary frames used for the busiest messages once both ends have agreed
+ * to them with BINARY. The first byte of a frame says what it holds:
+ *
+ * <ul>
+ *   <li>PIECE: a request with nothing after it, or a reply with the piece as a varint</li>
+ *   <li>SCORE and LIVES: the value as a varint</li>
+ *   <li>BOARD: the number of cells, then two cells a byte, low nibble first</li>
+ *   <li>PLAYER_BOARD: a BOARD from the server, with the player's name first as a length and UTF-8</li>
+ *   <li>BOARD_DELTA: the sequence number, the number of changed cells, the index of each changed
+ *   cell a byte, then their new values two a byte, low nibble first</li>
+ *   <li>PLAYER_BOARD_DELTA: a BOARD_DELTA from the server, with the player's name first</li>
+ * </ul>
+ *
+ * Varints are zigzag encoded so that -1 lives takes a single byte. Everything else stays as text.
+ * Decoding reads straight from the frame and writes into arrays the caller owns, so it allocates
+ * nothing beyond the player name and, for deltas, the changes in their text form.
+ */
+public final class BinaryCodec {
+
+  public static final byte PIECE = 1;
+  public static final byte SCORE = 2;
+  public static final byte LIVES = 3;
+  public static final byte BOARD = 4;
+  public static final byte PLAYER_BOARD = 5;
+  public static final byte BOARD_DELTA = 6;
+  public static final byte PLAYER_BOARD_DELTA = 7;
+
+  /**
+   * The largest cell value a nibble holds
+   */
+  public static final int MAX_CELL_VALUE = 15;
+
+  /**
+   * The most cells a board frame can hold
+   */
+  public static final int MAX_CELLS = 255;
+
+  private BinaryCodec() {
+  }
+
+  /**
+   * Encode a text message as a binary frame
+   * @param message The text message
+   * @return The frame, or null if the message has no binary form
+   */
+  public static byte[] encode(String message) {
+    try {
+      if (message.equals("PIECE")) {
+        return new byte[] {PIECE};
+      } else if (message.startsWith("PIECE ")) {
+        return encodeInt(PIECE, Integer.parseInt(message, 6, message.length(), 10));
+      } else if (message.startsWith("SCORE ")) {
+        return encodeInt(SCORE, Integer.parseInt(message, 6, message.length(), 10));
+      } else if (message.startsWith("LIVES ")) {
+        return encodeInt(LIVES, Integer.parseInt(message, 6, message.length(), 10));
+      } else if (message.startsWith("BOARD ")) {
+        return encodeBoard(message);
+      } else if (message.startsWith("BOARDDELTA ")) {
+        return encodeBoardDelta(message);
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    return null;
+  }
+
+  /**
+   * Get the text form of a binary frame
+   * @param frame The frame
+   * @return The text message it stands for
+   */
+  public static String toText(byte[] frame) {
+    return switch (frame[0]) {
+      case PIECE -> frame.length == 1 ? "PIECE" : "PIECE " + decodeInt(frame);
+      case SCORE -> "SCORE " + decodeInt(frame);
+      case LIVES -> "LIVES " + decodeInt(frame);
+      case BOARD, PLAYER_BOARD -> {
+        var cells = new int[cellCount(frame)];
+        decodeBoard(frame, cells);
+        var text = new StringBuilder("BOARD ");
+        if (frame[0] == PLAYER_BOARD) {
+          text.append(decodePlayer(frame)).append(':');
+        }
+        BoardCodec.encodeKeyframe(cells, text);
+        yield text.toString();
+      }
+      case BOARD_DELTA -> {
+        var text = new StringBuilder("BOARDDELTA ").append(frame[1] & 0xff).append(' ');
+        appendChanges(frame, 2, text);
+        yield text.toString();
+      }
+      case PLAYER_BOARD_DELTA -> {
+        var delta = decodeBoardDelta(frame);
+        yield "BOARDDELTA " + delta.player() + ":" + delta.sequence() + ":" + delta.changes();
+      }
+      default -> throw new IllegalArgumentException("Unknown binary frame type " + frame[0]);
+    };
+  }
+
+  /**
+   * Get the name of the command a binary frame stands for
+   * @param frame The frame
+   * @return The command name
+   */
+  public static String commandName(byte[] frame) {
+    return switch (frame[0]) {
+      case PIECE -> "PIECE";
+      case SCORE -> "SCORE";
+      case LIVES -> "LIVES";
+      case BOARD, PLAYER_BOARD -> "BOARD";
+      case BOARD_DELTA, PLAYER_BOARD_DELTA -> "BOARDDELTA";
+      default -> "UNKNOWN";
+    };
+  }
+
+  /**
+   * Decode the value of a PIECE, SCORE or LIVES frame
+   * @param frame The frame
+   * @return The value
+   */
+  public static int decodeInt(byte[] frame) {
+    int raw = 0;
+    int shift = 0;
+    for (int i = 1; i < frame.length; i++, shift += 7) {
+      raw |= (frame[i] & 0x7f) << shift;
+      if ((frame[i] & 0x80) == 0) {
+        return (raw >>> 1) ^ -(raw & 1);
+      }
+    }
+    throw new IllegalArgumentException("Truncated varint");
+  }
+
+  /**
+   * Get the number of cells in a BOARD or PLAYER_BOARD frame
+   * @param frame The frame
+   * @return The number of cells
+   */
+  public static int cellCount(byte[] frame) {
+    return frame[cellsOffset(frame)] & 0xff;
+  }
+
+  /**
+   * Decode the cells of a BOARD or PLAYER_BOARD frame
+   * @param frame The frame
+   * @param cells Where to write the cell values, which must have room for them
+   * @return The number of cells
+   */
+  public static int decodeBoard(byte[] frame, int[] cells) {
+    int offset = cellsOffset(frame);
+    int count = frame[offset] & 0xff;
+    if (count > cells.length) {
+      throw new IllegalArgumentException("Board of " + count + " cells doesn't fit in " + cells.length);
+    }
+    for (int i = 0; i < count; i++) {
+      int packed = frame[offset + 1 + (i >> 1)];
+      cells[i] = (i & 1) == 0 ? packed & 0x0f : (packed >> 4) & 0x0f;
+    }
+    return count;
+  }
+
+  /**
+   * Decode the player a PLAYER_BOARD frame is from
+   * @param frame The frame
+   * @return The player's name
+   */
+  public static String decodePlayer(byte[] frame) {
+    return new String(frame, 2, frame[1] & 0xff, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Decode a PLAYER_BOARD_DELTA frame
+   * @param frame The frame
+   * @return The delta, with its changes in the text form BoardCodec applies
+   */
+  public static BoardDelta decodeBoardDelta(byte[] frame) {
+    int offset = 2 + (frame[1] & 0xff);
+    var changes = new StringBuilder();
+    appendChanges(frame, offset + 1, changes);
+    return new BoardDelta(decodePlayer(frame), frame[offset] & 0xff, changes.toString());
+  }
+
+  /**
+   * Write the changes of a delta frame as text, each as the cell index in base 36 and the value in hex
+   * @param frame The frame
+   * @param offset The index of the number of changed cells
+   * @param out Where to write the changes
+   */
+  private static void appendChanges(byte[] frame, int offset, StringBuilder out) {
+    int count = frame[offset] & 0xff;
+    int values = offset + 1 + count;
+    if (values + (count + 1) / 2 > frame.length) {
+      throw new IllegalArgumentException("Truncated board delta");
+    }
+    for (int i = 0; i < count; i++) {
+      int packed = frame[values + (i >> 1)];
+      int value = (i & 1) == 0 ? packed & 0x0f : (packed >> 4) & 0x0f;
+      out.append(Character.forDigit(frame[offset + 1 + i] & 0xff, BoardCodec.MAX_DELTA_CELLS))
+          .append(Character.forDigit(value, 16));
+    }
+  }
+
+  /**
+   * Get the index of the cell count in a BOARD or PLAYER_BOARD frame
+   */
+  private static int cellsOffset(byte[] frame) {
+    return frame[0] == PLAYER_BOARD ? 2 + (frame[1] & 0xff) : 1;
+  }
+
+  /**
+   * Encode a frame holding a single varint
+   */
+  private static byte[] encodeInt(byte type, int value) {
+    int zigzag = (value << 1) ^ (value >> 31);
+    var frame = new byte[1 + varintLength(zigzag)];
+    frame[0] = type;
+    int i = 1;
+    while ((zigzag & ~0x7f) != 0) {
+      frame[i++] = (byte) ((zigzag & 0x7f) | 0x80);
+      zigzag >>>= 7;
+    }
+    frame[i] = (byte) zigzag;
+    return frame;
+  }
+
+  /**
+   * Encode a BOARD message, with or without a player name
+   */
+  private static byte[] encodeBoard(String message) {
+    int start = 6;
+    int colon = message.indexOf(':', start);
+    byte[] name = colon < 0 ? new byte[0] : message.substring(start, colon).getBytes(StandardCharsets.UTF_8);
+    if (name.length > 255) {
+      return null;
+    }
+    int cellsStart = colon < 0 ? start : colon + 1;
+
+    int count = 0;
+    for (int i = cellsStart; i < message.length(); i++) {
+      if (message.charAt(i) != ' ' && (i == cellsStart || message.charAt(i - 1) == ' ')) {
+        count++;
+      }
+    }
+    if (count > MAX_CELLS) {
+      return null;
+    }
+
+    int header = colon < 0 ? 1 : 2 + name.length;
+    var frame = new byte[header + 1 + (count + 1) / 2];
+    frame[0] = colon < 0 ? BOARD : PLAYER_BOARD;
+    if (colon >= 0) {
+      frame[1] = (byte) name.length;
+      System.arraycopy(name, 0, frame, 2, name.length);
+    }
+    frame[header] = (byte) count;
+
+    int cell = 0;
+    int i = cellsStart;
+    while (cell < count) {
+      while (message.charAt(i) == ' ') {
+        i++;
+      }
+      int end = message.indexOf(' ', i);
+      if (end < 0) {
+        end = message.length();
+      }
+      int value = Integer.parseInt(message, i, end, 10);
+      if (value < 0 || value > MAX_CELL_VALUE) {
+        return null;
+      }
+      frame[header + 1 + (cell >> 1)] |= (byte) ((cell & 1) == 0 ? value : value << 4);
+      cell++;
+      i = end;
+    }
+    return frame;
+  }
+
+  /**
+   * Encode a BOARDDELTA message, either as sent with a space after the sequence number or as relayed
+   * with the player's name and colons
+   */
+  private static byte[] encodeBoardDelta(String message) {
+    int start = 11;
+    int colon = message.indexOf(':', start);
+    byte[] name = colon < 0 ? new byte[0] : message.substring(start, colon).getBytes(StandardCharsets.UTF_8);
+    if (name.length > 255) {
+      return null;
+    }
+    int sequenceStart = colon < 0 ? start : colon + 1;
+    int sequenceEnd = message.indexOf(colon < 0 ? ' ' : ':', sequenceStart);
+    if (sequenceEnd < 0) {
+      return null;
+    }
+    int sequence = Integer.parseInt(message, sequenceStart, sequenceEnd, 10);
+    int changesStart = sequenceEnd + 1;
+    int count = (message.length() - changesStart) / 2;
+    if (sequence < 0 || sequence > 255 || count > MAX_CELLS || (message.length() - changesStart) % 2 != 0) {
+      return null;
+    }
+
+    int header = colon < 0 ? 1 : 2 + name.length;
+    var frame = new byte[header + 2 + count + (count + 1) / 2];
+    frame[0] = colon < 0 ? BOARD_DELTA : PLAYER_BOARD_DELTA;
+    if (colon >= 0) {
+      frame[1] = (byte) name.length;
+      System.arraycopy(name, 0, frame, 2, name.length);
+    }
+    frame[header] = (byte) sequence;
+    frame[header + 1] = (byte) count;
+    int values = header + 2 + count;
+    for (int i = 0; i < count; i++) {
+      int cell = Character.digit(message.charAt(changesStart + 2 * i), BoardCodec.MAX_DELTA_CELLS);
+      int value = Character.digit(message.charAt(changesStart + 2 * i + 1), 16);
+      if (cell < 0 || value < 0) {
+        return null;
+      }
+      frame[header + 2 + i] = (byte) cell;
+      frame[values + (i >> 1)] |= (byte) ((i & 1) == 0 ? value : value << 4);
+    }
+    return frame;
+  }
+
+  /**
+   * Get the number of bytes a varint takes
+   */
+  private static int varintLength(int value) {
+    int length = 1;
+    while ((value & ~0x7f) != 0) {
+      value >>>= 7;
+      length++;
+    }
+    return length;
+  }
+}
@@ -0,0 +1,105 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * Encodes and decodes boards for BOARD and BOARDDELTA messages.
+ * A keyframe lists every cell value separated by spaces, as the server expects. A delta lists only
+ * the changed cells, each as two characters: the cell index in base 36 and the new value in hex.
+ */
+public final class BoardCodec {
+
+  /**
+   * The most cells a board can have for its changes to be written as a delta
+   */
+  public static final int MAX_DELTA_CELLS = Character.MAX_RADIX;
+
+  /**
+   * The largest cell value that can be written in a delta
+   */
+  public static final int MAX_DELTA_VALUE = 15;
+
+  private BoardCodec() {
+  }
+
+  /**
+   * Write every cell of a board
+   * @param board The cell values
+   * @param out Where to write the cells
+   */
+  public static void encodeKeyframe(int[] board, StringBuilder out) {
+    for (int i = 0; i < board.length; i++) {
+      if (i > 0) {
+        out.append(' ');
+      }
+      out.append(board[i]);
+    }
+  }
+
+  /**
+   * Write the cells that differ between two boards
+   * @param previous The board the receiver already has
+   * @param board The new board
+   * @param out Where to write the changes
+   * @return The number of cells written, or -1 if the changes can't be written as a delta
+   */
+  public static int encodeDelta(int[] previous, int[] board, StringBuilder out) {
+    if (board.length > MAX_DELTA_CELLS || previous.length != board.length) {
+      return -1;
+    }
+    int changed = 0;
+    for (int i = 0; i < board.length; i++) {
+      if (board[i] != previous[i]) {
+        if (board[i] < 0 || board[i] > MAX_DELTA_VALUE) {
+          return -1;
+        }
+        out.append(Character.forDigit(i, MAX_DELTA_CELLS))
+            .append(Character.forDigit(board[i], 16));
+        changed++;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Read every cell of a board
+   * @param message The text holding the cells
+   * @param from The index the cells start at
+   * @param to The index the cells end at
+   * @param board The board to read the cells into
+   */
+  public static void decodeKeyframe(String message, int from, int to, int[] board) {
+    int cell = 0;
+    int start = from;
+    for (int i = from; i <= to && cell < board.length; i++) {
+      if (i == to || message.charAt(i) == ' ') {
+        if (i > start) {
+          board[cell++] = Integer.parseInt(message, start, i, 10);
+        }
+        start = i + 1;
+      }
+    }
+    if (cell != board.length) {
+      throw new IllegalArgumentException("Expected " + board.length + " cells but got " + cell);
+    }
+  }
+
+  /**
+   * Apply written changes to a board
+   * @param changes The text holding the changes
+   * @param from The index the changes start at
+   * @param to The index the changes end at
+   * @param board The board to apply the changes to
+   */
+  public static void applyDelta(String changes, int from, int to, int[] board) {
+    if ((to - from) % 2 != 0) {
+      throw new IllegalArgumentException("Incomplete board delta");
+    }
+    for (int i = from; i < to; i += 2) {
+      int cell = Character.digit(changes.charAt(i), MAX_DELTA_CELLS);
+      int value = Character.digit(changes.charAt(i + 1), 16);
+      if (cell < 0 || cell >= board.length || value < 0) {
+        throw new IllegalArgumentException("Invalid board delta " + changes.substring(i, i + 2));
+      }
+      board[cell] = value;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rebuilds other players' boards from the BOARD keyframes and BOARDDELTA changes the server sends.
+ * If a delta arrives out of sequence the player's board is treated as unknown until their next
+ * keyframe.
+ */
+public class BoardDecoder {
+
+  /**
+   * What we know of one player's board
+   */
+  private static final class PlayerBoard {
+
+    /**
+     * The cell values
+     */
+    private final int[] cells;
+
+    /**
+     * The sequence number of the last delta applied, or -1 if the board is out of sync
+     */
+    private int sequence = -1;
+
+    /**
+     * Create an unknown board
+     * @param size The number of cells
+     */
+    private PlayerBoard(int size) {
+      this.cells = new int[size];
+    }
+  }
+
+  /**
+   * The number of cells on each board
+   */
+  private final int size;
+
+  /**
+   * The board of each player we have heard from
+   */
+  private final Map<String, PlayerBoard> boards = new HashMap<>();
+
+  /**
+   * Create a new decoder
+   * @param size The number of cells on each board
+   */
+  public BoardDecoder(int size) {
+    this.size = size;
+  }
+
+  /**
+   * Apply a keyframe
+   * @param update The keyframe
+   * @return The player's board, which is updated in place by later calls
+   */
+  public int[] apply(BoardUpdate update) {
+    var board = boards.computeIfAbsent(update.player(), p -> new PlayerBoard(size));
+    if (update.cells().length != size) {
+      board.sequence = -1;
+      return null;
+    }
+    System.arraycopy(update.cells(), 0, board.cells, 0, size);
+    board.sequence = 0;
+    return board.cells;
+  }
+
+  /**
+   * Apply a delta
+   * @param delta The delta
+   * @return The player's board, or null if it is out of sync and must wait for a keyframe
+   */
+  public int[] apply(BoardDelta delta) {
+    var board = boards.computeIfAbsent(delta.player(), p -> new PlayerBoard(size));
+    if (board.sequence < 0 || delta.sequence() != board.sequence + 1) {
+      board.sequence = -1;
+      return null;
+    }
+    try {
+      BoardCodec.applyDelta(delta.changes(), 0, delta.changes().length(), board.cells);
+    } catch (IllegalArgumentException e) {
+      board.sequence = -1;
+      return null;
+    }
+    board.sequence = delta.sequence();
+    return board.cells;
+  }
+
+  /**
+   * Get what we know of a player's board
+   * @param player The name of the player
+   * @return The player's board, or null if it is unknown or out of sync
+   */
+  public int[] get(String player) {
+    var board = boards.get(player);
+    return board == null || board.sequence < 0 ? null : board.cells;
+  }
+
+  /**
+   * Forget a player's board
+   * @param player The name of the player
+   */
+  public void remove(String player) {
+    boards.remove(player);
+  }
+}
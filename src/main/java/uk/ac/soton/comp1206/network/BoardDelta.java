@@ -0,0 +1,12 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * The changed cells of another player's board, as sent by the server in a BOARDDELTA message
+ *
+ * @param player The name of the player the board belongs to
+ * @param sequence The number of this delta since the player's last keyframe, starting at 1
+ * @param changes The changed cells, encoded by BoardCodec
+ */
+public record BoardDelta(String player, int sequence, String changes) {
+
+}
@@ -0,0 +1,84 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.Arrays;
+
+/**
+ * Works out what needs to be sent to keep other players' view of our board up to date. Nothing is
+ * sent while the board is unchanged. When deltas are enabled only the changed cells are sent, with a
+ * full keyframe every so often so that anyone who missed a delta can resynchronise.
+ */
+public class BoardSync {
+
+  /**
+   * The board as last sent, which we treat as what the other players have
+   */
+  private final int[] sent;
+
+  /**
+   * How many deltas to send between keyframes
+   */
+  private final int keyframeInterval;
+
+  /**
+   * True if deltas may be sent
+   */
+  private final boolean deltas;
+
+  /**
+   * The sequence number of the last delta sent since the last keyframe
+   */
+  private int sequence;
+
+  /**
+   * True once a keyframe has been sent
+   */
+  private boolean synced = false;
+
+  /**
+   * Create a new board sync
+   * @param cells The number of cells on the board
+   * @param keyframeInterval How many deltas to send between keyframes
+   * @param deltas True if the server accepts BOARDDELTA messages
+   */
+  public BoardSync(int cells, int keyframeInterval, boolean deltas) {
+    this.sent = new int[cells];
+    this.keyframeInterval = keyframeInterval;
+    this.deltas = deltas;
+  }
+
+  /**
+   * Get the message to send for the current state of the board
+   * @param board The cell values of the board
+   * @return The BOARD or BOARDDELTA message to send, or null if the board hasn't changed
+   */
+  public String update(int[] board) {
+    if (synced && Arrays.equals(sent, board)) {
+      return null;
+    }
+
+    if (deltas && synced && sequence < keyframeInterval) {
+      var message = new StringBuilder("BOARDDELTA ").append(sequence + 1).append(' ');
+      if (BoardCodec.encodeDelta(sent, board, message) >= 0) {
+        sequence++;
+        System.arraycopy(board, 0, sent, 0, sent.length);
+        return message.toString();
+      }
+    }
+
+    return keyframe(board);
+  }
+
+  /**
+   * Get a full BOARD message for the board, whether or not it has changed, and restart the deltas
+   * @param board The cell values of the board
+   * @return The BOARD message to send
+   */
+  public String keyframe(int[] board) {
+    var message = new StringBuilder("BOARD ");
+    BoardCodec.encodeKeyframe(board, message);
+    System.arraycopy(board, 0, sent, 0, sent.length);
+    sequence = 0;
+    synced = true;
+    return message.toString();
+  }
+}
@@ -0,0 +1,11 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * Every cell of another player's board, as sent by the server in a BOARD message
+ *
+ * @param player The name of the player the board belongs to
+ * @param cells The value of each cell
+ */
+public record BoardUpdate(String player, int[] cells) {
+
+}
@@ -0,0 +1,99 @@
+package uk.ac.soton.comp1206.network;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads back the frames in a capture file written by CaptureWriter, in order.
+ */
+public class CaptureReader implements Closeable {
+
+  /**
+   * The capture file
+   */
+  private final DataInputStream in;
+
+  /**
+   * The wall-clock time the capture started, in milliseconds since the epoch
+   */
+  private final long startMillis;
+
+  /**
+   * The time of the last frame read, in nanoseconds since the capture started
+   */
+  private long nanos;
+
+  /**
+   * Open a capture file
+   * @param file The file to read
+   * @throws IOException If the file can't be read or isn't a capture
+   */
+  public CaptureReader(Path file) throws IOException {
+    in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+    if (in.readInt() != CaptureWriter.MAGIC) {
+      in.close();
+      throw new IOException(file + " is not a capture file");
+    }
+    int version = in.readUnsignedByte();
+    if (version != CaptureWriter.VERSION) {
+      in.close();
+      throw new IOException("Unsupported capture version " + version);
+    }
+    startMillis = in.readLong();
+  }
+
+  /**
+   * Read the next frame
+   * @return The frame, or null at the end of the capture. A frame cut off by a crash counts as the end
+   * @throws IOException If the file can't be read
+   */
+  public CapturedFrame next() throws IOException {
+    try {
+      int flags = in.readUnsignedByte();
+      nanos += readVarLong();
+      var payload = new byte[(int) readVarLong()];
+      in.readFully(payload);
+      boolean inbound = (flags & CaptureWriter.INBOUND) != 0;
+      if ((flags & CaptureWriter.BINARY) != 0) {
+        return new CapturedFrame(inbound, nanos, null, payload);
+      }
+      return new CapturedFrame(inbound, nanos, new String(payload, StandardCharsets.UTF_8), null);
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Get the wall-clock time the capture started
+   * @return The time in milliseconds since the epoch
+   */
+  public long getStartMillis() {
+    return startMillis;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /**
+   * Read a number written seven bits at a time
+   */
+  private long readVarLong() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in capture");
+  }
+}
@@ -0,0 +1,151 @@
+package uk.ac.soton.comp1206.network;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Records every frame sent and received into a compact capture file, so a session can be replayed
+ * later with a ReplayTransport. The file starts with a magic number, a version and the wall-clock
+ * time the capture started. Each frame is then a flags byte (inbound, binary), the nanoseconds since
+ * the previous frame as a varint, the payload length as a varint and the payload, with text as UTF-8.
+ */
+public class CaptureWriter implements Closeable {
+
+  private static final Logger logger = LogManager.getLogger(CaptureWriter.class);
+
+  /**
+   * The first bytes of every capture file
+   */
+  static final int MAGIC = 0x54434150;
+
+  /**
+   * The version of the file format
+   */
+  static final int VERSION = 1;
+
+  /**
+   * Set in the flags of a frame received from the server
+   */
+  static final int INBOUND = 1;
+
+  /**
+   * Set in the flags of a binary frame
+   */
+  static final int BINARY = 2;
+
+  /**
+   * The capture file
+   */
+  private final DataOutputStream out;
+
+  /**
+   * The value of System.nanoTime() of the previous frame
+   */
+  private long lastNanos;
+
+  /**
+   * The number of frames written
+   */
+  private long frames;
+
+  /**
+   * True once the capture has failed or been closed
+   */
+  private boolean closed = false;
+
+  /**
+   * Create a capture file, replacing any that exists
+   * @param file The file to write
+   * @throws IOException If the file can't be created
+   */
+  public CaptureWriter(Path file) throws IOException {
+    out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+    out.writeLong(System.currentTimeMillis());
+    lastNanos = System.nanoTime();
+    logger.info("Capturing network traffic to {}", file);
+  }
+
+  /**
+   * Record a text message
+   * @param inbound True if it came from the server
+   * @param message The message
+   */
+  public void text(boolean inbound, String message) {
+    write(inbound ? INBOUND : 0, message.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Record a binary frame
+   * @param inbound True if it came from the server
+   * @param frame The frame
+   */
+  public void binary(boolean inbound, byte[] frame) {
+    write((inbound ? INBOUND : 0) | BINARY, frame);
+  }
+
+  /**
+   * Write a frame, stopping the capture if the file can't be written
+   */
+  private synchronized void write(int flags, byte[] payload) {
+    if (closed) {
+      return;
+    }
+    long now = System.nanoTime();
+    try {
+      out.writeByte(flags);
+      writeVarLong(now - lastNanos);
+      writeVarLong(payload.length);
+      out.write(payload);
+      lastNanos = now;
+      frames++;
+    } catch (IOException e) {
+      logger.error("Stopping capture after {} frames: {}", frames, e.getMessage());
+      close();
+    }
+  }
+
+  /**
+   * Write a non-negative number seven bits at a time
+   */
+  private void writeVarLong(long value) throws IOException {
+    while ((value & ~0x7fL) != 0) {
+      out.writeByte((int) (value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  /**
+   * Get the number of frames written
+   * @return The number of frames
+   */
+  public synchronized long getFrames() {
+    return frames;
+  }
+
+  /**
+   * Finish the capture, writing out anything buffered
+   */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      out.close();
+      logger.info("Capture finished with {} frames", frames);
+    } catch (IOException e) {
+      logger.error("Unable to finish capture: {}", e.getMessage());
+    }
+  }
+}
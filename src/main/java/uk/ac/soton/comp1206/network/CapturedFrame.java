@@ -0,0 +1,13 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * A frame read back from a capture file
+ *
+ * @param inbound True if the frame came from the server, false if it was sent to it
+ * @param nanos The time of the frame, in nanoseconds since the capture started
+ * @param text The text message, or null for a binary frame
+ * @param binary The binary frame, or null for a text message
+ */
+public record CapturedFrame(boolean inbound, long nanos, String text, byte[] binary) {
+
+}
@@ -0,0 +1,19 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * A chat message sent to a channel, as sent by the server in a MSG message
+ *
+ * @param sender The name of the player who sent the message
+ * @param text The text of the message
+ */
+public record ChatMessage(String sender, String text) {
+
+  /**
+   * Get the message in the form it is displayed in the chat
+   * @return The sender and text separated by a colon
+   */
+  @Override
+  public String toString() {
+    return sender + ":" + text;
+  }
+}
@@ -0,0 +1,257 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A command the TetrECS server can send, along with how to parse its payload. Payloads are parsed
+ * in a single pass over the message from the offset just after the command, without splitting.
+ *
+ * @param <T> The type the payload is parsed into
+ */
+public final class Command<T> {
+
+  /**
+   * Parses the payload of a message
+   *
+   * @param <T> The type the payload is parsed into
+   */
+  @FunctionalInterface
+  public interface Parser<T> {
+
+    /**
+     * Parse the payload of a message
+     * @param message The whole message
+     * @param offset The index the payload starts at
+     * @return The parsed payload
+     */
+    T parse(String message, int offset);
+  }
+
+  /**
+   * Every command, in the order they were declared
+   */
+  private static final List<Command<?>> VALUES = new ArrayList<>();
+
+  public static final Command<Integer> PIECE = new Command<>("PIECE", Command::parseInt);
+  public static final Command<List<PlayerScore>> SCORES = new Command<>("SCORES", Command::parseScores, true);
+  public static final Command<List<ScoreEntry>> HISCORES = new Command<>("HISCORES", Command::parseHiScores);
+  public static final Command<List<String>> CHANNELS = new Command<>("CHANNELS", Command::parseLines, true);
+  public static final Command<List<String>> USERS = new Command<>("USERS", Command::parseLines, true);
+  public static final Command<BoardUpdate> BOARD = new Command<>("BOARD", Command::parseBoard);
+  public static final Command<BoardDelta> BOARDDELTA = new Command<>("BOARDDELTA", Command::parseBoardDelta);
+  public static final Command<ChatMessage> MSG = new Command<>("MSG", Command::parseChat);
+  public static final Command<String> JOIN = new Command<>("JOIN", Command::parseText);
+  public static final Command<String> PARTED = new Command<>("PARTED", Command::parseText);
+  public static final Command<String> NICK = new Command<>("NICK", Command::parseText);
+  public static final Command<String> HOST = new Command<>("HOST", Command::parseText);
+  public static final Command<String> START = new Command<>("START", Command::parseText);
+  public static final Command<String> ERROR = new Command<>("ERROR", Command::parseText);
+
+  /**
+   * The name of the command, as it appears at the start of a message
+   */
+  private final String name;
+
+  /**
+   * The parser for the payload
+   */
+  private final Parser<T> parser;
+
+  /**
+   * True if each message with this command is a complete snapshot that replaces the previous one
+   */
+  private final boolean snapshot;
+
+  /**
+   * The position of this command in VALUES
+   */
+  private final int ordinal;
+
+  /**
+   * Create and register a new command whose messages must each be handled
+   * @param name The name of the command
+   * @param parser The parser for the payload
+   */
+  private Command(String name, Parser<T> parser) {
+    this(name, parser, false);
+  }
+
+  /**
+   * Create and register a new command
+   * @param name The name of the command
+   * @param parser The parser for the payload
+   * @param snapshot True if each message replaces the previous one
+   */
+  private Command(String name, Parser<T> parser, boolean snapshot) {
+    this.name = name;
+    this.parser = parser;
+    this.snapshot = snapshot;
+    this.ordinal = VALUES.size();
+    VALUES.add(this);
+  }
+
+  /**
+   * Get every command
+   * @return The commands, in declaration order
+   */
+  public static List<Command<?>> values() {
+    return Collections.unmodifiableList(VALUES);
+  }
+
+  /**
+   * Get the name of the command
+   * @return The name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Check whether each message with this command is a complete snapshot, so that only the latest
+   * one needs to be handled
+   * @return True if newer messages supersede older ones
+   */
+  public boolean isSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Get the position of the command among all commands
+   * @return The ordinal
+   */
+  public int ordinal() {
+    return ordinal;
+  }
+
+  /**
+   * Parse the payload of a message with this command
+   * @param message The whole message
+   * @param offset The index the payload starts at
+   * @return The parsed payload
+   */
+  public T parse(String message, int offset) {
+    return parser.parse(message, Math.min(offset, message.length()));
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  /**
+   * Parse a single integer payload
+   */
+  private static Integer parseInt(String message, int offset) {
+    return Integer.parseInt(message, offset, endOfLine(message, offset), 10);
+  }
+
+  /**
+   * Parse a payload that is the rest of the message
+   */
+  private static String parseText(String message, int offset) {
+    return message.substring(offset);
+  }
+
+  /**
+   * Parse a payload of one item per line
+   */
+  private static List<String> parseLines(String message, int offset) {
+    var lines = new ArrayList<String>();
+    while (offset < message.length()) {
+      int end = endOfLine(message, offset);
+      if (end > offset) {
+        lines.add(message.substring(offset, end));
+      }
+      offset = end + 1;
+    }
+    return lines;
+  }
+
+  /**
+   * Parse a payload of name:score lines
+   */
+  private static List<ScoreEntry> parseHiScores(String message, int offset) {
+    var scores = new ArrayList<ScoreEntry>();
+    while (offset < message.length()) {
+      int end = endOfLine(message, offset);
+      int colon = message.indexOf(':', offset);
+      if (colon > offset && colon < end) {
+        scores.add(new ScoreEntry(message.substring(offset, colon),
+            Integer.parseInt(message, colon + 1, end, 10)));
+      }
+      offset = end + 1;
+    }
+    return scores;
+  }
+
+  /**
+   * Parse a payload of name:score:lives lines
+   */
+  private static List<PlayerScore> parseScores(String message, int offset) {
+    var scores = new ArrayList<PlayerScore>();
+    while (offset < message.length()) {
+      int end = endOfLine(message, offset);
+      int first = message.indexOf(':', offset);
+      int second = first < 0 ? -1 : message.indexOf(':', first + 1);
+      if (first > offset && second > first && second < end) {
+        scores.add(new PlayerScore(message.substring(offset, first),
+            Integer.parseInt(message, first + 1, second, 10),
+            message.substring(second + 1, end)));
+      }
+      offset = end + 1;
+    }
+    return scores;
+  }
+
+  /**
+   * Parse a payload of the form sender:text
+   */
+  private static ChatMessage parseChat(String message, int offset) {
+    int colon = message.indexOf(':', offset);
+    if (colon < 0) {
+      return new ChatMessage("", message.substring(offset));
+    }
+    return new ChatMessage(message.substring(offset, colon), message.substring(colon + 1));
+  }
+
+  /**
+   * Parse a payload of the form player:cell cell cell...
+   */
+  private static BoardUpdate parseBoard(String message, int offset) {
+    int colon = message.indexOf(':', offset);
+    int end = endOfLine(message, offset);
+    int cells = 0;
+    boolean inCell = false;
+    for (int i = colon + 1; i < end; i++) {
+      boolean space = message.charAt(i) == ' ';
+      if (!space && !inCell) {
+        cells++;
+      }
+      inCell = !space;
+    }
+    var board = new int[cells];
+    BoardCodec.decodeKeyframe(message, colon + 1, end, board);
+    return new BoardUpdate(message.substring(offset, colon), board);
+  }
+
+  /**
+   * Parse a payload of the form player:sequence:changes
+   */
+  private static BoardDelta parseBoardDelta(String message, int offset) {
+    int first = message.indexOf(':', offset);
+    int second = message.indexOf(':', first + 1);
+    return new BoardDelta(message.substring(offset, first),
+        Integer.parseInt(message, first + 1, second, 10),
+        message.substring(second + 1, endOfLine(message, offset)));
+  }
+
+  /**
+   * Find the end of the line starting at the given offset
+   */
+  private static int endOfLine(String message, int offset) {
+    int end = message.indexOf('\n', offset);
+    return end < 0 ? message.length() : end;
+  }
+}
@@ -1,19 +1,23 @@
 package uk.ac.soton.comp1206.network;
 
-import com.neovisionaries.ws.client.WebSocket;
-import com.neovisionaries.ws.client.WebSocketAdapter;
-import com.neovisionaries.ws.client.WebSocketException;
-import com.neovisionaries.ws.client.WebSocketFactory;
-import com.neovisionaries.ws.client.WebSocketFrame;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
-import javafx.scene.control.Alert;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import javafx.beans.property.ReadOnlyObjectProperty;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.event.CommunicationsListener;
+import uk.ac.soton.comp1206.event.MessageListener;
+import uk.ac.soton.comp1206.jfr.MessageReceivedEvent;
+import uk.ac.soton.comp1206.jfr.MessageSentEvent;
 
 /**
- * Uses web sockets to talk to a web socket server and relays communication to attached listeners
+ * Uses a transport, normally a web socket, to talk to the server and relays communication to attached listeners.
+ * The connection is made in the background and re-established whenever it drops, with our channel
+ * and latest state restored on the server each time
  *
  * YOU DO NOT NEED TO WORRY ABOUT THIS CLASS! Leave it be :-)
  */
@@ -25,83 +29,339 @@ public class Communicator {
     /**
      * Attached communication listeners listening to messages on this Communicator. Each will be sent any messages.
      */
-    private final List<CommunicationsListener> handlers = new ArrayList<>();
+    private final List<CommunicationsListener> handlers = new CopyOnWriteArrayList<>();
 
-    private WebSocket ws = null;
+    /**
+     * Routes messages to listeners registered for a single command, parsing each message once
+     */
+    private final MessageDispatcher dispatcher = new MessageDispatcher();
 
     /**
-     * Create a new communicator to the given web socket server
+     * Messages received from the server waiting to be delivered to listeners
+     */
+    private final InboundQueue inbound;
+
+    /**
+     * Messages waiting to be written to the server
+     */
+    private final OutboundQueue outbound;
+
+    /**
+     * Delivers messages to listeners on the JavaFX Application Thread once per frame
+     */
+    private final PulseDelivery pulse = new PulseDelivery();
+
+    /**
+     * The listeners added since the scope was last renewed, normally those of the current scene
+     */
+    private volatile SubscriptionScope scope = new SubscriptionScope();
+
+    /**
+     * True if board deltas should be asked for on each connection
+     */
+    private volatile boolean deltasRequested = false;
+
+    /**
+     * True once the server has agreed to BOARDDELTA messages in place of full BOARD messages on the
+     * current connection
+     */
+    private volatile boolean boardDeltas = false;
+
+    /**
+     * True if binary frames should be asked for on each connection
+     */
+    private volatile boolean binaryRequested = false;
+
+    /**
+     * True once the server has agreed to binary frames on the current connection
+     */
+    private volatile boolean binaryFrames = false;
+
+    /**
+     * Records every frame sent and received, while capturing
+     */
+    private volatile CaptureWriter capture;
+
+    /**
+     * What needs restoring on the server after a reconnect, and messages sent while disconnected
+     */
+    private final Session session = new Session(256);
+
+    /**
+     * Round-trip times and traffic rates on the connection
+     */
+    private final NetworkMetrics metrics = new NetworkMetrics();
+
+    /**
+     * The connection to the server, which reconnects by itself when dropped
+     */
+    private final Connection connection;
+
+    /**
+     * Create a new communicator to the given web socket server. If delivery falls behind, the oldest
+     * received messages are dropped rather than stalling the socket reader
      *
      * @param server server to connect to
      */
     public Communicator(String server) {
+        this(() -> new WebSocketTransport(server));
+    }
+
+    /**
+     * Create a new communicator over the given kind of transport. If delivery falls behind, the oldest
+     * received messages are dropped rather than stalling the socket reader
+     *
+     * @param transports creates a new transport for each connection attempt
+     */
+    public Communicator(Supplier<Transport> transports) {
+        this(transports, 4096, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Create a new communicator to the given web socket server
+     *
+     * @param server server to connect to
+     * @param inboundCapacity the most received messages that can wait for delivery at once
+     * @param overflowPolicy what to do with a received message when the inbound queue is full
+     */
+    public Communicator(String server, int inboundCapacity, OverflowPolicy overflowPolicy) {
+        this(() -> new WebSocketTransport(server), inboundCapacity, overflowPolicy);
+    }
+
+    /**
+     * Create a new communicator over the given kind of transport
+     *
+     * @param transports creates a new transport for each connection attempt
+     * @param inboundCapacity the most received messages that can wait for delivery at once
+     * @param overflowPolicy what to do with a received message when the inbound queue is full
+     */
+    public Communicator(Supplier<Transport> transports, int inboundCapacity, OverflowPolicy overflowPolicy) {
+        inbound = new InboundQueue(inboundCapacity, overflowPolicy, this::receive, this::receiveBinary);
+        outbound = new OutboundQueue(1024, OverflowPolicy.DROP_NEWEST, 30, this::write);
+
+        connection = new Connection(transports, 15000, 45000, this::arrived, this::arrivedBinary, this::resume, metrics);
+        connection.start();
+
+        metrics.gauge("inbound depth", inbound::getDepth);
+        metrics.gauge("inbound dropped", inbound::getDropped);
+        metrics.gauge("outbound depth", outbound::getDepth);
+        metrics.gauge("outbound coalesced", outbound::getCoalesced);
+        metrics.gauge("outbound dropped", outbound::getDropped);
+        metrics.gauge("reconnects", connection::getReconnects);
+    }
+
+    /** Send a message to the server. The message is queued and written on the writer thread, and a SCORE,
+     * LIVES or BOARD message replaces any earlier one that has not been written yet
+     *
+     * @param message Message to send
+     */
+    public void send(String message) {
+        outbound.offer(message);
+    }
 
+    /** Write a batch of messages to the socket with a single flush. Called on the writer thread
+     *
+     * @param batch Messages to write, oldest first
+     * @return the number of bytes sent
+     */
+    private long write(List<String> batch) {
+        long bytes = 0;
+        connection.hold();
         try {
-            var socketFactory = new WebSocketFactory();
-
-            //Connect to the server
-            ws = socketFactory.createSocket(server);
-            ws.connect();
-            logger.info("Connected to " + server);
-
-          //When a message is received, call the reception method
-            ws.addListener(new WebSocketAdapter() {
-                @Override
-                public void onTextMessage(WebSocket websocket, String message) throws Exception {
-                    Communicator.this.receive(websocket, message);
-                }
-                @Override
-                public void onPingFrame(WebSocket webSocket, WebSocketFrame webSocketFrame) throws Exception {
-                    logger.info("Ping? Pong!");
-                }
-            });
-
-            //Error handling
-            ws.addListener(new WebSocketAdapter() {
-                @Override
-                public void onTextMessage(WebSocket websocket, String message) throws Exception {
-                    if(message.startsWith("ERROR")) {
-                        logger.error(message);
-                    }
-                }
-                @Override
-                public void handleCallbackError(WebSocket webSocket, Throwable throwable) throws Exception {
-                    logger.error("Callback Error:" + throwable.getMessage());
-                    throwable.printStackTrace();
+            for (String message : batch) {
+                bytes += write(message);
+            }
+        } finally {
+            connection.flush();
+        }
+        return bytes;
+    }
+
+    /** Write a message to the socket, or keep it for later if disconnected. Called on the writer thread
+     *
+     * @param message Message to write
+     * @return the number of bytes sent, which is 0 if the message was kept for later
+     */
+    private int write(String message) {
+        var event = new MessageSentEvent();
+        event.begin();
+        byte[] frame;
+        int size = 0;
+        synchronized (session) {
+            session.sent(message);
+            frame = binaryFrames ? BinaryCodec.encode(message) : null;
+            if (frame != null && connection.sendBinary(frame)) {
+                logger.debug("Sending binary message: {}", message);
+                size = frame.length;
+                metrics.sent(message, size);
+                var writer = capture;
+                if (writer != null) {
+                    writer.binary(false, frame);
                 }
-                @Override
-                public void onError(WebSocket webSocket, WebSocketException e) throws Exception {
-                    logger.error("Error:" + e.getMessage());
-                    e.printStackTrace();
+            } else if (frame == null && connection.sendText(message)) {
+                logger.debug("Sending message: {}", message);
+                size = message.getBytes(StandardCharsets.UTF_8).length;
+                metrics.sent(message, size);
+                captureSent(message);
+            } else {
+                logger.debug("Holding message until reconnected: {}", message);
+                session.hold(message);
+            }
+        }
+        if (event.shouldCommit()) {
+            int space = message.indexOf(' ');
+            event.command = space < 0 ? message : message.substring(0, space);
+            event.size = frame != null ? frame.length : message.length();
+            event.binary = frame != null;
+            event.commit();
+        }
+        return size;
+    }
+
+    /** Restore our nickname, channel, score and lives on the server and send anything held while
+     * disconnected, then let the writer send directly again. Called on the connection thread each time a
+     * connection is made
+     */
+    private void resume() {
+        synchronized (session) {
+            binaryFrames = false;
+            boardDeltas = false;
+            if (binaryRequested && connection.sendDirect("BINARY")) {
+                captureSent("BINARY");
+            }
+            if (deltasRequested && connection.sendDirect("DELTAS")) {
+                captureSent("DELTAS");
+            }
+            for (String message : session.replay()) {
+                logger.debug("Replaying message: {}", message);
+                if (connection.sendDirect(message)) {
+                    metrics.sent(message);
+                    captureSent(message);
                 }
-            });
+            }
+            connection.markConnected();
+        }
+    }
 
-        } catch (Exception e){
-            logger.error("Socket error: " + e.getMessage());
-            e.printStackTrace();
+    /** Record a text message sent to the server, if capturing
+     *
+     * @param message the message sent
+     */
+    private void captureSent(String message) {
+        var writer = capture;
+        if (writer != null) {
+            writer.text(false, message);
+        }
+    }
 
-            Alert error = new Alert(Alert.AlertType.ERROR,"Unable to communicate with the TetrECS server\n\n" + e.getMessage() + "\n\nPlease ensure you are connected to the VPN");
-            error.showAndWait();
-            System.exit(1);
+    /** Record a message arriving from the server, if capturing, and queue it for delivery. Called on the
+     * socket reader thread, so it is timestamped as it arrives
+     *
+     * @param message the message that arrived
+     */
+    private void arrived(String message) {
+        var writer = capture;
+        if (writer != null) {
+            writer.text(true, message);
         }
+        inbound.offer(message);
     }
 
-    /** Send a message to the server
+    /** Record a binary frame arriving from the server, if capturing, and queue it for delivery
      *
-     * @param message Message to send
+     * @param frame the frame that arrived
      */
-    public void send(String message) {
-        logger.info("Sending message: " + message);
+    private void arrivedBinary(byte[] frame) {
+        var writer = capture;
+        if (writer != null) {
+            writer.binary(true, frame);
+        }
+        inbound.offerBinary(frame);
+    }
+
+    /**
+     * Start recording every frame sent and received to a capture file, which a ReplayTransport can play
+     * back. Any capture already running is finished first
+     * @param file the capture file to write
+     * @throws IOException if the file can't be created
+     */
+    public void startCapture(Path file) throws IOException {
+        var previous = capture;
+        capture = new CaptureWriter(file);
+        if (previous != null) {
+            previous.close();
+        }
+    }
 
-        ws.sendText(message);
+    /**
+     * Stop capturing and finish the capture file, if capturing
+     */
+    public void stopCapture() {
+        var writer = capture;
+        capture = null;
+        if (writer != null) {
+            writer.close();
+        }
     }
 
     /**
-     * Add a new listener to receive messages from the server
+     * Add a new listener to receive messages from the server. The listener belongs to the current scope
      * @param listener the listener to add
+     * @return a subscription that removes the listener when cancelled
      */
-    public void addListener(CommunicationsListener listener) {
+    public Subscription addListener(CommunicationsListener listener) {
         this.handlers.add(listener);
+        Subscription subscription = () -> this.handlers.remove(listener);
+        scope.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Add a new listener to receive the parsed payload of messages with the given command. The listener
+     * belongs to the current scope
+     * @param command the command to listen for
+     * @param listener the listener to add
+     * @param <T> the type of the payload
+     * @return a subscription that removes the listener when cancelled
+     */
+    public <T> Subscription addListener(Command<T> command, MessageListener<? super T> listener) {
+        Subscription subscription = dispatcher.addListener(command, listener);
+        scope.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Add a new listener to receive the parsed payload of messages with the given command, for as long as
+     * the game runs. The listener belongs to no scope, so it is kept when the scene changes
+     * @param command the command to listen for
+     * @param listener the listener to add
+     * @param <T> the type of the payload
+     * @return a subscription that removes the listener when cancelled
+     */
+    public <T> Subscription addLastingListener(Command<T> command, MessageListener<? super T> listener) {
+        return dispatcher.addListener(command, listener);
+    }
+
+    /**
+     * Add a new listener to receive the parsed payload of messages with the given command on the JavaFX
+     * Application Thread. Messages are handed over once per frame, and for snapshot commands only the
+     * latest message of each frame is. The listener belongs to the current scope
+     * @param command the command to listen for
+     * @param listener the listener to add
+     * @param <T> the type of the payload
+     * @return a subscription that removes the listener when cancelled
+     */
+    public <T> Subscription addFxListener(Command<T> command, MessageListener<? super T> listener) {
+        return addListener(command, pulse.wrap(command, listener));
+    }
+
+    /**
+     * Remove every listener added in the current scope and start a new one
+     */
+    public void renewScope() {
+        var previous = scope;
+        scope = new SubscriptionScope();
+        previous.dispose();
     }
 
     /**
@@ -109,19 +369,153 @@ public class Communicator {
      */
     public void clearListeners() {
         this.handlers.clear();
+        dispatcher.clearListeners();
     }
 
-    /** Receive a message from the server. Relay to any attached listeners
+    /**
+     * Get the state of the connection to the server, updated on the JavaFX Application Thread
+     * @return the connection state property
+     */
+    public ReadOnlyObjectProperty<ConnectionState> connectionStateProperty() {
+        return connection.stateProperty();
+    }
+
+    /**
+     * Get the connection to the server, for its metrics
+     * @return the connection
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Check whether the server has agreed to BOARDDELTA messages on the current connection
+     * @return true if board changes may be sent as deltas
+     */
+    public boolean isBoardDeltas() {
+        return boardDeltas;
+    }
+
+    /**
+     * Ask the server to accept BOARDDELTA messages in place of full BOARD messages, now and after every
+     * reconnect. Servers that don't support it keep getting full boards
+     */
+    public void requestBoardDeltas() {
+        if (deltasRequested) {
+            return;
+        }
+        deltasRequested = true;
+        if (connection.getState() == ConnectionState.CONNECTED) {
+            send("DELTAS");
+        }
+    }
+
+    /**
+     * Ask the server to carry PIECE, SCORE, LIVES, BOARD and BOARDDELTA messages in binary frames, now
+     * and after every reconnect. Servers that don't support it leave everything as text
+     */
+    public void requestBinaryFrames() {
+        if (binaryRequested) {
+            return;
+        }
+        binaryRequested = true;
+        if (connection.getState() == ConnectionState.CONNECTED) {
+            send("BINARY");
+        }
+    }
+
+    /**
+     * Check whether the server has agreed to binary frames on the current connection
+     * @return true if PIECE, SCORE, LIVES, BOARD and BOARDDELTA messages are sent as binary frames
+     */
+    public boolean isBinaryFrames() {
+        return binaryFrames;
+    }
+
+    /**
+     * Get the round-trip times and traffic rates on the connection
+     * @return the network metrics
+     */
+    public NetworkMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the delivery of messages to the JavaFX Application Thread, for its metrics
+     * @return the pulse delivery
+     */
+    public PulseDelivery getPulseDelivery() {
+        return pulse;
+    }
+
+    /**
+     * Get the queue of messages waiting to be written, for its metrics
+     * @return the outbound queue
+     */
+    public OutboundQueue getOutboundQueue() {
+        return outbound;
+    }
+
+    /**
+     * Get the queue of received messages waiting for delivery, for its metrics
+     * @return the inbound queue
+     */
+    public InboundQueue getInboundQueue() {
+        return inbound;
+    }
+
+    /** Receive a message from the server. Relay to any attached listeners. Called on the delivery thread
      *
-     * @param websocket the socket
      * @param message the message that was received
      */
-    private void receive(WebSocket websocket, String message) {
-        logger.info("Received: " + message);
+    private void receive(String message) {
+        var event = new MessageReceivedEvent();
+        event.begin();
+        logger.debug("Received: {}", message);
+        metrics.received(message);
+        session.received(message);
+        if (message.equals("BINARY")) {
+            logger.info("Server agreed to binary frames");
+            binaryFrames = true;
+        } else if (message.equals("DELTAS")) {
+            logger.info("Server agreed to board deltas");
+            boardDeltas = true;
+        }
 
         for(CommunicationsListener handler : handlers) {
             handler.receiveCommunication(message);
         }
+        dispatcher.dispatch(message);
+        if (event.shouldCommit()) {
+            int space = message.indexOf(' ');
+            event.command = space < 0 ? message : message.substring(0, space);
+            event.size = message.length();
+            event.commit();
+        }
+    }
+
+    /** Receive a binary frame from the server. Relay it to listeners for the command it stands for, and to
+     * any attached communication listeners as text. Called on the delivery thread
+     *
+     * @param frame the frame that was received
+     */
+    private void receiveBinary(byte[] frame) {
+        var event = new MessageReceivedEvent();
+        event.begin();
+        metrics.receivedBinary(frame);
+        if (!handlers.isEmpty()) {
+            String message = BinaryCodec.toText(frame);
+            for(CommunicationsListener handler : handlers) {
+                handler.receiveCommunication(message);
+            }
+        }
+        dispatcher.dispatchBinary(frame);
+        if (event.shouldCommit()) {
+            event.command = BinaryCodec.commandName(frame);
+            event.size = frame.length;
+            event.binary = true;
+            event.commit();
+        }
     }
 
 }
@@ -0,0 +1,374 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps a connection to the server open. Connecting happens in the background, a
+ * dropped connection is retried with exponential backoff, and a connection that has gone quiet for
+ * too long is treated as dropped.
+ */
+public class Connection {
+
+  private static final Logger logger = LogManager.getLogger(Connection.class);
+
+  /**
+   * Creates a new transport for each connection attempt
+   */
+  private final Supplier<Transport> transports;
+
+  /**
+   * Called on the socket reader thread with each text message received
+   */
+  private final Consumer<String> onMessage;
+
+  /**
+   * Called on the socket reader thread with each binary frame received
+   */
+  private final Consumer<byte[]> onBinary;
+
+  /**
+   * Called on the connection thread each time a connection is made. It may send with sendDirect,
+   * and must call markConnected once it is ready for everything else to be sent
+   */
+  private final Runnable onConnected;
+
+  /**
+   * Where ping round-trip times are recorded
+   */
+  private final NetworkMetrics metrics;
+
+  /**
+   * Spaces out reconnection attempts
+   */
+  private final Backoff backoff = new Backoff(500, 30000);
+
+  /**
+   * How often to ping the server, in milliseconds
+   */
+  private final long pingIntervalMillis;
+
+  /**
+   * How long without any frame from the server before the connection is treated as dropped
+   */
+  private final long livenessTimeoutMillis;
+
+  /**
+   * Runs connection attempts and liveness checks
+   */
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    var thread = new Thread(runnable, "communicator-connection");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * The connection state, for the UI. Only updated on the JavaFX Application Thread
+   */
+  private final ReadOnlyObjectWrapper<ConnectionState> stateProperty =
+      new ReadOnlyObjectWrapper<>(ConnectionState.CONNECTING);
+
+  /**
+   * True while a reconnection attempt is scheduled
+   */
+  private final AtomicBoolean reconnectScheduled = new AtomicBoolean();
+
+  /**
+   * The number of times the connection has been re-established
+   */
+  private final LongAdder reconnects = new LongAdder();
+
+  /**
+   * The connection state
+   */
+  private volatile ConnectionState state = ConnectionState.CONNECTING;
+
+  /**
+   * The current transport, which may not be open
+   */
+  private volatile Transport transport;
+
+  /**
+   * The value of System.nanoTime() when the last frame was received
+   */
+  private volatile long lastFrameNanos;
+
+  /**
+   * The number of attempts that have failed since the last successful connection
+   */
+  private int failedAttempts;
+
+  /**
+   * True once a connection has been made
+   */
+  private boolean everConnected = false;
+
+  /**
+   * Create a new connection. Nothing happens until it is started
+   * @param transports Creates a new transport for each connection attempt
+   * @param pingIntervalMillis How often to ping the server
+   * @param livenessTimeoutMillis How long without a frame before the connection is treated as dropped
+   * @param onMessage Called on the socket reader thread with each text message received
+   * @param onBinary Called on the socket reader thread with each binary frame received
+   * @param onConnected Called each time a connection is made, and must call markConnected
+   * @param metrics Where ping round-trip times are recorded
+   */
+  public Connection(Supplier<Transport> transports, long pingIntervalMillis, long livenessTimeoutMillis,
+      Consumer<String> onMessage, Consumer<byte[]> onBinary, Runnable onConnected, NetworkMetrics metrics) {
+    this.transports = transports;
+    this.pingIntervalMillis = pingIntervalMillis;
+    this.livenessTimeoutMillis = livenessTimeoutMillis;
+    this.onMessage = onMessage;
+    this.onBinary = onBinary;
+    this.onConnected = onConnected;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Start connecting in the background
+   */
+  public void start() {
+    executor.execute(this::connect);
+    executor.scheduleAtFixedRate(this::heartbeat, pingIntervalMillis, pingIntervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Close the connection for good
+   */
+  public void close() {
+    setState(ConnectionState.CLOSED);
+    executor.shutdownNow();
+    var current = transport;
+    if (current != null) {
+      current.disconnect();
+    }
+  }
+
+  /**
+   * Send a text message if connected
+   * @param message The message
+   * @return True if the message was sent, false if there is no connection
+   */
+  public boolean sendText(String message) {
+    var current = transport;
+    return state == ConnectionState.CONNECTED && current != null && current.send(message);
+  }
+
+  /**
+   * Send a binary frame if connected
+   * @param frame The frame
+   * @return True if the frame was sent, false if there is no connection
+   */
+  public boolean sendBinary(byte[] frame) {
+    var current = transport;
+    return state == ConnectionState.CONNECTED && current != null && current.sendBinary(frame);
+  }
+
+  /**
+   * Hold back what is sent until flush is called, so a batch is written out at once
+   */
+  public void hold() {
+    var current = transport;
+    if (current != null) {
+      current.hold();
+    }
+  }
+
+  /**
+   * Write out everything sent since hold was called
+   */
+  public void flush() {
+    var current = transport;
+    if (current != null) {
+      current.flush();
+    }
+  }
+
+  /**
+   * Try to connect. Runs on the connection thread
+   */
+  private void connect() {
+    reconnectScheduled.set(false);
+    if (state == ConnectionState.CLOSED) {
+      return;
+    }
+
+    var next = transports.get();
+    try {
+      transport = next;
+      next.connect(new Listener(next));
+    } catch (Exception e) {
+      failedAttempts++;
+      logger.error("Unable to connect to {} (attempt {}): {}", next, failedAttempts, e.getMessage());
+      scheduleReconnect();
+      return;
+    }
+
+    logger.info("Connected to {}", next);
+    if (everConnected) {
+      reconnects.increment();
+    }
+    everConnected = true;
+    failedAttempts = 0;
+    lastFrameNanos = System.nanoTime();
+    onConnected.run();
+  }
+
+  /**
+   * Mark the connection as ready for messages to be sent with sendText. Called by the onConnected
+   * callback once it has sent anything that must go first
+   */
+  void markConnected() {
+    setState(ConnectionState.CONNECTED);
+  }
+
+  /**
+   * Send a text message whether or not the connection has been marked as connected
+   * @param message The message
+   * @return True if the message was sent, false if the socket is not open
+   */
+  boolean sendDirect(String message) {
+    var current = transport;
+    return current != null && current.send(message);
+  }
+
+  /**
+   * Drop the connection if nothing has been heard from the server for too long, otherwise ping it
+   */
+  private void heartbeat() {
+    var current = transport;
+    if (state != ConnectionState.CONNECTED || current == null) {
+      return;
+    }
+    long silentMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastFrameNanos);
+    if (silentMillis > livenessTimeoutMillis) {
+      logger.error("Nothing heard from the server for {}ms, reconnecting", silentMillis);
+      current.disconnect();
+      lost(current);
+    } else {
+      current.ping();
+    }
+  }
+
+  /**
+   * Handle a transport being lost. Runs on the connection thread
+   * @param lostTransport The transport that was lost
+   */
+  private void lost(Transport lostTransport) {
+    if (lostTransport != transport || state == ConnectionState.CLOSED) {
+      return;
+    }
+    failedAttempts++;
+    scheduleReconnect();
+  }
+
+  /**
+   * Schedule the next connection attempt, unless one is already scheduled
+   */
+  private void scheduleReconnect() {
+    if (state == ConnectionState.CLOSED || !reconnectScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    setState(everConnected ? ConnectionState.RECONNECTING : ConnectionState.CONNECTING);
+    long delay = backoff.delayMillis(failedAttempts);
+    logger.info("Reconnecting in {}ms", delay);
+    executor.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Update the connection state
+   * @param newState The new state
+   */
+  private void setState(ConnectionState newState) {
+    if (state == ConnectionState.CLOSED) {
+      return;
+    }
+    state = newState;
+    Platform.runLater(() -> stateProperty.set(newState));
+  }
+
+  /**
+   * Get the connection state
+   * @return The state
+   */
+  public ConnectionState getState() {
+    return state;
+  }
+
+  /**
+   * Get the connection state as a property, updated on the JavaFX Application Thread
+   * @return The state property
+   */
+  public ReadOnlyObjectProperty<ConnectionState> stateProperty() {
+    return stateProperty.getReadOnlyProperty();
+  }
+
+  /**
+   * Get the number of times the connection has been re-established
+   * @return The number of reconnects
+   */
+  public long getReconnects() {
+    return reconnects.sum();
+  }
+
+  /**
+   * Listens to a transport
+   */
+  private class Listener implements Transport.Listener {
+
+    /**
+     * The transport listened to
+     */
+    private final Transport source;
+
+    /**
+     * Create a new listener
+     * @param source The transport listened to
+     */
+    private Listener(Transport source) {
+      this.source = source;
+    }
+
+    @Override
+    public void onMessage(String message) {
+      if (message.startsWith("ERROR")) {
+        logger.error(message);
+      }
+      onMessage.accept(message);
+    }
+
+    @Override
+    public void onBinary(byte[] frame) {
+      onBinary.accept(frame);
+    }
+
+    @Override
+    public void onActivity() {
+      lastFrameNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onPong(long roundTripNanos) {
+      metrics.pinged(roundTripNanos);
+    }
+
+    @Override
+    public void onDisconnected(boolean closedByServer) {
+      logger.error("Disconnected from {}{}", source, closedByServer ? " by the server" : "");
+      if (state != ConnectionState.CLOSED) {
+        executor.execute(() -> lost(source));
+      }
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * The state of the connection to the server
+ */
+public enum ConnectionState {
+
+  /**
+   * Connecting for the first time
+   */
+  CONNECTING("connectionConnecting"),
+
+  /**
+   * Connected and receiving frames from the server
+   */
+  CONNECTED("connectionConnected"),
+
+  /**
+   * The connection was lost and we are waiting to try again
+   */
+  RECONNECTING("connectionReconnecting"),
+
+  /**
+   * The connection has been closed for good
+   */
+  CLOSED("connectionClosed");
+
+  /**
+   * The key of the text describing this state in the resource bundle
+   */
+  private final String textKey;
+
+  /**
+   * Create a connection state
+   * @param textKey The key of the text describing this state in the resource bundle
+   */
+  ConnectionState(String textKey) {
+    this.textKey = textKey;
+  }
+
+  /**
+   * Get the key of the text describing this state in the resource bundle
+   * @return The resource bundle key
+   */
+  public String getTextKey() {
+    return textKey;
+  }
+}
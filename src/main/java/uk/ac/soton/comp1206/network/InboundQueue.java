@@ -0,0 +1,241 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A bounded queue of messages received from the server, drained by a single delivery thread. This
+ * means the socket reader only ever has to enqueue a message, however slow the listeners are.
+ */
+public class InboundQueue {
+
+  private static final Logger logger = LogManager.getLogger(InboundQueue.class);
+
+  /**
+   * A message waiting to be delivered, with the time it was received
+   *
+   * @param message The text message, or null for a binary frame
+   * @param frame The binary frame, or null for a text message
+   * @param receivedNanos The value of System.nanoTime() when it was received
+   */
+  private record Envelope(String message, byte[] frame, long receivedNanos) {
+
+  }
+
+  /**
+   * The queued messages
+   */
+  private final BlockingQueue<Envelope> queue;
+
+  /**
+   * What to do when the queue is full
+   */
+  private final OverflowPolicy overflowPolicy;
+
+  /**
+   * Called on the delivery thread with each message
+   */
+  private final Consumer<String> delivery;
+
+  /**
+   * Called on the delivery thread with each binary frame
+   */
+  private final Consumer<byte[]> binaryDelivery;
+
+  /**
+   * The thread delivering messages
+   */
+  private final Thread deliveryThread;
+
+  /**
+   * The number of messages delivered
+   */
+  private final LongAdder delivered = new LongAdder();
+
+  /**
+   * The number of messages discarded because the queue was full
+   */
+  private final LongAdder dropped = new LongAdder();
+
+  /**
+   * The total time messages spent between being received and being delivered
+   */
+  private final LongAdder totalLatencyNanos = new LongAdder();
+
+  /**
+   * The longest time a message has spent between being received and being delivered
+   */
+  private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+  /**
+   * The largest number of messages that have been waiting at once
+   */
+  private final AtomicLong maxDepth = new AtomicLong();
+
+  /**
+   * Create a new inbound queue and start its delivery thread
+   * @param capacity The most messages that can be waiting at once
+   * @param overflowPolicy What to do when the queue is full
+   * @param delivery Called on the delivery thread with each message
+   */
+  public InboundQueue(int capacity, OverflowPolicy overflowPolicy, Consumer<String> delivery) {
+    this(capacity, overflowPolicy, delivery,
+        frame -> logger.warn("Discarding binary frame of {} bytes", frame.length));
+  }
+
+  /**
+   * Create a new inbound queue for text messages and binary frames and start its delivery thread.
+   * Both are delivered in the order they were received
+   * @param capacity The most messages that can be waiting at once
+   * @param overflowPolicy What to do when the queue is full
+   * @param delivery Called on the delivery thread with each text message
+   * @param binaryDelivery Called on the delivery thread with each binary frame
+   */
+  public InboundQueue(int capacity, OverflowPolicy overflowPolicy, Consumer<String> delivery,
+      Consumer<byte[]> binaryDelivery) {
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.overflowPolicy = overflowPolicy;
+    this.delivery = delivery;
+    this.binaryDelivery = binaryDelivery;
+
+    deliveryThread = new Thread(this::deliver, "communicator-delivery");
+    deliveryThread.setDaemon(true);
+    deliveryThread.start();
+  }
+
+  /**
+   * Queue a message for delivery
+   * @param message The message received from the server
+   */
+  public void offer(String message) {
+    enqueue(new Envelope(message, null, System.nanoTime()));
+  }
+
+  /**
+   * Queue a binary frame for delivery
+   * @param frame The frame received from the server
+   */
+  public void offerBinary(byte[] frame) {
+    enqueue(new Envelope(null, frame, System.nanoTime()));
+  }
+
+  /**
+   * Add an envelope to the queue, following the overflow policy if it is full
+   * @param envelope The envelope
+   */
+  private void enqueue(Envelope envelope) {
+    switch (overflowPolicy) {
+      case BLOCK -> {
+        try {
+          queue.put(envelope);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          dropped.increment();
+        }
+      }
+      case DROP_NEWEST -> {
+        if (!queue.offer(envelope)) {
+          dropped.increment();
+        }
+      }
+      case DROP_OLDEST -> {
+        while (!queue.offer(envelope)) {
+          if (queue.poll() != null) {
+            dropped.increment();
+          }
+        }
+      }
+    }
+    maxDepth.accumulateAndGet(queue.size(), Math::max);
+  }
+
+  /**
+   * Stop delivering messages. Anything still queued is discarded
+   */
+  public void shutdown() {
+    deliveryThread.interrupt();
+  }
+
+  /**
+   * Take messages off the queue and deliver them until interrupted
+   */
+  private void deliver() {
+    while (!Thread.currentThread().isInterrupted()) {
+      Envelope envelope;
+      try {
+        envelope = queue.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      try {
+        if (envelope.frame() != null) {
+          binaryDelivery.accept(envelope.frame());
+        } else {
+          delivery.accept(envelope.message());
+        }
+      } catch (RuntimeException e) {
+        logger.error("Error delivering message: {}", e.getMessage(), e);
+      }
+
+      long latency = System.nanoTime() - envelope.receivedNanos();
+      delivered.increment();
+      totalLatencyNanos.add(latency);
+      maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    }
+  }
+
+  /**
+   * Get the number of messages waiting to be delivered
+   * @return The queue depth
+   */
+  public int getDepth() {
+    return queue.size();
+  }
+
+  /**
+   * Get the largest number of messages that have been waiting at once
+   * @return The maximum queue depth
+   */
+  public long getMaxDepth() {
+    return maxDepth.get();
+  }
+
+  /**
+   * Get the number of messages delivered
+   * @return The number of messages delivered
+   */
+  public long getDelivered() {
+    return delivered.sum();
+  }
+
+  /**
+   * Get the number of messages discarded because the queue was full
+   * @return The number of messages dropped
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * Get the mean time between a message being received and its listeners returning
+   * @return The mean delivery latency in nanoseconds
+   */
+  public long getMeanLatencyNanos() {
+    long count = delivered.sum();
+    return count == 0 ? 0 : totalLatencyNanos.sum() / count;
+  }
+
+  /**
+   * Get the longest time between a message being received and its listeners returning
+   * @return The maximum delivery latency in nanoseconds
+   */
+  public long getMaxLatencyNanos() {
+    return maxLatencyNanos.get();
+  }
+}
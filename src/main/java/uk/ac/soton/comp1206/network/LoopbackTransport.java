@@ -0,0 +1,102 @@
+package uk.ac.soton.comp1206.network;
+
+import java.io.IOException;
+import uk.ac.soton.comp1206.server.LocalServer;
+
+/**
+ * Talks to a LocalServer in the same process, passing messages in memory instead of over a socket.
+ */
+public class LoopbackTransport implements Transport {
+
+  /**
+   * The server to connect to
+   */
+  private final LocalServer server;
+
+  /**
+   * The listener given when connecting
+   */
+  private volatile Listener listener;
+
+  /**
+   * The connection to the server, once connected
+   */
+  private volatile LocalServer.Endpoint endpoint;
+
+  /**
+   * True once we have asked to close the connection
+   */
+  private volatile boolean closing = false;
+
+  /**
+   * Create a new loopback transport. Nothing happens until it is connected
+   * @param server The server to connect to
+   */
+  public LoopbackTransport(LocalServer server) {
+    this.server = server;
+  }
+
+  @Override
+  public void connect(Listener listener) throws IOException {
+    this.listener = listener;
+    endpoint = server.connect(message -> {
+      listener.onActivity();
+      listener.onMessage(message);
+    }, frame -> {
+      listener.onActivity();
+      listener.onBinary(frame);
+    }, closedByServer -> listener.onDisconnected(closedByServer && !closing));
+  }
+
+  @Override
+  public boolean send(String message) {
+    var current = endpoint;
+    if (current == null || !current.isOpen()) {
+      return false;
+    }
+    current.send(message);
+    return true;
+  }
+
+  @Override
+  public boolean sendBinary(byte[] frame) {
+    var current = endpoint;
+    if (current == null || !current.isOpen()) {
+      return false;
+    }
+    current.sendBinary(frame);
+    return true;
+  }
+
+  @Override
+  public void ping() {
+    var current = endpoint;
+    if (current != null && current.isOpen()) {
+      long sentAt = System.nanoTime();
+      current.ping(() -> {
+        listener.onActivity();
+        listener.onPong(System.nanoTime() - sentAt);
+      });
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    var current = endpoint;
+    return current != null && current.isOpen();
+  }
+
+  @Override
+  public void disconnect() {
+    var current = endpoint;
+    if (current != null) {
+      closing = true;
+      current.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "the local server";
+  }
+}
@@ -0,0 +1,176 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.MessageListener;
+
+/**
+ * Routes messages from the server to the listeners registered for their command. The command is
+ * found by comparing the start of the message in place, and the payload is parsed once no matter
+ * how many listeners there are. Listeners can be added and removed from any thread while messages
+ * are being dispatched.
+ */
+public class MessageDispatcher {
+
+  private static final Logger logger = LogManager.getLogger(MessageDispatcher.class);
+
+  /**
+   * The commands, grouped by the first letter of their name
+   */
+  private static final List<List<Command<?>>> BY_INITIAL = new ArrayList<>();
+
+  static {
+    for (int i = 0; i < 26; i++) {
+      BY_INITIAL.add(new ArrayList<>());
+    }
+    for (Command<?> command : Command.values()) {
+      BY_INITIAL.get(command.getName().charAt(0) - 'A').add(command);
+    }
+  }
+
+  /**
+   * The listeners for each command, indexed by the command's ordinal
+   */
+  private final List<List<MessageListener<?>>> listeners = new ArrayList<>();
+
+  /**
+   * Create a new dispatcher with no listeners
+   */
+  public MessageDispatcher() {
+    for (int i = 0; i < Command.values().size(); i++) {
+      listeners.add(new CopyOnWriteArrayList<>());
+    }
+  }
+
+  /**
+   * Find the command a message starts with
+   * @param message The message
+   * @return The command, or null if it is not one we know
+   */
+  public static Command<?> commandOf(String message) {
+    if (message.isEmpty()) {
+      return null;
+    }
+    int initial = message.charAt(0) - 'A';
+    if (initial < 0 || initial >= BY_INITIAL.size()) {
+      return null;
+    }
+    for (Command<?> command : BY_INITIAL.get(initial)) {
+      String name = command.getName();
+      if (message.startsWith(name)
+          && (message.length() == name.length() || isDelimiter(message.charAt(name.length())))) {
+        return command;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Add a listener for a command
+   * @param command The command to listen for
+   * @param listener The listener to receive the parsed payload
+   * @param <T> The type of the payload
+   * @return A subscription that removes the listener when cancelled
+   */
+  public <T> Subscription addListener(Command<T> command, MessageListener<? super T> listener) {
+    var commandListeners = listeners.get(command.ordinal());
+    commandListeners.add(listener);
+    return () -> commandListeners.remove(listener);
+  }
+
+  /**
+   * Remove every listener
+   */
+  public void clearListeners() {
+    for (List<MessageListener<?>> commandListeners : listeners) {
+      commandListeners.clear();
+    }
+  }
+
+  /**
+   * Parse a message and hand it to the listeners for its command
+   * @param message The message received from the server
+   */
+  public void dispatch(String message) {
+    Command<?> command = commandOf(message);
+    if (command != null) {
+      dispatch(command, message);
+    }
+  }
+
+  /**
+   * Parse a message with a known command and hand it to the listeners for that command
+   */
+  private <T> void dispatch(Command<T> command, String message) {
+    var commandListeners = listeners.get(command.ordinal());
+    if (commandListeners.isEmpty()) {
+      return;
+    }
+
+    T payload;
+    try {
+      payload = command.parse(message, command.getName().length() + 1);
+    } catch (RuntimeException e) {
+      logger.error("Unable to parse {} message: {}", command, e.getMessage());
+      return;
+    }
+    deliver(commandListeners, payload);
+  }
+
+  /**
+   * Decode a binary frame and hand it to the listeners for the command it stands for. Frames the
+   * client has no command for, such as another player's SCORE, are ignored
+   * @param frame The frame
+   */
+  public void dispatchBinary(byte[] frame) {
+    try {
+      switch (frame[0]) {
+        case BinaryCodec.PIECE -> {
+          var commandListeners = listeners.get(Command.PIECE.ordinal());
+          if (!commandListeners.isEmpty()) {
+            deliver(commandListeners, BinaryCodec.decodeInt(frame));
+          }
+        }
+        case BinaryCodec.PLAYER_BOARD -> {
+          var commandListeners = listeners.get(Command.BOARD.ordinal());
+          if (!commandListeners.isEmpty()) {
+            //A fresh board each time, as FX listeners hold on to it until the next frame
+            var cells = new int[BinaryCodec.cellCount(frame)];
+            BinaryCodec.decodeBoard(frame, cells);
+            deliver(commandListeners, new BoardUpdate(BinaryCodec.decodePlayer(frame), cells));
+          }
+        }
+        case BinaryCodec.PLAYER_BOARD_DELTA -> {
+          var commandListeners = listeners.get(Command.BOARDDELTA.ordinal());
+          if (!commandListeners.isEmpty()) {
+            deliver(commandListeners, BinaryCodec.decodeBoardDelta(frame));
+          }
+        }
+        default -> { }
+      }
+    } catch (RuntimeException e) {
+      logger.error("Unable to decode binary frame: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Hand a payload to every listener in a list
+   */
+  private static <T> void deliver(List<MessageListener<?>> commandListeners, T payload) {
+    for (MessageListener<?> listener : commandListeners) {
+      @SuppressWarnings("unchecked")
+      var typed = (MessageListener<? super T>) listener;
+      typed.receiveMessage(payload);
+    }
+  }
+
+  /**
+   * Check whether a character ends the command at the start of a message
+   */
+  private static boolean isDelimiter(char c) {
+    return c == ' ' || c == '\n';
+  }
+}
@@ -0,0 +1,323 @@
+package uk.ac.soton.comp1206.network;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.metrics.Metrics;
+import uk.ac.soton.comp1206.utilities.Histogram;
+
+/**
+ * Measures the traffic on a connection to the server: round-trip times of requests and pings,
+ * message and byte rates in each direction, and any gauges registered by other parts of the
+ * communicator such as queue depths.
+ */
+public class NetworkMetrics {
+
+  private static final Logger logger = LogManager.getLogger(NetworkMetrics.class);
+
+  /**
+   * The requests we time, mapped to the command of the reply that answers them. Only requests whose
+   * reply the server sends to no one else are timed: SCORES is left out, as the server also sends
+   * SCORES to every player in a channel whenever anyone's score or lives change
+   */
+  private static final Map<String, String> REPLIES = Map.of(
+      "PIECE", "PIECE",
+      "HISCORES", "HISCORES",
+      "LIST", "CHANNELS");
+
+  /**
+   * A traffic counter in one direction, with its rate over the last sampling interval
+   */
+  private static final class Traffic {
+
+    /**
+     * The number of messages
+     */
+    private final LongAdder messages = new LongAdder();
+
+    /**
+     * The number of bytes
+     */
+    private final LongAdder bytes = new LongAdder();
+
+    /**
+     * The message count when the rate was last sampled
+     */
+    private long sampledMessages;
+
+    /**
+     * The byte count when the rate was last sampled
+     */
+    private long sampledBytes;
+
+    /**
+     * Messages per second over the last sampling interval
+     */
+    private volatile double messageRate;
+
+    /**
+     * Bytes per second over the last sampling interval
+     */
+    private volatile double byteRate;
+
+    /**
+     * Count a message
+     * @param size The size of the message in bytes
+     */
+    private void count(int size) {
+      messages.increment();
+      bytes.add(size);
+    }
+
+    /**
+     * Work out the rates since the last sample
+     * @param seconds The time since the last sample
+     */
+    private void sample(double seconds) {
+      long nowMessages = messages.sum();
+      long nowBytes = bytes.sum();
+      messageRate = (nowMessages - sampledMessages) / seconds;
+      byteRate = (nowBytes - sampledBytes) / seconds;
+      sampledMessages = nowMessages;
+      sampledBytes = nowBytes;
+    }
+  }
+
+  /**
+   * Traffic sent to the server
+   */
+  private final Traffic outbound = new Traffic();
+
+  /**
+   * Traffic received from the server
+   */
+  private final Traffic inbound = new Traffic();
+
+  /**
+   * Round-trip times of each kind of request
+   */
+  private final Map<String, Histogram> requestRoundTrips = new LinkedHashMap<>();
+
+  /**
+   * The send times of requests awaiting a reply, keyed by the reply command
+   */
+  private final Map<String, Queue<Long>> awaiting = new LinkedHashMap<>();
+
+  /**
+   * Round-trip times of ping frames
+   */
+  private final Histogram pingRoundTrips = new Histogram();
+
+  /**
+   * Values reported by other parts of the communicator
+   */
+  private final Map<String, LongSupplier> gauges = new LinkedHashMap<>();
+
+  /**
+   * The value of System.nanoTime() when the rates were last sampled
+   */
+  private long sampledAt = System.nanoTime();
+
+  /**
+   * Create a new, empty set of metrics and report them in the metrics registry under network
+   */
+  public NetworkMetrics() {
+    REPLIES.forEach((request, reply) -> {
+      requestRoundTrips.put(request, new Histogram());
+      awaiting.put(reply, new ConcurrentLinkedQueue<>());
+    });
+
+    Metrics.gauge("network.sent.messages", outbound.messages::sum);
+    Metrics.gauge("network.sent.bytes", outbound.bytes::sum);
+    Metrics.gauge("network.received.messages", inbound.messages::sum);
+    Metrics.gauge("network.received.bytes", inbound.bytes::sum);
+    Metrics.histogram("network.ping.nanos", pingRoundTrips);
+    requestRoundTrips.forEach((request, histogram) ->
+        Metrics.histogram("network.rtt." + request.toLowerCase() + ".nanos", histogram));
+  }
+
+  /**
+   * Record a message being sent to the server
+   * @param message The message
+   */
+  public void sent(String message) {
+    sent(message, message.getBytes(StandardCharsets.UTF_8).length);
+  }
+
+  /**
+   * Record a message being sent to the server in a different form, such as a binary frame
+   * @param message The text form of the message
+   * @param size The number of bytes actually sent
+   */
+  public void sent(String message, int size) {
+    outbound.count(size);
+    var reply = REPLIES.get(commandOf(message));
+    if (reply != null) {
+      awaiting.get(reply).add(System.nanoTime());
+    }
+  }
+
+  /**
+   * Record a message being received from the server. If it answers a request we are timing, the
+   * round trip is recorded. Replies are matched to requests in order
+   * @param message The message
+   */
+  public void received(String message) {
+    received(commandOf(message), message.getBytes(StandardCharsets.UTF_8).length);
+  }
+
+  /**
+   * Record a binary frame being received from the server
+   * @param frame The frame
+   */
+  public void receivedBinary(byte[] frame) {
+    received(BinaryCodec.commandName(frame), frame.length);
+  }
+
+  /**
+   * Record a message being received, timing the request it answers if there is one
+   * @param command The command of the message
+   * @param size The size of the message in bytes
+   */
+  private void received(String command, int size) {
+    inbound.count(size);
+    var pending = awaiting.get(command);
+    if (pending == null) {
+      return;
+    }
+    var sentAt = pending.poll();
+    if (sentAt != null) {
+      var request = command.equals("CHANNELS") ? "LIST" : command;
+      requestRoundTrips.get(request).record(System.nanoTime() - sentAt);
+    }
+  }
+
+  /**
+   * Record the round trip of a ping frame
+   * @param nanos The round-trip time in nanoseconds
+   */
+  public void pinged(long nanos) {
+    pingRoundTrips.record(nanos);
+  }
+
+  /**
+   * Register a value to report alongside the traffic, such as a queue depth. It is also reported in the
+   * metrics registry, under network and its name with dots for spaces
+   * @param name The name to report it under
+   * @param gauge Supplies the current value
+   */
+  public synchronized void gauge(String name, LongSupplier gauge) {
+    gauges.put(name, gauge);
+    Metrics.gauge("network." + name.replace(' ', '.'), gauge);
+  }
+
+  /**
+   * Work out the message and byte rates since the last sample. Called about once a second
+   */
+  public synchronized void sample() {
+    long now = System.nanoTime();
+    double seconds = (now - sampledAt) / 1e9;
+    if (seconds <= 0) {
+      return;
+    }
+    outbound.sample(seconds);
+    inbound.sample(seconds);
+    sampledAt = now;
+  }
+
+  /**
+   * Get the round-trip times of a kind of request
+   * @param request The request command, one of PIECE, HISCORES or LIST
+   * @return The histogram of round-trip times in nanoseconds
+   */
+  public Histogram getRequestRoundTrips(String request) {
+    return requestRoundTrips.get(request);
+  }
+
+  /**
+   * Get the round-trip times of ping frames
+   * @return The histogram of round-trip times in nanoseconds
+   */
+  public Histogram getPingRoundTrips() {
+    return pingRoundTrips;
+  }
+
+  /**
+   * Get a short summary of the metrics, for the debug overlay
+   * @return The summary, one metric per line
+   */
+  public synchronized String summary() {
+    var summary = new StringBuilder();
+    summary.append(String.format("out %.1f msg/s %.0f B/s  in %.1f msg/s %.0f B/s%n",
+        outbound.messageRate, outbound.byteRate, inbound.messageRate, inbound.byteRate));
+    summary.append(String.format("ping p50 %s p99 %s%n",
+        millis(pingRoundTrips.getPercentile(50)), millis(pingRoundTrips.getPercentile(99))));
+    requestRoundTrips.forEach((request, histogram) -> summary.append(String.format("%s p50 %s p99 %s%n",
+        request, millis(histogram.getPercentile(50)), millis(histogram.getPercentile(99)))));
+    gauges.forEach((name, gauge) -> summary.append(name).append(' ').append(gauge.getAsLong()).append('\n'));
+    return summary.toString();
+  }
+
+  /**
+   * Append a full report of the metrics to a file
+   * @param file The file to append to
+   */
+  public synchronized void dump(Path file) {
+    var report = new StringBuilder();
+    report.append("Network metrics at ").append(LocalDateTime.now()).append('\n');
+    report.append(String.format("sent %d messages %d bytes, received %d messages %d bytes%n",
+        outbound.messages.sum(), outbound.bytes.sum(), inbound.messages.sum(), inbound.bytes.sum()));
+    appendHistogram(report, "ping", pingRoundTrips);
+    requestRoundTrips.forEach((request, histogram) -> appendHistogram(report, request, histogram));
+    gauges.forEach((name, gauge) -> report.append(name).append(' ').append(gauge.getAsLong()).append('\n'));
+    report.append('\n');
+
+    try {
+      Files.writeString(file, report, StandardCharsets.UTF_8,
+          java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.APPEND);
+      logger.info("Network metrics written to {}", file);
+    } catch (IOException e) {
+      logger.error("Unable to write network metrics to {}: {}", file, e.getMessage());
+    }
+  }
+
+  /**
+   * Append the percentiles of a histogram of round-trip times to a report
+   */
+  private static void appendHistogram(StringBuilder report, String name, Histogram histogram) {
+    report.append(String.format("%s rtt count %d mean %s p50 %s p90 %s p99 %s p99.9 %s max %s%n", name,
+        histogram.getCount(), millis(histogram.getMean()), millis(histogram.getPercentile(50)),
+        millis(histogram.getPercentile(90)), millis(histogram.getPercentile(99)),
+        millis(histogram.getPercentile(99.9)), millis(histogram.getMax())));
+  }
+
+  /**
+   * Format a time in nanoseconds as milliseconds
+   */
+  private static String millis(long nanos) {
+    return String.format("%.1fms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  /**
+   * Get the command a message starts with
+   */
+  private static String commandOf(String message) {
+    int end = message.indexOf(' ');
+    int newline = message.indexOf('\n');
+    if (newline >= 0 && (end < 0 || newline < end)) {
+      end = newline;
+    }
+    return end < 0 ? message : message.substring(0, end);
+  }
+}
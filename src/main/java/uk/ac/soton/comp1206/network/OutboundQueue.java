@@ -0,0 +1,314 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A bounded queue of messages waiting to be sent to the server, written out in batches by a single
+ * writer thread. Messages that report the latest value of some state (SCORE, LIVES and BOARD)
+ * replace any earlier message of the same kind still waiting, so only the newest value is sent.
+ * Queueing a message never blocks. Once the queue is full only those messages are ever discarded,
+ * as the overflow policy decides; every other message, such as PIECE or DIE, is queued regardless.
+ */
+public class OutboundQueue {
+
+  private static final Logger logger = LogManager.getLogger(OutboundQueue.class);
+
+  /**
+   * The commands whose messages supersede earlier ones of the same command
+   */
+  private static final Set<String> COALESCED = Set.of("SCORE", "LIVES", "BOARD");
+
+  /**
+   * A queued message. Slots are compared by identity, so the same message can be queued twice
+   */
+  private static final class Slot {
+
+    /**
+     * The message to send
+     */
+    private final String message;
+
+    /**
+     * Create a new slot
+     * @param message The message to send
+     */
+    private Slot(String message) {
+      this.message = message;
+    }
+  }
+
+  /**
+   * The messages waiting to be sent, oldest first. A superseded message is taken out in place
+   */
+  private final Set<Slot> queue = new LinkedHashSet<>();
+
+  /**
+   * The waiting slot for each coalesced command
+   */
+  private final Map<String, Slot> latest = new HashMap<>();
+
+  /**
+   * Guards the queue
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Signalled when a message is queued
+   */
+  private final Condition notEmpty = lock.newCondition();
+
+  /**
+   * The most messages that can be waiting before SCORE, LIVES and BOARD messages are discarded
+   */
+  private final int capacity;
+
+  /**
+   * What to do when the queue is full
+   */
+  private final OverflowPolicy overflowPolicy;
+
+  /**
+   * How long to wait after the first message of a batch for more to arrive, in milliseconds
+   */
+  private final long flushWindowMillis;
+
+  /**
+   * Writes a batch of messages to the server, returning the bytes sent
+   */
+  private final ToLongFunction<List<String>> writer;
+
+  /**
+   * The thread writing messages
+   */
+  private final Thread writerThread;
+
+  /**
+   * The number of messages written
+   */
+  private final LongAdder sent = new LongAdder();
+
+  /**
+   * The number of messages replaced by a newer one before being written
+   */
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * The number of SCORE, LIVES and BOARD messages discarded because the queue was full
+   */
+  private final LongAdder dropped = new LongAdder();
+
+  /**
+   * The number of bytes the writer sent
+   */
+  private final LongAdder bytesWritten = new LongAdder();
+
+  /**
+   * The number of batches written
+   */
+  private final LongAdder batches = new LongAdder();
+
+  /**
+   * Create a new outbound queue and start its writer thread
+   * @param capacity The most messages that can be waiting before SCORE, LIVES and BOARD messages
+   *     are discarded
+   * @param overflowPolicy Which of those to discard when the queue is full, either DROP_NEWEST or
+   *     DROP_OLDEST
+   * @param flushWindowMillis How long to gather messages into a batch before writing it
+   * @param writer Called on the writer thread to write each batch, oldest message first, returning
+   *     the number of bytes it sent
+   */
+  public OutboundQueue(int capacity, OverflowPolicy overflowPolicy, long flushWindowMillis,
+      ToLongFunction<List<String>> writer) {
+    if (overflowPolicy == OverflowPolicy.BLOCK) {
+      throw new IllegalArgumentException("The outbound queue never blocks the sender");
+    }
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+    this.flushWindowMillis = flushWindowMillis;
+    this.writer = writer;
+
+    writerThread = new Thread(this::write, "communicator-writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  /**
+   * Queue a message to be sent, without waiting. If the queue is full and this is a SCORE, LIVES or
+   * BOARD message, either it or the oldest other one of those waiting is discarded, following the
+   * overflow policy. Any other message is always queued
+   * @param message The message to send
+   */
+  public void offer(String message) {
+    String key = coalesceKey(message);
+    lock.lock();
+    try {
+      if (key != null) {
+        var previous = latest.remove(key);
+        if (previous != null) {
+          queue.remove(previous);
+          coalesced.increment();
+        }
+      }
+      if (key != null && queue.size() >= capacity) {
+        dropped.increment();
+        var discarded = overflowPolicy == OverflowPolicy.DROP_OLDEST ? oldestCoalesced() : null;
+        if (discarded == null) {
+          return;
+        }
+        queue.remove(discarded);
+        latest.values().remove(discarded);
+      }
+      var slot = new Slot(message);
+      queue.add(slot);
+      if (key != null) {
+        latest.put(key, slot);
+      }
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Find the oldest waiting SCORE, LIVES or BOARD message. Called with the lock held
+   * @return The slot, or null if none is waiting
+   */
+  private Slot oldestCoalesced() {
+    if (latest.isEmpty()) {
+      return null;
+    }
+    for (Slot slot : queue) {
+      if (latest.containsValue(slot)) {
+        return slot;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Stop writing messages. Anything still queued is discarded
+   */
+  public void shutdown() {
+    writerThread.interrupt();
+  }
+
+  /**
+   * Wait for messages, gather them for the flush window, then write the batch in one go, until
+   * interrupted
+   */
+  private void write() {
+    List<String> batch = new ArrayList<>();
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        lock.lock();
+        try {
+          while (queue.isEmpty()) {
+            notEmpty.await();
+          }
+        } finally {
+          lock.unlock();
+        }
+        if (flushWindowMillis > 0) {
+          Thread.sleep(flushWindowMillis);
+        }
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      lock.lock();
+      try {
+        for (Slot slot : queue) {
+          batch.add(slot.message);
+        }
+        queue.clear();
+        latest.clear();
+      } finally {
+        lock.unlock();
+      }
+
+      try {
+        bytesWritten.add(writer.applyAsLong(batch));
+        sent.add(batch.size());
+        batches.increment();
+      } catch (RuntimeException e) {
+        logger.error("Error sending {} messages: {}", batch.size(), e.getMessage(), e);
+      }
+      batch.clear();
+    }
+  }
+
+  /**
+   * Get the command a message can be coalesced under
+   * @param message The message
+   * @return The command, or null if the message must always be sent
+   */
+  private static String coalesceKey(String message) {
+    int end = message.indexOf(' ');
+    String command = end < 0 ? message : message.substring(0, end);
+    return COALESCED.contains(command) ? command : null;
+  }
+
+  /**
+   * Get the number of messages waiting to be sent
+   * @return The queue depth
+   */
+  public int getDepth() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Get the number of messages written
+   * @return The number of messages sent
+   */
+  public long getSent() {
+    return sent.sum();
+  }
+
+  /**
+   * Get the number of messages replaced by a newer one before being written
+   * @return The number of messages coalesced
+   */
+  public long getCoalesced() {
+    return coalesced.sum();
+  }
+
+  /**
+   * Get the number of SCORE, LIVES and BOARD messages discarded because the queue was full
+   * @return The number of messages dropped
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * Get the number of bytes the writer sent, in whatever form it sent each message
+   * @return The number of bytes written
+   */
+  public long getBytesWritten() {
+    return bytesWritten.sum();
+  }
+
+  /**
+   * Get the number of batches written
+   * @return The number of batches
+   */
+  public long getBatches() {
+    return batches.sum();
+  }
+}
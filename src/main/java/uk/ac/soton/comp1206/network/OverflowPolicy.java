@@ -0,0 +1,23 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * What to do with a message when the queue it is being added to is full
+ */
+public enum OverflowPolicy {
+
+  /**
+   * Wait for space in the queue. No messages are lost, but the socket reader stalls, so this has to be
+   * asked for. Only the inbound queue supports this
+   */
+  BLOCK,
+
+  /**
+   * Discard the message just added
+   */
+  DROP_NEWEST,
+
+  /**
+   * Discard the oldest queued message to make room for the one just added
+   */
+  DROP_OLDEST
+}
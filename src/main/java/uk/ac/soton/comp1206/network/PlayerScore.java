@@ -0,0 +1,12 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * The score and lives of a player in the current channel, as sent by the server in a SCORES message
+ *
+ * @param name The name of the player
+ * @param score The current score of the player
+ * @param lives The lives the player has left, or DEAD once they are out
+ */
+public record PlayerScore(String name, int score, String lives) {
+
+}
@@ -0,0 +1,140 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.MessageListener;
+
+/**
+ * Hands messages to listeners on the JavaFX Application Thread, all at once on each frame rather than
+ * with a runLater per message. Messages are delivered in the order they arrived. For snapshot
+ * commands only the latest message received during a frame reaches the listener, in the place that
+ * latest message arrived; the earlier ones are skipped. The frame timer only runs while there is
+ * something to deliver.
+ */
+public class PulseDelivery {
+
+  private static final Logger logger = LogManager.getLogger(PulseDelivery.class);
+
+  /**
+   * The deliveries waiting for the next frame
+   */
+  private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Drains the pending deliveries once per frame, and stops itself once there are none left
+   */
+  private final AnimationTimer timer = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      drain();
+      if (pending.isEmpty()) {
+        stop();
+        scheduled.set(false);
+        //A delivery queued just before the flag was cleared would otherwise wait for the next one
+        if (!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+          start();
+        }
+      }
+    }
+  };
+
+  /**
+   * Whether the timer is running or about to be started
+   */
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+
+  /**
+   * The number of messages delivered
+   */
+  private final LongAdder delivered = new LongAdder();
+
+  /**
+   * The number of snapshot messages skipped because a newer one arrived in the same frame
+   */
+  private final LongAdder collapsed = new LongAdder();
+
+  /**
+   * Wrap a listener so that it is called on the JavaFX Application Thread on the next frame
+   * @param command The command the listener is for
+   * @param listener The listener to call on the JavaFX Application Thread
+   * @param <T> The type of the payload
+   * @return A listener that can be called from any thread
+   */
+  public <T> MessageListener<T> wrap(Command<T> command, MessageListener<? super T> listener) {
+    if (!command.isSnapshot()) {
+      return message -> queue(() -> {
+        listener.receiveMessage(message);
+        delivered.increment();
+      });
+    }
+
+    //Every snapshot is queued where it arrived, but only the newest one still queued is delivered
+    var latest = new AtomicReference<Runnable>();
+    return message -> {
+      var delivery = new Runnable() {
+        @Override
+        public void run() {
+          if (latest.compareAndSet(this, null)) {
+            listener.receiveMessage(message);
+            delivered.increment();
+          }
+        }
+      };
+      if (latest.getAndSet(delivery) != null) {
+        collapsed.increment();
+      }
+      queue(delivery);
+    };
+  }
+
+  /**
+   * Queue a delivery for the next frame, starting the timer if it is not running
+   */
+  private void queue(Runnable delivery) {
+    pending.add(delivery);
+    if (scheduled.compareAndSet(false, true)) {
+      if (Platform.isFxApplicationThread()) {
+        timer.start();
+      } else {
+        Platform.runLater(timer::start);
+      }
+    }
+  }
+
+  /**
+   * Run every pending delivery
+   */
+  private void drain() {
+    Runnable delivery;
+    while ((delivery = pending.poll()) != null) {
+      try {
+        delivery.run();
+      } catch (RuntimeException e) {
+        logger.error("Error delivering message: {}", e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Get the number of messages delivered
+   * @return The number of messages delivered
+   */
+  public long getDelivered() {
+    return delivered.sum();
+  }
+
+  /**
+   * Get the number of snapshot messages skipped because a newer one arrived first
+   * @return The number of messages collapsed
+   */
+  public long getCollapsed() {
+    return collapsed.sum();
+  }
+}
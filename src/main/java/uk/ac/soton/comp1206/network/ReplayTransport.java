@@ -0,0 +1,142 @@
+package uk.ac.soton.comp1206.network;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Plays back the frames the server sent in a capture file, so the client can be run and profiled
+ * against real traffic without a server. Frames are fed either at the pace they were captured or as
+ * fast as the client takes them. Anything the client sends is discarded. Once the capture runs out
+ * the transport stays open and quiet, so the client doesn't reconnect and replay it again. Pings
+ * count as a sign of life but report no round trip, as there is no network to time.
+ */
+public class ReplayTransport implements Transport {
+
+  private static final Logger logger = LogManager.getLogger(ReplayTransport.class);
+
+  /**
+   * The capture to play back
+   */
+  private final Path file;
+
+  /**
+   * True to keep the captured timing, false to play as fast as possible
+   */
+  private final boolean paced;
+
+  /**
+   * The listener given when connecting
+   */
+  private volatile Listener listener;
+
+  /**
+   * The thread feeding frames to the listener
+   */
+  private volatile Thread player;
+
+  /**
+   * True while connected
+   */
+  private volatile boolean open = false;
+
+  /**
+   * Create a new replay transport. Nothing is played until it is connected
+   * @param file The capture to play back
+   * @param paced True to keep the captured timing, false to play as fast as possible
+   */
+  public ReplayTransport(Path file, boolean paced) {
+    this.file = file;
+    this.paced = paced;
+  }
+
+  @Override
+  public void connect(Listener listener) throws IOException {
+    var reader = new CaptureReader(file);
+    this.listener = listener;
+    open = true;
+
+    var thread = new Thread(() -> play(reader), "capture-replay");
+    thread.setDaemon(true);
+    player = thread;
+    thread.start();
+  }
+
+  /**
+   * Feed every inbound frame to the listener. Runs on the replay thread
+   * @param reader The capture
+   */
+  private void play(CaptureReader reader) {
+    long start = System.nanoTime();
+    long frames = 0;
+    try (reader) {
+      CapturedFrame frame;
+      while (open && (frame = reader.next()) != null) {
+        if (!frame.inbound()) {
+          continue;
+        }
+        if (paced) {
+          long wait = start + frame.nanos() - System.nanoTime();
+          if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+          }
+        }
+        listener.onActivity();
+        if (frame.binary() != null) {
+          listener.onBinary(frame.binary());
+        } else {
+          listener.onMessage(frame.text());
+        }
+        frames++;
+      }
+      logger.info("Replayed {} frames from {} in {}ms", frames, file,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      logger.error("Unable to replay {}: {}", file, e.getMessage());
+    }
+  }
+
+  @Override
+  public boolean send(String message) {
+    return open;
+  }
+
+  @Override
+  public boolean sendBinary(byte[] frame) {
+    return open;
+  }
+
+  @Override
+  public void ping() {
+    if (open) {
+      listener.onActivity();
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void disconnect() {
+    if (!open) {
+      return;
+    }
+    open = false;
+    var thread = player;
+    if (thread != null) {
+      thread.interrupt();
+    }
+    listener.onDisconnected(false);
+  }
+
+  @Override
+  public String toString() {
+    return "replay of " + file;
+  }
+}
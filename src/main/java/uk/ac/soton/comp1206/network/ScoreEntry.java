@@ -0,0 +1,11 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * A name and score pair, as sent by the server in a HISCORES message
+ *
+ * @param name The name of the player
+ * @param score The score the player achieved
+ */
+public record ScoreEntry(String name, int score) {
+
+}
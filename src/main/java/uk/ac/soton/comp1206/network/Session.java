@@ -0,0 +1,148 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Remembers what the server needs to be told to put us back where we were after a reconnect: our
+ * nickname, our channel and our latest score and lives. Messages sent while disconnected are kept
+ * in an outbox and replayed once the connection is back.
+ */
+public class Session {
+
+  /**
+   * The most messages kept while disconnected. The oldest are dropped beyond this
+   */
+  private final int outboxCapacity;
+
+  /**
+   * Messages sent while disconnected, oldest first
+   */
+  private final Deque<String> outbox = new ArrayDeque<>();
+
+  /**
+   * The last NICK message sent
+   */
+  private String nick;
+
+  /**
+   * The JOIN or CREATE message that put us in our current channel
+   */
+  private String channel;
+
+  /**
+   * The last SCORE message sent in the current channel
+   */
+  private String score;
+
+  /**
+   * The last LIVES message sent in the current channel
+   */
+  private String lives;
+
+  /**
+   * The number of messages dropped from a full outbox
+   */
+  private long dropped;
+
+  /**
+   * Create a new, empty session
+   * @param outboxCapacity The most messages to keep while disconnected
+   */
+  public Session(int outboxCapacity) {
+    this.outboxCapacity = outboxCapacity;
+  }
+
+  /**
+   * Record a message being sent to the server
+   * @param message The message
+   */
+  public synchronized void sent(String message) {
+    if (message.startsWith("NICK ")) {
+      nick = message;
+    } else if (message.startsWith("JOIN ") || message.startsWith("CREATE ")) {
+      channel = message;
+      score = null;
+      lives = null;
+    } else if (message.equals("PART")) {
+      channel = null;
+      score = null;
+      lives = null;
+    } else if (message.startsWith("SCORE ")) {
+      score = message;
+    } else if (message.startsWith("LIVES ")) {
+      lives = message;
+    }
+  }
+
+  /**
+   * Record a message being received from the server
+   * @param message The message
+   */
+  public synchronized void received(String message) {
+    if (message.startsWith("JOIN ")) {
+      //The channel exists now, so rejoin it rather than creating it again
+      channel = message;
+    } else if (message.startsWith("PARTED")) {
+      channel = null;
+    }
+  }
+
+  /**
+   * Keep a message that could not be sent because we are disconnected
+   * @param message The message
+   */
+  public synchronized void hold(String message) {
+    if (outbox.size() >= outboxCapacity) {
+      outbox.removeFirst();
+      dropped++;
+    }
+    outbox.addLast(message);
+  }
+
+  /**
+   * Get the messages to send after connecting, and empty the outbox. Our nickname and channel are
+   * restored first, then anything sent while disconnected, with only the latest score and lives
+   * @return The messages to send, in order
+   */
+  public synchronized List<String> replay() {
+    var messages = new ArrayList<String>();
+    if (nick != null) {
+      messages.add(nick);
+    }
+    if (channel != null) {
+      messages.add(channel);
+    }
+    for (String message : outbox) {
+      if (!isSessionState(message)) {
+        messages.add(message);
+      }
+    }
+    if (score != null) {
+      messages.add(score);
+    }
+    if (lives != null) {
+      messages.add(lives);
+    }
+    outbox.clear();
+    return messages;
+  }
+
+  /**
+   * Get the number of messages dropped from a full outbox
+   * @return The number of messages dropped
+   */
+  public synchronized long getDropped() {
+    return dropped;
+  }
+
+  /**
+   * Check whether a message is one the session replays from its own state
+   */
+  private static boolean isSessionState(String message) {
+    return message.startsWith("NICK ") || message.startsWith("JOIN ") || message.startsWith("CREATE ")
+        || message.equals("PART") || message.startsWith("SCORE ") || message.startsWith("LIVES ");
+  }
+}
@@ -0,0 +1,13 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * A listener registered with the Communicator, which can be cancelled to stop it receiving messages
+ */
+@FunctionalInterface
+public interface Subscription {
+
+  /**
+   * Stop the listener receiving messages. Cancelling more than once has no effect
+   */
+  void cancel();
+}
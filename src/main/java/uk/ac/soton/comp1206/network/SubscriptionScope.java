@@ -0,0 +1,47 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A group of subscriptions that are cancelled together, such as all the listeners added while one
+ * scene was showing
+ */
+public class SubscriptionScope {
+
+  /**
+   * The subscriptions in this scope
+   */
+  private final List<Subscription> subscriptions = new ArrayList<>();
+
+  /**
+   * True once the scope has been disposed
+   */
+  private boolean disposed = false;
+
+  /**
+   * Add a subscription to this scope. If the scope has already been disposed the subscription is
+   * cancelled straight away
+   * @param subscription The subscription to add
+   */
+  public synchronized void add(Subscription subscription) {
+    if (disposed) {
+      subscription.cancel();
+    } else {
+      subscriptions.add(subscription);
+    }
+  }
+
+  /**
+   * Cancel every subscription in this scope
+   */
+  public void dispose() {
+    List<Subscription> toCancel;
+    synchronized (this) {
+      disposed = true;
+      toCancel = new ArrayList<>(subscriptions);
+      subscriptions.clear();
+    }
+    toCancel.forEach(Subscription::cancel);
+  }
+}
@@ -0,0 +1,96 @@
+package uk.ac.soton.comp1206.network;
+
+import java.io.IOException;
+
+/**
+ * Carries text messages to and from a TetrECS server. A transport is connected at most once, so a
+ * new one is created for every connection attempt.
+ */
+public interface Transport {
+
+  /**
+   * Receives what happens on a transport
+   */
+  interface Listener {
+
+    /**
+     * Handle a text message from the server
+     * @param message The message
+     */
+    void onMessage(String message);
+
+    /**
+     * Handle a binary frame from the server
+     * @param frame The frame
+     */
+    void onBinary(byte[] frame);
+
+    /**
+     * Handle any sign of life from the server, including messages and pongs
+     */
+    void onActivity();
+
+    /**
+     * Handle the reply to a ping
+     * @param roundTripNanos The time since the ping was sent, in nanoseconds
+     */
+    void onPong(long roundTripNanos);
+
+    /**
+     * Handle the transport being closed
+     * @param closedByServer True if the server closed it
+     */
+    void onDisconnected(boolean closedByServer);
+  }
+
+  /**
+   * Connect to the server, waiting until connected
+   * @param listener Receives what happens on the transport from now on
+   * @throws IOException If the connection could not be made
+   */
+  void connect(Listener listener) throws IOException;
+
+  /**
+   * Send a text message
+   * @param message The message
+   * @return True if the message was sent, false if the transport is not open
+   */
+  boolean send(String message);
+
+  /**
+   * Send a binary frame
+   * @param frame The frame
+   * @return True if the frame was sent, false if the transport is not open
+   */
+  boolean sendBinary(byte[] frame);
+
+  /**
+   * Hold back everything sent from now on until flush is called, so that a batch of messages reaches
+   * the network in one write. Transports that do not buffer writes can ignore this
+   */
+  default void hold() {
+  }
+
+  /**
+   * Write out everything sent since hold was called, and go back to writing each message as it is
+   * sent
+   */
+  default void flush() {
+  }
+
+  /**
+   * Send a ping, whose reply is reported to the listener's onPong
+   */
+  void ping();
+
+  /**
+   * Check whether the transport is connected
+   * @return True if messages can be sent
+   */
+  boolean isOpen();
+
+  /**
+   * Close the transport
+   */
+  void disconnect();
+}
@@ -0,0 +1,182 @@
+package uk.ac.soton.comp1206.network;
+
+import com.neovisionaries.ws.client.WebSocket;
+import com.neovisionaries.ws.client.WebSocketAdapter;
+import com.neovisionaries.ws.client.WebSocketException;
+import com.neovisionaries.ws.client.WebSocketFactory;
+import com.neovisionaries.ws.client.WebSocketFrame;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Talks to a TetrECS server over a web socket.
+ */
+public class WebSocketTransport implements Transport {
+
+  private static final Logger logger = LogManager.getLogger(WebSocketTransport.class);
+
+  /**
+   * The web socket URL of the server
+   */
+  private final String server;
+
+  /**
+   * The socket, once connecting has started
+   */
+  private volatile WebSocket ws;
+
+  /**
+   * Create a new web socket transport. Nothing happens until it is connected
+   * @param server The web socket URL of the server
+   */
+  public WebSocketTransport(String server) {
+    this.server = server;
+  }
+
+  @Override
+  public void connect(Listener listener) throws IOException {
+    try {
+      var socket = new WebSocketFactory().setConnectionTimeout(5000).createSocket(server);
+      socket.addListener(new Adapter(listener));
+      ws = socket;
+      socket.connect();
+    } catch (WebSocketException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public boolean send(String message) {
+    var socket = ws;
+    if (socket == null || !socket.isOpen()) {
+      return false;
+    }
+    socket.sendText(message);
+    return true;
+  }
+
+  @Override
+  public boolean sendBinary(byte[] frame) {
+    var socket = ws;
+    if (socket == null || !socket.isOpen()) {
+      return false;
+    }
+    socket.sendBinary(frame);
+    return true;
+  }
+
+  /**
+   * Stop the socket flushing after every frame, until flush is called
+   */
+  @Override
+  public void hold() {
+    var socket = ws;
+    if (socket != null) {
+      socket.setAutoFlush(false);
+    }
+  }
+
+  @Override
+  public void flush() {
+    var socket = ws;
+    if (socket != null) {
+      socket.setAutoFlush(true);
+      socket.flush();
+    }
+  }
+
+  /**
+   * Send a ping stamped with the time it was sent, which the server echoes back in the pong
+   */
+  @Override
+  public void ping() {
+    var socket = ws;
+    if (socket != null && socket.isOpen()) {
+      socket.sendPing(ByteBuffer.allocate(Long.BYTES).putLong(System.nanoTime()).array());
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    var socket = ws;
+    return socket != null && socket.isOpen();
+  }
+
+  @Override
+  public void disconnect() {
+    var socket = ws;
+    if (socket != null) {
+      socket.disconnect();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return server;
+  }
+
+  /**
+   * Passes what happens on the socket to the transport listener
+   */
+  private static class Adapter extends WebSocketAdapter {
+
+    /**
+     * The transport listener
+     */
+    private final Listener listener;
+
+    /**
+     * Create a new adapter
+     * @param listener The transport listener
+     */
+    private Adapter(Listener listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void onFrame(WebSocket websocket, WebSocketFrame frame) {
+      listener.onActivity();
+    }
+
+    @Override
+    public void onTextMessage(WebSocket websocket, String message) {
+      listener.onMessage(message);
+    }
+
+    @Override
+    public void onBinaryMessage(WebSocket websocket, byte[] binary) {
+      listener.onBinary(binary);
+    }
+
+    @Override
+    public void onPingFrame(WebSocket websocket, WebSocketFrame frame) {
+      logger.debug("Ping? Pong!");
+    }
+
+    @Override
+    public void onPongFrame(WebSocket websocket, WebSocketFrame frame) {
+      var payload = frame.getPayload();
+      if (payload != null && payload.length == Long.BYTES) {
+        listener.onPong(System.nanoTime() - ByteBuffer.wrap(payload).getLong());
+      }
+    }
+
+    @Override
+    public void onDisconnected(WebSocket websocket, WebSocketFrame serverCloseFrame,
+        WebSocketFrame clientCloseFrame, boolean closedByServer) {
+      listener.onDisconnected(closedByServer);
+    }
+
+    @Override
+    public void handleCallbackError(WebSocket websocket, Throwable throwable) {
+      logger.error("Callback Error: {}", throwable.getMessage(), throwable);
+    }
+
+    @Override
+    public void onError(WebSocket websocket, WebSocketException e) {
+      logger.error("Error: {}", e.getMessage());
+    }
+  }
+}
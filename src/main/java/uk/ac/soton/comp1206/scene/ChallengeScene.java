@@ -1,14 +1,11 @@
 package uk.ac.soton.comp1206.scene;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.Set;
-import java.util.stream.Stream;
 import javafx.animation.Interpolator;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.input.KeyEvent;
@@ -30,6 +27,8 @@ import uk.ac.soton.comp1206.component.GameBoard;
 import uk.ac.soton.comp1206.component.PieceBoard;
 import uk.ac.soton.comp1206.game.Game;
 import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.scores.ScoreService;
+import uk.ac.soton.comp1206.scores.ScoreStore;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 import uk.ac.soton.comp1206.utilities.Multimedia;
@@ -105,7 +104,6 @@ public class ChallengeScene extends BaseScene {
   public ChallengeScene(GameWindow gameWindow) {
     super(gameWindow);
     logger.info("Creating Challenge Scene");
-    Multimedia.stopBackgroundMusic();
     Multimedia.playBackgroundMusic("game.mp3");
 
   }
@@ -203,24 +201,15 @@ public class ChallengeScene extends BaseScene {
     highScoreBox.setSpacing(2);
     highScoreBox.setAlignment(Pos.CENTER);
     var highScoreLabel = new Text(ResourceBundleHolder.getResourceBundle().getString("highscore"));
-    Text highScore = new Text();
-    try {
-      String firstLine;
-      try (Stream<String> lines = Files.lines(Paths.get("scores.txt"))) {
-        firstLine = lines.findFirst().orElse(null);
+    Text highScore = new Text(ResourceBundleHolder.getResourceBundle().getString("loading"));
+    gameWindow.getScoreService().submit(ScoreStore::highScore).whenComplete((best, error) -> Platform.runLater(() -> {
+      if (error != null) {
+        logger.error("Unable to read the high score: {}", ScoreService.describe(error));
+        highScore.setText(ResourceBundleHolder.getResourceBundle().getString("scoresUnavailable"));
+      } else {
+        highScore.setText(best == null ? "" : best.name()+":"+best.score());
       }
-      if (firstLine != null) {
-        String[] parts = firstLine.split(":");
-        if(parts.length==2){
-          var name = parts[0];
-          var score = Integer.parseInt(parts[1]);
-
-          highScore.setText(name+":"+score);
-        }
-      }
-    } catch (IOException e) {
-      logger.error("There is a problem in the syntax of the score text file");
-    }
+    }));
     highScoreLabel.getStyleClass().add("heading");
     highScore.getStyleClass().add("level");
     highScoreBox.getChildren().addAll(highScoreLabel, highScore);
@@ -381,6 +370,9 @@ public class ChallengeScene extends BaseScene {
 
     currentPieceBoard.setOnRotatePieceListener(this::rotatePieceRight);
     nextPieceBoard.setOnSwapPieceListener(this::swapPiece);
+
+    //Fetch the high scores during the game so the scores screen can show them straight away
+    gameWindow.getOnlineScores().prefetch();
   }
 
 
@@ -403,6 +395,7 @@ public class ChallengeScene extends BaseScene {
    */
   private void rotatePieceRight() {
     currentPieceBoard.rotatePieceRight();
+    game.getTelemetry().rotated();
   }
 
   /**
@@ -410,6 +403,7 @@ public class ChallengeScene extends BaseScene {
    */
   private void rotatePieceLeft() {
     currentPieceBoard.rotatePieceLeft();
+    game.getTelemetry().rotated();
   }
 
   /**
@@ -535,6 +529,9 @@ public class ChallengeScene extends BaseScene {
    * End the game and open the score scene
    */
   private void openScore(){
+      if(!gameover){
+        gameWindow.getTelemetryLog().record(game.getTelemetry(), game.getScore());
+      }
       gameover=true;
       game.stopTime();
       gameWindow.startNewScoreScene(game);
@@ -1,11 +1,11 @@
 package uk.ac.soton.comp1206.scene;
 
+import java.util.List;
 import java.util.Objects;
-import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
 import javafx.geometry.Insets;
 import javafx.scene.control.Button;
 import javafx.scene.control.Dialog;
-import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.BorderPane;
@@ -15,6 +15,10 @@ import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.component.ChatView;
+import uk.ac.soton.comp1206.component.KeyedList;
+import uk.ac.soton.comp1206.network.ChatMessage;
+import uk.ac.soton.comp1206.network.Command;
 import uk.ac.soton.comp1206.network.Communicator;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
@@ -37,15 +41,25 @@ public class LobbyScene extends BaseScene {
    */
   private BorderPane mainPane;
 
+  /**
+   * The left of the lobby, showing either the open channels or the current channel at the top
+   */
+  private VBox leftBox;
+
   /**
    * A list of available channels to be joined
    */
-  private VBox channelList;
+  private KeyedList channelList;
+
+  /**
+   * Shows the channel joined in place of the channel list
+   */
+  private VBox currentChannelBox;
 
   /**
    * The list of all current users in a channel
    */
-  private VBox userList;
+  private KeyedList userList;
 
   /**
    * True when in a channel false otherwise
@@ -57,10 +71,16 @@ public class LobbyScene extends BaseScene {
    */
   private Boolean isHost = false;
 
+  /**
+   * The most chat lines held in memory, set with the tetrecs.chatLimit property. Older lines are
+   * paged back in from disk
+   */
+  private static final int CHAT_LIMIT = Integer.getInteger("tetrecs.chatLimit", 500);
+
   /**
    * Holds the messages received and sent in the chat box
    */
-  private final ListView<String> messages = new ListView<>();
+  private final ChatView messages = new ChatView(CHAT_LIMIT);
 
   /**
    * Create a new Multiplayer Lobby
@@ -96,7 +116,9 @@ public class LobbyScene extends BaseScene {
           communicator.send("PART");
           inChannel=false;
           communicator.send("LIST");
-          userList.getChildren().clear();
+          userList.clear();
+          userList.setVisible(false);
+          leftBox.getChildren().set(0, channelList);
           mainPane.setRight(null);
         }else{
           gameWindow.startMenu(true);
@@ -104,9 +126,17 @@ public class LobbyScene extends BaseScene {
       }
     });
 
-    communicator.addListener((message) -> Platform.runLater(() -> this.receiveMessage(message)));
+    communicator.addFxListener(Command.CHANNELS, this::receiveChannels);
+    communicator.addFxListener(Command.USERS, this::receiveUsers);
+    communicator.addFxListener(Command.JOIN, this::receiveJoin);
+    communicator.addFxListener(Command.MSG, this::receiveChat);
+    communicator.addListener(Command.ERROR, logger::error);
+
+    messages.getStyleClass().add("messagePane");
+    messages.setOpacity(0.4);
 
     mainPane.setLeft(createLeftBox());
+    mainPane.setBottom(createConnectionStatus());
 
 
   }
@@ -134,21 +164,44 @@ public class LobbyScene extends BaseScene {
     });
     var messageBox = new HBox(textField,sendButton);
 
-    channelList = new VBox();
-    var title = new Text(ResourceBundleHolder.getResourceBundle().getString("openChannels"));
-    title.getStyleClass().add("title");
-    channelList.getChildren().add(title);
+    channelList = new KeyedList(ResourceBundleHolder.getResourceBundle().getString("openChannels"), name -> {
+      var channel = new Text(name);
+      channel.getStyleClass().add("lobbyitem");
+      channel.setOnMouseClicked(e-> communicator.send("JOIN "+name));
+      return channel;
+    });
 
-    userList = new VBox();
+    currentChannelBox = new VBox();
+
+    userList = new KeyedList(ResourceBundleHolder.getResourceBundle().getString("users"), name -> {
+      var user = new Text(name);
+      user.getStyleClass().add("lobbyitem2");
+      return user;
+    });
+    userList.setVisible(false);
 
 
     communicator.send("LIST");
 
-    var leftBox = new VBox(channelList,messageBox,userList);
+    leftBox = new VBox(channelList,messageBox,userList);
     leftBox.setPadding(new Insets(0, 0, 0, 10));
     return leftBox;
   }
 
+  /**
+   * Create a text showing the state of the connection to the server
+   * @return The text, which updates as the connection state changes
+   */
+  private Text createConnectionStatus() {
+    var status = new Text();
+    status.textProperty().bind(Bindings.createStringBinding(
+        () -> ResourceBundleHolder.getResourceBundle().getString(communicator.connectionStateProperty().get().getTextKey()),
+        communicator.connectionStateProperty()));
+    status.getStyleClass().add("lobbyitem2");
+    BorderPane.setMargin(status, new Insets(0, 0, 10, 10));
+    return status;
+  }
+
   /**
    * Create the right ui components of the lobby scene
    * @return The VBox containing the ui components
@@ -209,84 +262,53 @@ public class LobbyScene extends BaseScene {
       gameWindow.startMultiplayerGame(communicator);
     });
 
-    var rightBox = new VBox(messages, new HBox(startButton,messageField,sendButton));
-    messages.getStyleClass().add("messagePane");
-    messages.setOpacity(0.4);
-    return rightBox;
+    return new VBox(messages, new HBox(startButton,messageField,sendButton));
   }
 
   /**
-   * Handles the receiving of communications from the communicator
-   * @param communication The communication received
+   * Handles the list of open channels being received
+   * @param channels The names of the open channels
    */
-  private void receiveMessage(String communication){
-    if (communication.split(" ")[0].equals("CHANNELS")&&!inChannel) {
-      channelList.getChildren().clear();
-      logger.info("Channel List Cleared");
-      var title = new Text(ResourceBundleHolder.getResourceBundle().getString("openChannels"));
-      title.getStyleClass().add("title");
-      channelList.getChildren().add(title);
-      logger.info("Title added");
-      String channels = communication.replaceFirst("CHANNELS ", "");
-      logger.info(channels);
-      String[] lines = channels.split("\n");
-
-      for (String line : lines) {
-        logger.info("{} is a channel", line);
-        var channel = new Text(line);
-        channel.getStyleClass().add("lobbyitem");
-        channel.setOnMouseClicked(e-> communicator.send("JOIN "+channel.getText()));
-        channel.setOnMouseEntered(event -> channel.getStyleClass().add("lobbyitem:hover"));
-        channelList.getChildren().add(channel);
-      }
-    }
-
-    if (communication.split(" ")[0].equals("USERS")) {
-      userList.getChildren().clear();
-      logger.info("User List Cleared");
-      var userTitle = new Text(ResourceBundleHolder.getResourceBundle().getString("users"));
-      userTitle.getStyleClass().add("title");
-      userList.getChildren().add(userTitle);
-      logger.info("Title added");
-      String users = communication.replaceFirst("USERS ", "");
-      logger.info(users);
-      String[] lines = users.split("\n");
-
-      for (String line : lines) {
-        logger.info("{} is a user", line);
-        var user = new Text(line);
-        user.getStyleClass().add("lobbyitem2");
-        userList.getChildren().add(user);
-      }
+  private void receiveChannels(List<String> channels){
+    if (inChannel) {
+      return;
     }
+    channelList.update(channels);
+  }
 
-    if (communication.split(" ")[0].equals("JOIN")) {
-      inChannel = true;
-      mainPane.setRight(createRightBox());
-      channelList.getChildren().clear();
-      logger.info("Channel List Cleared");
-      var channelTitle = new Text(ResourceBundleHolder.getResourceBundle().getString("currentChannel"));
-      channelTitle.getStyleClass().add("title");
-      channelList.getChildren().add(channelTitle);
-      logger.info("Title added");
-      String channel = communication.replaceFirst("JOIN ", "");
-
-      logger.info("{} is the current channel", channel);
-      var currentChannel = new Text(channel);
-      currentChannel.getStyleClass().add("scoreitem");
-      channelList.getChildren().add(currentChannel);
-    }
+  /**
+   * Handles the list of users in the current channel being received
+   * @param users The names of the users in the channel
+   */
+  private void receiveUsers(List<String> users){
+    userList.update(users);
+    userList.setVisible(true);
+  }
 
-    if (communication.split(" ")[0].equals("MSG")) {
-      var message = communication.replaceFirst("MSG ", "");
-      logger.info(message);
-      messages.getItems().add(message);
-    }
+  /**
+   * Handles a channel being joined
+   * @param channel The name of the channel joined
+   */
+  private void receiveJoin(String channel){
+    inChannel = true;
+    mainPane.setRight(createRightBox());
+    logger.info("Joined {}", channel);
+
+    var channelTitle = new Text(ResourceBundleHolder.getResourceBundle().getString("currentChannel"));
+    channelTitle.getStyleClass().add("title");
+    var currentChannel = new Text(channel);
+    currentChannel.getStyleClass().add("scoreitem");
+    currentChannelBox.getChildren().setAll(channelTitle, currentChannel);
+    leftBox.getChildren().set(0, currentChannelBox);
+  }
 
-    if (communication.split(" ")[0].equals("ERROR")) {
-      var errorMessage = communication.replaceFirst("ERROR ", "");
-      logger.error(errorMessage);
-    }
+  /**
+   * Handles a chat message being received
+   * @param message The chat message
+   */
+  private void receiveChat(ChatMessage message){
+    logger.debug(message);
+    messages.append(message.toString());
   }
 
   /**
@@ -294,6 +316,10 @@ public class LobbyScene extends BaseScene {
    */
   @Override
   public void initialise() {
-
+    scene.windowProperty().addListener((observable, oldWindow, window) -> {
+      if (window == null) {
+        messages.getHistory().close();
+      }
+    });
   }
 }
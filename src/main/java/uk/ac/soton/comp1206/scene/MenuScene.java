@@ -19,6 +19,7 @@ import javafx.scene.transform.Rotate;
 import javafx.util.Duration;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.App;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 import uk.ac.soton.comp1206.utilities.Multimedia;
@@ -113,7 +114,7 @@ public class MenuScene extends BaseScene {
         multiPlayer.setOnMouseClicked(this::startMultiPlayer);
         howToPlay.setOnMouseClicked(this::startHowToPlayScene);
         settingScene.setOnMouseClicked(this::startSettingScene);
-        exit.setOnMouseClicked(e-> System.exit(0));
+        exit.setOnMouseClicked(e-> App.getInstance().shutdown());
     }
 
     /**
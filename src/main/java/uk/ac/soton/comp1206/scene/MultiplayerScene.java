@@ -1,14 +1,18 @@
 package uk.ac.soton.comp1206.scene;
 
-import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
-import javafx.util.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.component.Leaderboard;
+import uk.ac.soton.comp1206.component.OpponentBoards;
 import uk.ac.soton.comp1206.game.MultiplayerGame;
+import uk.ac.soton.comp1206.network.Command;
 import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.network.PlayerScore;
 import uk.ac.soton.comp1206.ui.GameWindow;
+import uk.ac.soton.comp1206.utilities.ResourceBundleHolder;
 
 /**
  * The MultiplayerScene
@@ -17,6 +21,12 @@ public class MultiplayerScene extends ChallengeScene{
 
   private static final Logger logger = LogManager.getLogger(MultiplayerScene.class);
 
+  /**
+   * The most times a second each opponent's board is redrawn, set with the tetrecs.opponentRate
+   * property
+   */
+  private static final double OPPONENT_RATE = Double.parseDouble(System.getProperty("tetrecs.opponentRate", "10"));
+
   /**
    * The communicator associated with the multiplayer scene
    */
@@ -41,33 +51,36 @@ public class MultiplayerScene extends ChallengeScene{
     game = new MultiplayerGame(5,5, communicator);
   }
 
+  /**
+   * Start the game once the first pieces have arrived from the server, so the opening pieces are
+   * the shared ones rather than random stand-ins
+   */
   @Override
-  public VBox createScore(){
-    var scoreBox = new VBox();
-    communicator.addListener((message) -> Platform.runLater(() -> {
-      if (message.split(" ")[0].equals("SCORES")) {
-        logger.info(message);
-        //Remove the message header and split it into separate lines
-        String scores = message.replaceFirst("SCORES", "");
-        String[] lines = scores.split("\n");
-
-        //Go through the message line by line and add it to a VBox to be displayed
-        for (String line : lines) {
-          String[] parts = line.split(":");
-          String name = parts[0];
-          int score = Integer.parseInt(parts[1]);
-          String lives = parts[2];
-          Text scoreItem = new Text(name + ":" + score + ":" + lives);
-          scoreItem.getStyleClass().add("heading");
-          scoreBox.getChildren().clear();
-          scoreBox.getChildren().addAll(scoreItem);
-        }
-      }else{
-        logger.info("Error in setting multiplayer score");
+  public void initialise() {
+    ((MultiplayerGame) game).getPieceQueue().whenFull(() -> {
+      if (gameWindow.getScene() == scene) {
+        super.initialise();
       }
+    });
+  }
 
-
-    }));
+  @Override
+  public VBox createScore(){
+    var connectionStatus = new Text();
+    connectionStatus.textProperty().bind(Bindings.createStringBinding(
+        () -> ResourceBundleHolder.getResourceBundle().getString(communicator.connectionStateProperty().get().getTextKey()),
+        communicator.connectionStateProperty()));
+    connectionStatus.getStyleClass().add("lobbyitem2");
+    var leaderboard = new Leaderboard();
+    var opponents = new OpponentBoards(game.getCols(), game.getRows(), 80, 300, OPPONENT_RATE);
+    var scoreBox = new VBox(leaderboard, opponents, connectionStatus);
+    communicator.addFxListener(Command.SCORES, (scores) -> {
+      logger.debug(scores);
+      leaderboard.update(scores);
+      opponents.retain(scores.stream().map(PlayerScore::name).toList());
+    });
+    communicator.addFxListener(Command.BOARD, opponents::apply);
+    communicator.addFxListener(Command.BOARDDELTA, opponents::apply);
     communicator.send("SCORES");
     return scoreBox;
   }
@@ -1,11 +1,9 @@
 package uk.ac.soton.comp1206.scene;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 import javafx.animation.Animation;
 import javafx.animation.RotateTransition;
 import javafx.application.Platform;
@@ -29,6 +27,10 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.game.Game;
 import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.scores.ScoreRanking;
+import uk.ac.soton.comp1206.scores.ScoreRecord;
+import uk.ac.soton.comp1206.scores.ScoreService;
+import uk.ac.soton.comp1206.scores.ScoreStore;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 import uk.ac.soton.comp1206.component.ScoreList;
@@ -55,6 +57,11 @@ public class ScoresScene extends BaseScene{
    */
   private SimpleListProperty<Pair<String, Integer>> onlineScores;
 
+  /**
+   * Shows where the latest score ranks among the local scores
+   */
+  private final Text rank = new Text();
+
   /**
    * The name of the person who has set the latest score
    */
@@ -119,12 +126,7 @@ public class ScoresScene extends BaseScene{
     ArrayList<Pair<String,Integer>> localScoresArrayList = new ArrayList<>();
     localScores = new SimpleListProperty<>(FXCollections.observableArrayList(localScoresArrayList));
     localScoresBox.scoresProperty().bind(localScores);
-    if(!Objects.equals(scoreHolder, "")){
-      localScores.add(new Pair<>(scoreHolder, game.getScore()));
-    }
     loadLocalScores();
-    localScores.sort((p1, p2) -> p2.getValue() - p1.getValue());
-    writeScores();
 
     ScoreList onlineScoresBox = new ScoreList();
     onlineScoresBox.setAlignment(Pos.TOP_RIGHT);
@@ -134,10 +136,6 @@ public class ScoresScene extends BaseScene{
 
 
     loadOnlineScores();
-    onlineScores.sort((p1, p2) -> p2.getValue() - p1.getValue());
-
-
-
 
     var localHeading = new Text(ResourceBundleHolder.getResourceBundle().getString("localScore"));
     localHeading.getStyleClass().add("heading");
@@ -155,7 +153,9 @@ public class ScoresScene extends BaseScene{
     scoreBox.setSpacing(100);
     scoreBox.setAlignment(Pos.CENTER);
 
-    var centerBox = new VBox(headingBox, scoreBox);
+    rank.getStyleClass().add("heading");
+
+    var centerBox = new VBox(headingBox, scoreBox, rank);
     centerBox.setSpacing(20);
     centerBox.setAlignment(Pos.CENTER);
 
@@ -196,56 +196,64 @@ public class ScoresScene extends BaseScene{
   }
 
   /**
-   * Load the scores stored locally
+   * The best local scores, and where the latest score ranks among all of them
+   *
+   * @param top The best scores, highest first
+   * @param place The rank of the latest score, or 0 if it wasn't saved
+   * @param of The number of local scores
    */
-  private void loadLocalScores(){
-    try {
-      Files.lines(Paths.get("scores.txt")).forEach(line -> {
-        String[] parts = line.split(":");
-        if(parts.length==2){
-          var name = parts[0];
-          var score = Integer.parseInt(parts[1]);
-
-          localScores.add(new Pair<>(name, score));
-        }
-      });
-    } catch (IOException e) {
-      logger.error("There is a problem in the syntax of the score text file");
-    }
+  private record LocalScores(List<ScoreRecord> top, int place, long of) {
+
   }
 
   /**
-   * Load the scores from the server
+   * Save the latest score, if it was given a name, and show the best scores stored locally once they
+   * have been read in the background
    */
-  private void loadOnlineScores(){
-    communicator.addListener((message) -> Platform.runLater(() -> {
-        logger.info(message);
-        String scores = message.replaceFirst("HISCORES ", "");
-        String[] lines = scores.split("\n");
-
-        for(String line: lines){
-          String[] parts = line.split(":");
-          String name = parts[0];
-          int score = Integer.parseInt(parts[1]);
-
-          onlineScores.add(new Pair<>(name, score));
-        }
+  private void loadLocalScores(){
+    var bundle = ResourceBundleHolder.getResourceBundle();
+    var save = !Objects.equals(scoreHolder, "");
+    var score = game.getScore();
+    rank.setText(bundle.getString("loading"));
+
+    gameWindow.getScoreService().submit(store -> {
+      int place = 0;
+      if(save){
+        store.add(scoreHolder, score);
+        place = store.ranking().rankOf(score);
+      }
+      return new LocalScores(store.top(), place, store.size());
+    }).whenComplete((loaded, error) -> Platform.runLater(() -> {
+      if(error != null){
+        logger.error("Unable to load the local scores: {}", ScoreService.describe(error));
+        rank.setText(bundle.getString("scoresUnavailable"));
+        return;
+      }
+      localScores.setAll(loaded.top().stream().map(record -> new Pair<>(record.name(), record.score())).toList());
+      rank.setText(loaded.place() == 0 ? "" : MessageFormat.format(bundle.getString("yourRank"),
+          loaded.place(), loaded.of(), (int) Math.ceil(100.0 * loaded.place() / loaded.of())));
     }));
-    communicator.send("HISCORES");
   }
 
   /**
-   * Write scores to the locally stored file
+   * Show the scores from the server, straight away if they are held and again if fresher ones arrive
    */
-  private void writeScores(){
-    try{
-      Files.write(Paths.get("scores.txt"),localScores.stream().map(score -> score.getKey() + ":" + score.getValue()).collect(
-          Collectors.toList()));
-    } catch (IOException e) {
-      logger.info("Problem writing scores");
+  private void loadOnlineScores(){
+    var cached = gameWindow.getOnlineScores().get(this::showOnlineScores);
+    if(cached != null){
+      showOnlineScores(cached);
     }
   }
 
+  /**
+   * Show the best scores from the server
+   * @param ranking The scores from the server
+   */
+  private void showOnlineScores(ScoreRanking ranking){
+    onlineScores.setAll(ranking.top(ScoreStore.TOP).stream()
+        .map(score -> new Pair<>(score.name(), score.score())).toList());
+  }
+
   /**
    * Initialize the ScoreScene
    */
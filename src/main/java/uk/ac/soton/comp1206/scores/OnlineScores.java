@@ -0,0 +1,143 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.network.Command;
+import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.network.ScoreEntry;
+
+/**
+ * The server's high scores, shared by every scene. The last list received is kept and handed out
+ * straight away, and once it is older than its time to live the next caller also gets a fresh copy
+ * when it arrives. Only one HISCORES request is out at a time, however many scenes ask, and the list
+ * is ranked on the communicator's delivery thread rather than the JavaFX Application Thread.
+ */
+public class OnlineScores {
+
+  private static final Logger logger = LogManager.getLogger(OnlineScores.class);
+
+  /**
+   * How long to wait for a reply before asking again, in milliseconds
+   */
+  private static final long REQUEST_TIMEOUT = 10_000;
+
+  /**
+   * Talks to the server
+   */
+  private final Communicator communicator;
+
+  /**
+   * How long a list is fresh for, in milliseconds
+   */
+  private final long ttl;
+
+  /**
+   * The last list received, in rank order, or null before the first arrives
+   */
+  private ScoreRanking ranking;
+
+  /**
+   * The last list received, as sent, to tell whether a new one has changed
+   */
+  private List<ScoreEntry> entries;
+
+  /**
+   * When the last list arrived
+   */
+  private long fetched;
+
+  /**
+   * When the request in flight was sent, or 0 if there is none
+   */
+  private long requested = 0;
+
+  /**
+   * Callers waiting for the request in flight
+   */
+  private final List<Consumer<ScoreRanking>> waiting = new ArrayList<>();
+
+  /**
+   * Create a new cache of the server's high scores. Nothing is asked for until it is first used
+   * @param communicator Talks to the server
+   * @param ttl How long a list is fresh for, in milliseconds
+   */
+  public OnlineScores(Communicator communicator, long ttl) {
+    this.communicator = communicator;
+    this.ttl = ttl;
+    communicator.addLastingListener(Command.HISCORES, this::received);
+  }
+
+  /**
+   * Get the high scores. If the list held is missing or stale a fresh one is asked for, and handed to
+   * the callback on the JavaFX Application Thread when it arrives, unless it is unchanged
+   * @param callback Given the fresh list, if one is asked for
+   * @return The list held, which may be stale, or null if there is none yet
+   */
+  public synchronized ScoreRanking get(Consumer<ScoreRanking> callback) {
+    if (ranking == null || System.currentTimeMillis() - fetched > ttl) {
+      waiting.add(callback);
+      request();
+    }
+    return ranking;
+  }
+
+  /**
+   * Ask for the high scores ahead of time if the list held is missing or stale, so they are ready when
+   * next shown
+   */
+  public synchronized void prefetch() {
+    if (ranking == null || System.currentTimeMillis() - fetched > ttl) {
+      request();
+    }
+  }
+
+  /**
+   * Send a HISCORES request unless one is already in flight
+   */
+  private void request() {
+    long now = System.currentTimeMillis();
+    if (requested != 0 && now - requested < REQUEST_TIMEOUT) {
+      return;
+    }
+    requested = now;
+    communicator.send("HISCORES");
+  }
+
+  /**
+   * Rank a list from the server and hand it to the callers waiting. Called on the delivery thread, so
+   * lists are handled one at a time
+   * @param scores The scores, in the order the server sent them
+   */
+  private void received(List<ScoreEntry> scores) {
+    List<Consumer<ScoreRanking>> callbacks;
+    synchronized (this) {
+      fetched = System.currentTimeMillis();
+      requested = 0;
+      callbacks = new ArrayList<>(waiting);
+      waiting.clear();
+      if (scores.equals(entries)) {
+        logger.debug("High scores unchanged");
+        return;
+      }
+    }
+
+    //Ties keep the order the server sent them in
+    var records = new ArrayList<ScoreRecord>(scores.size());
+    for (ScoreEntry score : scores) {
+      records.add(new ScoreRecord(score.name(), score.score(), records.size()));
+    }
+    var ranked = new ScoreRanking();
+    ranked.load(records);
+
+    synchronized (this) {
+      ranking = ranked;
+      entries = scores;
+    }
+    logger.debug("Received {} high scores", scores.size());
+    Platform.runLater(() -> callbacks.forEach(callback -> callback.accept(ranked)));
+  }
+}
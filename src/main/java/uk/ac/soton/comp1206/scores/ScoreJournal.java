@@ -0,0 +1,195 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The scores added since the score store was last compacted. Scores are only ever appended, each as
+ * a CRC32 followed by a record in the store's layout, so a crash can only leave a torn or corrupt
+ * record at the end, which is dropped when the journal is next opened.
+ *
+ * <p>The header holds a generation, which goes up each time the journal is emptied after compaction.
+ * The store records the generation it has folded in, so a journal left over from a compaction that
+ * was interrupted after the store was replaced is recognised and not applied twice.
+ */
+class ScoreJournal implements Closeable {
+
+  private static final Logger logger = LogManager.getLogger(ScoreJournal.class);
+
+  /**
+   * The first four bytes of a journal, "TSJN"
+   */
+  static final int MAGIC = 0x54534A4E;
+
+  /**
+   * The version of the file layout
+   */
+  static final int VERSION = 1;
+
+  /**
+   * The size of the header: magic, version and generation
+   */
+  static final int HEADER = 16;
+
+  /**
+   * The size of an entry: a checksum then a record
+   */
+  static final int ENTRY = 4 + ScoreStore.RECORD;
+
+  /**
+   * The journal
+   */
+  private final Path file;
+
+  /**
+   * The open journal
+   */
+  private FileChannel channel;
+
+  /**
+   * The generation of the journal
+   */
+  private long generation;
+
+  /**
+   * The length of the valid part of the journal
+   */
+  private long length;
+
+  /**
+   * Create a new journal. Nothing is read until it is opened
+   * @param file The journal
+   */
+  ScoreJournal(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Open the journal, creating it if needed, and read back the scores in it. A torn or corrupt tail is
+   * cut off. A journal the store has already folded in is emptied
+   * @param folded The generation the store has folded in
+   * @return The scores in the journal, oldest first
+   * @throws IOException If the journal can't be opened
+   */
+  List<ScoreRecord> open(long folded) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    var scores = new ArrayList<ScoreRecord>();
+    long size = channel.size();
+
+    var header = ByteBuffer.allocate(HEADER);
+    if (size < HEADER || read(header, 0) < HEADER || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+      if (size > 0) {
+        logger.warn("Ignoring unreadable score journal {}", file);
+      }
+      reset(folded + 1);
+      return scores;
+    }
+    generation = header.getLong(8);
+    if (generation <= folded) {
+      logger.info("Score journal {} was already compacted", file);
+      reset(folded + 1);
+      return scores;
+    }
+
+    var entries = ByteBuffer.allocate((int) (size - HEADER));
+    read(entries, HEADER);
+    var crc = new CRC32();
+    int valid = 0;
+    while (valid + ENTRY <= entries.limit()) {
+      crc.reset();
+      crc.update(entries.slice(valid + 4, ScoreStore.RECORD));
+      if ((int) crc.getValue() != entries.getInt(valid)) {
+        break;
+      }
+      scores.add(ScoreStore.get(entries, valid + 4));
+      valid += ENTRY;
+    }
+    length = HEADER + valid;
+    if (length < size) {
+      logger.warn("Dropped {} bytes of torn or corrupt score journal {}", size - length, file);
+      channel.truncate(length);
+      channel.force(true);
+    }
+    return scores;
+  }
+
+  /**
+   * Append scores and flush them to disk, with one flush for all of them
+   * @param scores The scores
+   * @throws IOException If they can't be written
+   */
+  void write(List<ScoreRecord> scores) throws IOException {
+    var buffer = ByteBuffer.allocate(scores.size() * ENTRY);
+    var crc = new CRC32();
+    for (var score : scores) {
+      int start = buffer.position();
+      buffer.position(start + 4);
+      ScoreStore.put(buffer, score);
+      crc.reset();
+      crc.update(buffer.slice(start + 4, ScoreStore.RECORD));
+      buffer.putInt(start, (int) crc.getValue());
+    }
+    buffer.flip();
+    long position = length;
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+    channel.force(false);
+    length = position;
+  }
+
+  /**
+   * Empty the journal and start a new generation
+   * @param generation The new generation
+   * @throws IOException If the journal can't be written
+   */
+  void reset(long generation) throws IOException {
+    var header = ByteBuffer.allocate(HEADER);
+    header.putInt(MAGIC).putInt(VERSION).putLong(generation).flip();
+    channel.truncate(0);
+    while (header.hasRemaining()) {
+      channel.write(header, header.position());
+    }
+    channel.force(true);
+    this.generation = generation;
+    length = HEADER;
+  }
+
+  /**
+   * Get the generation of the journal
+   * @return The generation
+   */
+  long getGeneration() {
+    return generation;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  /**
+   * Fill a buffer from the journal, or as much of it as there is
+   * @return The bytes read
+   */
+  private int read(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        break;
+      }
+    }
+    return buffer.flip().limit();
+  }
+}
@@ -0,0 +1,316 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Scores in rank order, highest first, answering rank, top and percentile questions in O(log n). Ties
+ * go to the score set first, then by name.
+ *
+ * <p>The scores are held in a scapegoat tree where each node knows the size of its subtree. Loading
+ * many scores at once sorts them and builds a balanced tree directly. Adding one walks down the tree,
+ * and if the new node ends up too deep the smallest unbalanced subtree above it is rebuilt, which
+ * keeps the tree within a constant factor of balanced at an amortised O(log n) per score.
+ */
+public class ScoreRanking {
+
+  /**
+   * Highest score first, then the score set first, then by name
+   */
+  public static final Comparator<ScoreRecord> ORDER = Comparator.comparingInt(ScoreRecord::score).reversed()
+      .thenComparingLong(ScoreRecord::timestamp)
+      .thenComparing(ScoreRecord::name);
+
+  /**
+   * How unbalanced a subtree can get before it is rebuilt: no child may hold more than this share of
+   * its parent's subtree
+   */
+  private static final double ALPHA = 0.7;
+
+  /**
+   * A score in the tree
+   */
+  private static final class Node {
+
+    private final ScoreRecord score;
+    private Node left;
+    private Node right;
+
+    /**
+     * The number of scores in this subtree
+     */
+    private int size = 1;
+
+    private Node(ScoreRecord score) {
+      this.score = score;
+    }
+  }
+
+  /**
+   * The root of the tree, or null if empty
+   */
+  private Node root;
+
+  /**
+   * Replace every score
+   * @param scores The new scores, in any order
+   */
+  public synchronized void load(Collection<ScoreRecord> scores) {
+    var sorted = scores.toArray(new ScoreRecord[0]);
+    Arrays.parallelSort(sorted, ORDER);
+    var nodes = new Node[sorted.length];
+    for (int i = 0; i < sorted.length; i++) {
+      nodes[i] = new Node(sorted[i]);
+    }
+    root = build(nodes, 0, nodes.length);
+  }
+
+  /**
+   * Add many scores. A large batch is sorted, merged with the scores already held and the tree
+   * rebuilt. A small one is added a score at a time
+   * @param scores The scores to add, in any order
+   */
+  public synchronized void addAll(Collection<ScoreRecord> scores) {
+    if (scores.size() < size() / 16) {
+      scores.forEach(this::add);
+      return;
+    }
+    var existing = new ArrayList<ScoreRecord>(size());
+    collect(root, 0, size(), existing);
+    var added = scores.toArray(new ScoreRecord[0]);
+    Arrays.parallelSort(added, ORDER);
+
+    var nodes = new Node[existing.size() + added.length];
+    int i = 0;
+    int j = 0;
+    while (i < existing.size() || j < added.length) {
+      boolean takeExisting = j == added.length
+          || (i < existing.size() && ORDER.compare(existing.get(i), added[j]) <= 0);
+      nodes[i + j] = new Node(takeExisting ? existing.get(i++) : added[j++]);
+    }
+    root = build(nodes, 0, nodes.length);
+  }
+
+  /**
+   * Add a score
+   * @param score The score
+   */
+  public synchronized void add(ScoreRecord score) {
+    var node = new Node(score);
+    if (root == null) {
+      root = node;
+      return;
+    }
+
+    var path = new ArrayList<Node>();
+    var parent = root;
+    while (true) {
+      path.add(parent);
+      parent.size++;
+      if (ORDER.compare(score, parent.score) < 0) {
+        if (parent.left == null) {
+          parent.left = node;
+          break;
+        }
+        parent = parent.left;
+      } else {
+        if (parent.right == null) {
+          parent.right = node;
+          break;
+        }
+        parent = parent.right;
+      }
+    }
+
+    if (path.size() <= Math.log(root.size) / Math.log(1 / ALPHA)) {
+      return;
+    }
+    var child = node;
+    for (int i = path.size() - 1; i >= 0; i--) {
+      var ancestor = path.get(i);
+      if (child.size > ALPHA * ancestor.size) {
+        var rebuilt = rebuild(ancestor);
+        if (i == 0) {
+          root = rebuilt;
+        } else if (path.get(i - 1).left == ancestor) {
+          path.get(i - 1).left = rebuilt;
+        } else {
+          path.get(i - 1).right = rebuilt;
+        }
+        return;
+      }
+      child = ancestor;
+    }
+  }
+
+  /**
+   * Get the number of scores
+   * @return The number of scores
+   */
+  public synchronized int size() {
+    return size(root);
+  }
+
+  /**
+   * Get the rank a score would have: one more than the number of scores strictly higher
+   * @param score The score
+   * @return The rank, starting from 1
+   */
+  public synchronized int rankOf(int score) {
+    int above = 0;
+    var node = root;
+    while (node != null) {
+      if (node.score.score() > score) {
+        above += size(node.left) + 1;
+        node = node.right;
+      } else {
+        node = node.left;
+      }
+    }
+    return above + 1;
+  }
+
+  /**
+   * Get the percentile of a score: the percentage of scores it equals or beats
+   * @param score The score
+   * @return The percentile, from 0 to 100, or 100 if there are no scores
+   */
+  public synchronized double percentile(int score) {
+    int size = size();
+    return size == 0 ? 100 : 100.0 * (size - (rankOf(score) - 1)) / size;
+  }
+
+  /**
+   * Get the score at a rank
+   * @param rank The rank, starting from 1
+   * @return The score, or null if there is no score at that rank
+   */
+  public synchronized ScoreRecord get(int rank) {
+    int index = rank - 1;
+    if (index < 0 || index >= size()) {
+      return null;
+    }
+    var node = root;
+    while (true) {
+      int left = size(node.left);
+      if (index < left) {
+        node = node.left;
+      } else if (index == left) {
+        return node.score;
+      } else {
+        index -= left + 1;
+        node = node.right;
+      }
+    }
+  }
+
+  /**
+   * Get the best scores
+   * @param count The most scores to get
+   * @return The scores, highest first
+   */
+  public List<ScoreRecord> top(int count) {
+    return range(1, count);
+  }
+
+  /**
+   * Get the scores around a rank
+   * @param rank The rank, starting from 1
+   * @param radius The most scores to get either side of it
+   * @return The scores, highest first
+   */
+  public synchronized List<ScoreRecord> around(int rank, int radius) {
+    int from = Math.max(1, rank - radius);
+    return range(from, rank + radius - from + 1);
+  }
+
+  /**
+   * Get the scores from a rank on
+   * @param rank The rank of the first score, starting from 1
+   * @param count The most scores to get
+   * @return The scores, highest first
+   */
+  public synchronized List<ScoreRecord> range(int rank, int count) {
+    var scores = new ArrayList<ScoreRecord>(Math.max(0, Math.min(count, size() - rank + 1)));
+    collect(root, rank - 1, count, scores);
+    return scores;
+  }
+
+  /**
+   * Collect scores in order from a subtree, skipping the first few
+   * @param node The subtree
+   * @param skip The number of scores in the subtree to skip
+   * @param count The most scores to collect
+   * @param into Where to collect them
+   */
+  private static void collect(Node node, int skip, int count, List<ScoreRecord> into) {
+    int wanted = count;
+    while (node != null && wanted > 0) {
+      int left = size(node.left);
+      if (skip < left) {
+        int before = into.size();
+        collect(node.left, skip, wanted, into);
+        wanted -= into.size() - before;
+        skip = 0;
+      } else {
+        skip -= left;
+      }
+      if (wanted == 0) {
+        return;
+      }
+      if (skip == 0) {
+        into.add(node.score);
+        wanted--;
+      } else {
+        skip--;
+      }
+      node = node.right;
+    }
+  }
+
+  /**
+   * Rebuild a subtree so it is balanced, reusing its nodes
+   * @return The new root of the subtree
+   */
+  private static Node rebuild(Node subtree) {
+    var nodes = new Node[subtree.size];
+    flatten(subtree, nodes, 0);
+    return build(nodes, 0, nodes.length);
+  }
+
+  /**
+   * Put the nodes of a subtree into an array in order
+   * @return The index after the last node put
+   */
+  private static int flatten(Node node, Node[] nodes, int index) {
+    while (node != null) {
+      index = flatten(node.left, nodes, index);
+      nodes[index++] = node;
+      node = node.right;
+    }
+    return index;
+  }
+
+  /**
+   * Link nodes in order into a balanced subtree
+   * @return The root of the subtree, or null if there are none
+   */
+  private static Node build(Node[] nodes, int from, int to) {
+    if (from >= to) {
+      return null;
+    }
+    int mid = (from + to) >>> 1;
+    var node = nodes[mid];
+    node.left = build(nodes, from, mid);
+    node.right = build(nodes, mid + 1, to);
+    node.size = to - from;
+    return node;
+  }
+
+  private static int size(Node node) {
+    return node == null ? 0 : node.size;
+  }
+}
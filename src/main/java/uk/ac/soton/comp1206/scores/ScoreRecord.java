@@ -0,0 +1,12 @@
+package uk.ac.soton.comp1206.scores;
+
+/**
+ * A score set on this machine
+ *
+ * @param name The name of the player
+ * @param score The score the player achieved
+ * @param timestamp When the score was set, in milliseconds since the epoch, or 0 if not known
+ */
+public record ScoreRecord(String name, int score, long timestamp) {
+
+}
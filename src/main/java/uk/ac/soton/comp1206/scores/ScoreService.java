@@ -0,0 +1,127 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import uk.ac.soton.comp1206.metrics.Metrics;
+
+/**
+ * Runs work against the score store on its own thread, so a slow disk or network home directory can
+ * never hold up the JavaFX Application Thread. Each task's result comes back as a future, which fails
+ * with the task's error, or with a TimeoutException if the task takes too long.
+ */
+public class ScoreService {
+
+  /**
+   * Work to run against the score store
+   *
+   * @param <T> The type of the result
+   */
+  @FunctionalInterface
+  public interface Task<T> {
+
+    /**
+     * Run the work
+     * @param store The score store
+     * @return The result
+     * @throws IOException If the store can't be read or written
+     */
+    T run(ScoreStore store) throws IOException;
+  }
+
+  /**
+   * Runs tasks one at a time, in the order they were given
+   */
+  private final ExecutorService io = Executors.newSingleThreadExecutor(runnable -> {
+    var thread = new Thread(runnable, "score-io");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * The score store
+   */
+  private final ScoreStore store;
+
+  /**
+   * How long a task may take, in milliseconds
+   */
+  private final long timeout;
+
+  /**
+   * Create a new score service
+   * @param store The score store, which from now on should only be used through this service
+   * @param timeout How long a task may take before its future fails, in milliseconds
+   */
+  public ScoreService(ScoreStore store, long timeout) {
+    this.store = store;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Run a task on the I/O thread. A task that times out still runs to the end, but its result is
+   * thrown away
+   * @param task The task
+   * @param <T> The type of the result
+   * @return A future completed with the result of the task
+   */
+  public <T> CompletableFuture<T> submit(Task<T> task) {
+    return CompletableFuture.supplyAsync(() -> {
+      long start = System.nanoTime();
+      try {
+        return task.run(store);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        Metrics.histogram("scores.task.nanos").record(System.nanoTime() - start);
+      }
+    }, io).orTimeout(timeout, TimeUnit.MILLISECONDS).whenComplete((result, error) -> {
+      if (error != null) {
+        Metrics.counter("scores.task.failures").increment();
+      }
+    });
+  }
+
+  /**
+   * Close the store once the tasks already given have run, and stop the I/O thread. Waits for the
+   * store to be closed, so queued scores are written before the game exits
+   * @throws IOException If the store can't be closed, or closing it takes too long
+   */
+  public void close() throws IOException {
+    try {
+      submit(store -> {
+        store.close();
+        return null;
+      }).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IOException(describe(e), e.getCause());
+    } finally {
+      io.shutdown();
+    }
+  }
+
+  /**
+   * Describe why a task failed, for the log
+   * @param error The error a future failed with
+   * @return A description of the cause
+   */
+  public static String describe(Throwable error) {
+    var cause = error;
+    while ((cause instanceof CompletionException || cause instanceof ExecutionException
+        || cause instanceof UncheckedIOException) && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof TimeoutException) {
+      return "timed out";
+    }
+    return cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+  }
+}
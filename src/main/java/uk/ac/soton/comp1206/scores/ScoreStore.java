@@ -0,0 +1,693 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.jfr.ScoreIoEvent;
+import uk.ac.soton.comp1206.metrics.Metrics;
+
+/**
+ * The scores set on this machine. They are kept in a snapshot, a binary file of fixed size records,
+ * and a journal of the scores added since the snapshot was last compacted.
+ *
+ * <p>The snapshot starts with a header holding the number of records and the best {@link #TOP} scores
+ * in order. The best scores of the snapshot and journal together are kept in memory, so the high score
+ * and the top scores are answered without touching either file. Records in the snapshot are read
+ * through a memory mapped view of it.
+ *
+ * <p>Adding a score only queues it. A background thread appends queued scores to the journal,
+ * flushing each batch to disk once. When the journal holds {@link #COMPACT_AFTER} scores the same
+ * thread writes a new snapshot beside the old one and renames it into place, so a crash leaves either
+ * the old snapshot and its journal or the new snapshot. If the rename fails it is tried again after
+ * the next batch. If the journal can't be emptied after the rename, nothing more is written to it
+ * until it has been, since the new snapshot marks everything in its generation as folded in.
+ *
+ * <p>The first time the store is opened, scores from the old {@code name:score} text file are copied
+ * in. The new snapshot is built beside the real one and renamed into place once it is complete, so an
+ * interrupted copy is started again next time. The text file is left as it was.
+ *
+ * <p>Each record is the score, the time it was set, and the player's name as a length and up to
+ * {@link #NAME_BYTES} bytes of UTF-8.
+ */
+public class ScoreStore implements Closeable {
+
+  private static final Logger logger = LogManager.getLogger(ScoreStore.class);
+
+  /**
+   * The number of scores kept in order in the header
+   */
+  public static final int TOP = 10;
+
+  /**
+   * The first four bytes of a score store, "TSCR"
+   */
+  static final int MAGIC = 0x54534352;
+
+  /**
+   * The version of the file layout
+   */
+  static final int VERSION = 1;
+
+  /**
+   * The size of a record
+   */
+  static final int RECORD = 48;
+
+  /**
+   * The most bytes of a name kept
+   */
+  static final int NAME_BYTES = RECORD - 13;
+
+  /**
+   * The size of the header: magic, version, record count, top count, the journal generation folded
+   * in, padding, then the top records
+   */
+  static final int HEADER = 32 + TOP * RECORD;
+
+  /**
+   * The number of journaled scores that triggers a compaction
+   */
+  static final int COMPACT_AFTER = 1000;
+
+  /**
+   * The most scores written to the journal in one batch
+   */
+  private static final int BATCH = 256;
+
+  /**
+   * Queued to stop the journal writer
+   */
+  private static final ScoreRecord STOP = new ScoreRecord("", 0, 0);
+
+  /**
+   * The snapshot
+   */
+  private final Path file;
+
+  /**
+   * Where a new snapshot is written before it replaces the old one
+   */
+  private final Path compacting;
+
+  /**
+   * The old text file to copy scores from, or null
+   */
+  private final Path legacy;
+
+  /**
+   * The scores added since the snapshot was written
+   */
+  private final ScoreJournal journal;
+
+  /**
+   * Scores waiting to be written to the journal
+   */
+  private final BlockingQueue<ScoreRecord> pending = new LinkedBlockingQueue<>();
+
+  /**
+   * True once the store has been opened
+   */
+  private volatile boolean opened = false;
+
+  /**
+   * The best scores of the snapshot, journal and queue together
+   */
+  private volatile List<ScoreRecord> top = List.of();
+
+  /**
+   * The number of scores in the snapshot, journal and queue together
+   */
+  private volatile long count = 0;
+
+  /**
+   * The open snapshot
+   */
+  private FileChannel channel;
+
+  /**
+   * The records of the snapshot, mapped read only, or null if none have been read
+   */
+  private MappedByteBuffer records;
+
+  /**
+   * The number of records the mapping covers
+   */
+  private long mapped = 0;
+
+  /**
+   * The number of records in the snapshot
+   */
+  private long snapshotCount = 0;
+
+  /**
+   * The best scores in the snapshot
+   */
+  private List<ScoreRecord> snapshotTop = new ArrayList<>();
+
+  /**
+   * The scores written to the journal, oldest first
+   */
+  private final List<ScoreRecord> journaled = new ArrayList<>();
+
+  /**
+   * The scores queued for the journal and not yet written, oldest first
+   */
+  private final List<ScoreRecord> unwritten = new ArrayList<>();
+
+  /**
+   * Every score in rank order, or null until first asked for
+   */
+  private ScoreRanking ranking;
+
+  /**
+   * Writes queued scores to the journal
+   */
+  private Thread writer;
+
+  /**
+   * The generation the journal must be emptied to before anything more is written to it, or 0 if it
+   * is up to date. Only used on the journal writer thread
+   */
+  private long resetPending = 0;
+
+  /**
+   * Create a new score store. Nothing is opened until the store is first used
+   * @param file The snapshot. The journal is kept beside it
+   * @param legacy The old text file to copy scores from if the snapshot doesn't exist yet, or null
+   */
+  public ScoreStore(Path file, Path legacy) {
+    this.file = file;
+    this.compacting = file.resolveSibling(file.getFileName() + ".tmp");
+    this.journal = new ScoreJournal(file.resolveSibling(file.getFileName() + ".journal"));
+    this.legacy = legacy;
+  }
+
+  /**
+   * Add a score set now
+   * @param name The name of the player
+   * @param score The score
+   * @throws IOException If the store can't be opened
+   */
+  public void add(String name, int score) throws IOException {
+    add(new ScoreRecord(name, score, System.currentTimeMillis()));
+  }
+
+  /**
+   * Add a score. It is written to disk in the background
+   * @param record The score
+   * @throws IOException If the store can't be opened
+   */
+  public void add(ScoreRecord record) throws IOException {
+    open();
+    Metrics.counter("scores.added").increment();
+    synchronized (this) {
+      var best = new ArrayList<>(top);
+      offer(best, record);
+      top = List.copyOf(best);
+      count++;
+      unwritten.add(record);
+      if (ranking != null) {
+        ranking.add(record);
+      }
+      pending.add(record);
+    }
+  }
+
+  /**
+   * Get the best scores, highest first. Ties go to the score set first
+   * @return Up to {@link #TOP} scores
+   * @throws IOException If the store can't be opened
+   */
+  public List<ScoreRecord> top() throws IOException {
+    open();
+    return top;
+  }
+
+  /**
+   * Get the best score
+   * @return The best score, or null if there are none
+   * @throws IOException If the store can't be opened
+   */
+  public ScoreRecord highScore() throws IOException {
+    open();
+    var best = top;
+    return best.isEmpty() ? null : best.get(0);
+  }
+
+  /**
+   * Get the number of scores
+   * @return The number of scores
+   * @throws IOException If the store can't be opened
+   */
+  public long size() throws IOException {
+    open();
+    return count;
+  }
+
+  /**
+   * Get every score in rank order. The ranking is loaded from the store the first time it is asked
+   * for, and kept up to date as scores are added
+   * @return The ranking
+   * @throws IOException If the store can't be read
+   */
+  public synchronized ScoreRanking ranking() throws IOException {
+    if (ranking == null) {
+      var loaded = new ScoreRanking();
+      loaded.load(read(0, Integer.MAX_VALUE));
+      ranking = loaded;
+    }
+    return ranking;
+  }
+
+  /**
+   * Read scores in the order they were added
+   * @param from The index of the first score
+   * @param max The most scores to read
+   * @return The scores
+   * @throws IOException If the store can't be read
+   */
+  public synchronized List<ScoreRecord> read(long from, int max) throws IOException {
+    open();
+    var read = new ArrayList<ScoreRecord>();
+    long end = Math.min(from + max, snapshotCount + journaled.size() + unwritten.size());
+    if (from < snapshotCount && snapshotCount > mapped) {
+      records = channel.map(MapMode.READ_ONLY, HEADER, snapshotCount * RECORD);
+      mapped = snapshotCount;
+    }
+    for (long i = from; i < end; i++) {
+      if (i < snapshotCount) {
+        read.add(get(records, (int) (i * RECORD)));
+      } else if (i < snapshotCount + journaled.size()) {
+        read.add(journaled.get((int) (i - snapshotCount)));
+      } else {
+        read.add(unwritten.get((int) (i - snapshotCount - journaled.size())));
+      }
+    }
+    return read;
+  }
+
+  /**
+   * Write out any queued scores and close the store
+   * @throws IOException If it can't be closed
+   */
+  @Override
+  public void close() throws IOException {
+    Thread running;
+    synchronized (this) {
+      running = writer;
+      writer = null;
+    }
+    if (running != null) {
+      pending.add(STOP);
+      try {
+        running.join(5000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    synchronized (this) {
+      journal.close();
+      if (channel != null) {
+        channel.close();
+        channel = null;
+      }
+      records = null;
+      mapped = 0;
+      opened = false;
+    }
+  }
+
+  /**
+   * Open the store if it isn't already: read the snapshot, creating it and copying in the old scores
+   * if it doesn't exist, replay the journal and start the journal writer
+   */
+  private void open() throws IOException {
+    if (opened) {
+      return;
+    }
+    synchronized (this) {
+      if (opened) {
+        return;
+      }
+      var event = new ScoreIoEvent();
+      event.begin();
+      Files.deleteIfExists(compacting);
+      snapshotTop = new ArrayList<>();
+      snapshotCount = 0;
+      if (!Files.exists(file) || Files.size(file) < HEADER) {
+        create();
+      }
+      channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+      var header = ByteBuffer.allocate(HEADER);
+      while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+        continue;
+      }
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+        channel.close();
+        channel = null;
+        throw new IOException(file + " is not a score store");
+      }
+      snapshotCount = header.getLong(8);
+      int topCount = header.getInt(16);
+      long folded = header.getLong(20);
+      for (int i = 0; i < topCount; i++) {
+        snapshotTop.add(get(header, 32 + i * RECORD));
+      }
+      long size = channel.size();
+      long expected = HEADER + snapshotCount * RECORD;
+      if (size > expected) {
+        channel.truncate(expected);
+      } else if (size < expected) {
+        snapshotCount = (size - HEADER) / RECORD;
+      }
+
+      journaled.clear();
+      journaled.addAll(journal.open(folded));
+      var best = new ArrayList<>(snapshotTop);
+      journaled.forEach(score -> offer(best, score));
+      top = List.copyOf(best);
+      count = snapshotCount + journaled.size();
+      records = null;
+      mapped = 0;
+
+      writer = new Thread(this::writeJournal, "score-journal");
+      writer.setDaemon(true);
+      writer.start();
+      opened = true;
+      if (event.shouldCommit()) {
+        event.operation = "open";
+        event.scores = count;
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * Write queued scores to the journal in batches until stopped, compacting when the journal is full.
+   * Runs on the journal writer thread
+   */
+  private void writeJournal() {
+    var batch = new ArrayList<ScoreRecord>();
+    try {
+      while (true) {
+        batch.add(pending.take());
+        pending.drainTo(batch, BATCH - 1);
+        boolean stop = batch.removeIf(score -> score == STOP);
+        if (!batch.isEmpty() && !resetJournal()) {
+          if (stop) {
+            logger.error("Unable to write {} scores, the score journal could not be emptied", batch.size());
+            Metrics.counter("scores.errors").increment();
+            return;
+          }
+          //Kept to go with the next batch, once the journal has been emptied
+          continue;
+        }
+        if (!batch.isEmpty()) {
+          try {
+            long start = System.nanoTime();
+            var event = new ScoreIoEvent();
+            event.begin();
+            journal.write(batch);
+            Metrics.histogram("scores.journal.nanos").record(System.nanoTime() - start);
+            if (event.shouldCommit()) {
+              event.operation = "journal";
+              event.scores = batch.size();
+              event.commit();
+            }
+            boolean full;
+            synchronized (this) {
+              journaled.addAll(batch);
+              unwritten.subList(0, batch.size()).clear();
+              full = journaled.size() >= COMPACT_AFTER;
+            }
+            if (full) {
+              compact();
+            }
+          } catch (IOException e) {
+            logger.error("Unable to write {} scores to the journal: {}", batch.size(), e.getMessage());
+            Metrics.counter("scores.errors").increment();
+          }
+          batch.clear();
+        }
+        if (stop) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Empty the journal if a compaction left it to be emptied
+   * @return True if the journal can be written to
+   */
+  private boolean resetJournal() {
+    if (resetPending == 0) {
+      return true;
+    }
+    try {
+      journal.reset(resetPending);
+      resetPending = 0;
+      return true;
+    } catch (IOException e) {
+      logger.error("Unable to empty the score journal, will try again: {}", e.getMessage());
+      Metrics.counter("scores.errors").increment();
+      return false;
+    }
+  }
+
+  /**
+   * Fold the journal into a new snapshot, written beside the old one and renamed into place, then empty
+   * the journal. Runs on the journal writer thread, which is the only thread that changes either file
+   */
+  private void compact() {
+    List<ScoreRecord> folding;
+    List<ScoreRecord> best;
+    long base;
+    synchronized (this) {
+      folding = new ArrayList<>(journaled);
+      best = new ArrayList<>(snapshotTop);
+      base = snapshotCount;
+    }
+    long generation = journal.getGeneration();
+    var event = new ScoreIoEvent();
+    event.begin();
+    try {
+      try (var out = FileChannel.open(compacting, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        long length = HEADER + base * RECORD;
+        for (long copied = 0; copied < length; ) {
+          copied += channel.transferTo(copied, length - copied, out);
+        }
+        var buffer = ByteBuffer.allocate(folding.size() * RECORD);
+        for (var score : folding) {
+          put(buffer, score);
+          offer(best, score);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          length += out.write(buffer, length);
+        }
+        writeHeader(out, base + folding.size(), best, generation);
+        out.force(true);
+      }
+
+      synchronized (this) {
+        //The old snapshot can't be replaced while it is open or mapped on some systems
+        records = null;
+        mapped = 0;
+        channel.close();
+        try {
+          Files.move(compacting, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+          channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        snapshotCount = base + folding.size();
+        snapshotTop = best;
+        journaled.subList(0, folding.size()).clear();
+      }
+      resetPending = generation + 1;
+      resetJournal();
+      logger.info("Compacted {} scores into {}", folding.size(), file);
+      Metrics.counter("scores.compactions").increment();
+      if (event.shouldCommit()) {
+        event.operation = "compact";
+        event.scores = folding.size();
+        event.commit();
+      }
+    } catch (IOException e) {
+      logger.error("Unable to compact the score journal, will try again: {}", e.getMessage());
+      Metrics.counter("scores.errors").increment();
+      try {
+        Files.deleteIfExists(compacting);
+      } catch (IOException ignored) {
+        //Removed next time the store is opened
+      }
+    }
+  }
+
+  /**
+   * Write an empty snapshot, or one holding the scores from the old text file if there is one, beside
+   * the real one, then rename it into place
+   */
+  private void create() throws IOException {
+    try (var out = FileChannel.open(compacting, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE)) {
+      var best = new ArrayList<ScoreRecord>();
+      long copied = 0;
+      if (legacy != null && Files.exists(legacy)) {
+        copied = migrate(out, best);
+      }
+      writeHeader(out, copied, best, 0);
+      out.force(true);
+    }
+    Files.move(compacting, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Copy the scores from the old text file into a new snapshot after its header, keeping their order
+   * @param out The new snapshot
+   * @param best Filled with the best scores copied
+   * @return The number of scores copied
+   */
+  private long migrate(FileChannel out, List<ScoreRecord> best) throws IOException {
+    var buffer = ByteBuffer.allocate(1024 * RECORD);
+    long position = HEADER;
+    long copied = 0;
+    long skipped = 0;
+    try (var lines = Files.newBufferedReader(legacy, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = lines.readLine()) != null) {
+        String[] parts = line.split(":");
+        if (parts.length != 2) {
+          skipped++;
+          continue;
+        }
+        ScoreRecord record;
+        try {
+          record = new ScoreRecord(parts[0], Integer.parseInt(parts[1].trim()), 0);
+        } catch (NumberFormatException e) {
+          skipped++;
+          continue;
+        }
+        if (!buffer.hasRemaining()) {
+          position = flush(out, buffer, position);
+        }
+        put(buffer, record);
+        copied++;
+        offer(best, record);
+      }
+    }
+    flush(out, buffer, position);
+    logger.info("Copied {} scores from {} into {}, skipping {} lines", copied, legacy, file, skipped);
+    return copied;
+  }
+
+  /**
+   * Write out a buffer of records
+   * @return The position after them
+   */
+  private static long flush(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      position += out.write(buffer, position);
+    }
+    buffer.clear();
+    return position;
+  }
+
+  /**
+   * Write the header of a snapshot
+   */
+  private static void writeHeader(FileChannel out, long count, List<ScoreRecord> top, long generation)
+      throws IOException {
+    var header = ByteBuffer.allocate(HEADER);
+    header.putInt(MAGIC).putInt(VERSION).putLong(count).putInt(top.size()).putLong(generation);
+    for (int i = 0; i < top.size(); i++) {
+      header.position(32 + i * RECORD);
+      put(header, top.get(i));
+    }
+    header.clear();
+    while (header.hasRemaining()) {
+      out.write(header, header.position());
+    }
+  }
+
+  /**
+   * Put a score in a list of the best scores if it is one of them, keeping them in order and at most
+   * {@link #TOP} long
+   */
+  static void offer(List<ScoreRecord> best, ScoreRecord score) {
+    if (best.size() == TOP && !ranksBelow(best.get(TOP - 1), score)) {
+      return;
+    }
+    int low = 0;
+    int high = best.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ranksBelow(best.get(mid), score)) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    best.add(low, score);
+    if (best.size() > TOP) {
+      best.remove(TOP);
+    }
+  }
+
+  /**
+   * Check whether a score ranks below another, by score then by which was set first
+   */
+  static boolean ranksBelow(ScoreRecord score, ScoreRecord other) {
+    return score.score() < other.score()
+        || (score.score() == other.score() && score.timestamp() > other.timestamp());
+  }
+
+  /**
+   * Write a record at a buffer's position
+   */
+  static void put(ByteBuffer buffer, ScoreRecord record) {
+    var name = record.name();
+    var bytes = name.getBytes(StandardCharsets.UTF_8);
+    while (bytes.length > NAME_BYTES) {
+      name = name.substring(0, name.length() - 1);
+      bytes = name.getBytes(StandardCharsets.UTF_8);
+    }
+    int start = buffer.position();
+    buffer.putInt(record.score());
+    buffer.putLong(record.timestamp());
+    buffer.put((byte) bytes.length);
+    buffer.put(bytes);
+    buffer.position(start + RECORD);
+  }
+
+  /**
+   * Read the record at an offset in a buffer
+   */
+  static ScoreRecord get(ByteBuffer buffer, int offset) {
+    int score = buffer.getInt(offset);
+    long timestamp = buffer.getLong(offset + 4);
+    int length = buffer.get(offset + 12) & 0xff;
+    var bytes = new byte[length];
+    buffer.get(offset + 13, bytes);
+    return new ScoreRecord(new String(bytes, StandardCharsets.UTF_8), score, timestamp);
+  }
+}
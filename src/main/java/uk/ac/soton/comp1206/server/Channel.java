@@ -0,0 +1,219 @@
+package uk.ac.soton.comp1206.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * A channel on the local server: its players, its host and the sequence of pieces its game deals.
+ * Every player is dealt the same sequence. All state is guarded by the channel itself, so different
+ * channels never wait on each other.
+ */
+class Channel {
+
+  /**
+   * The name of the channel
+   */
+  private final String name;
+
+  /**
+   * The players in the channel, in the order they joined
+   */
+  private final Set<Player> players = new LinkedHashSet<>();
+
+  /**
+   * The pieces dealt so far, in order
+   */
+  private final List<Integer> pieces = new ArrayList<>();
+
+  /**
+   * Deals new pieces
+   */
+  private final Random random = new Random();
+
+  /**
+   * The player who can start the game
+   */
+  private Player host;
+
+  /**
+   * True once the game has started
+   */
+  private boolean started = false;
+
+  /**
+   * Create a new, empty channel
+   * @param name The name of the channel
+   */
+  Channel(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Get the name of the channel
+   * @return The name
+   */
+  String getName() {
+    return name;
+  }
+
+  /**
+   * Add a player, making them host if the channel was empty. Nobody can join once the game starts
+   * @param player The player
+   * @return True if they joined
+   */
+  synchronized boolean join(Player player) {
+    if (started) {
+      return false;
+    }
+    players.add(player);
+    player.score = 0;
+    player.lives = "3";
+    player.pieces = 0;
+    if (host == null) {
+      host = player;
+    }
+    return true;
+  }
+
+  /**
+   * Check whether a player is the host
+   * @param player The player
+   * @return True if they can start the game
+   */
+  synchronized boolean isHost(Player player) {
+    return host == player;
+  }
+
+  /**
+   * Remove a player, handing the host to the next player if they were host
+   * @param player The player
+   * @return The new host, or null if the host didn't change
+   */
+  synchronized Player leave(Player player) {
+    players.remove(player);
+    if (host != player) {
+      return null;
+    }
+    host = players.isEmpty() ? null : players.iterator().next();
+    return host;
+  }
+
+  /**
+   * Check whether the channel has no players
+   * @return True if it is empty
+   */
+  synchronized boolean isEmpty() {
+    return players.isEmpty();
+  }
+
+  /**
+   * Start the game, if the player is the host and it hasn't started yet
+   * @param player The player starting it
+   * @return True if the game started
+   */
+  synchronized boolean start(Player player) {
+    if (player != host || started) {
+      return false;
+    }
+    started = true;
+    for (Player each : players) {
+      each.score = 0;
+      each.lives = "3";
+    }
+    return true;
+  }
+
+  /**
+   * Check whether the game has started
+   * @return True if it has started
+   */
+  synchronized boolean isStarted() {
+    return started;
+  }
+
+  /**
+   * Deal the next piece to a player, the same one every other player gets at that point
+   * @param player The player
+   * @return The value of the piece
+   */
+  synchronized int nextPiece(Player player) {
+    while (pieces.size() <= player.pieces) {
+      pieces.add(random.nextInt(GamePiece.PIECES));
+    }
+    return pieces.get(player.pieces++);
+  }
+
+  /**
+   * Send a message to every player in the channel
+   * @param message The message
+   * @param except A player not to send it to, or null
+   */
+  synchronized void broadcast(String message, Player except) {
+    for (Player player : players) {
+      if (player != except) {
+        player.deliver(message);
+      }
+    }
+  }
+
+  /**
+   * Get the USERS message for the channel
+   * @return The message
+   */
+  synchronized String users() {
+    var message = new StringBuilder("USERS ");
+    for (Player player : players) {
+      message.append(player.nickname).append('\n');
+    }
+    return trim(message);
+  }
+
+  /**
+   * Get the SCORES message for the channel
+   * @return The message
+   */
+  synchronized String scores() {
+    var message = new StringBuilder("SCORES ");
+    for (Player player : players) {
+      message.append(player.nickname).append(':').append(player.score).append(':').append(player.lives)
+          .append('\n');
+    }
+    return trim(message);
+  }
+
+  /**
+   * Record a player's score
+   * @param player The player
+   * @param score The score
+   */
+  synchronized void setScore(Player player, int score) {
+    player.score = score;
+  }
+
+  /**
+   * Record a player's lives
+   * @param player The player
+   * @param lives The lives, or "DEAD"
+   * @return The player's score
+   */
+  synchronized int setLives(Player player, String lives) {
+    if (!player.lives.equals("DEAD")) {
+      player.lives = lives;
+    }
+    return player.score;
+  }
+
+  /**
+   * Remove a trailing newline from a message being built
+   */
+  private static String trim(StringBuilder message) {
+    if (message.charAt(message.length() - 1) == '\n') {
+      message.setLength(message.length() - 1);
+    }
+    return message.toString();
+  }
+}
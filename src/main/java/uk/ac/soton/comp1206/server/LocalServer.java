@@ -0,0 +1,432 @@
+package uk.ac.soton.comp1206.server;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.network.BinaryCodec;
+import uk.ac.soton.comp1206.network.ScoreEntry;
+
+/**
+ * A stand-in for the TetrECS server that runs inside the client, so the lobby and multiplayer games
+ * can be played and measured without a network. It speaks the same protocol as the real server:
+ * LIST, CREATE, JOIN, PART, NICK, USERS, MSG, START, PIECE, BOARD, BOARDDELTA, SCORE, SCORES, LIVES,
+ * DIE and HISCORES, and carries PIECE, SCORE, LIVES, BOARD and BOARDDELTA in binary frames for
+ * clients that ask with BINARY. Clients that ask with DELTAS are told BOARDDELTA is accepted. Every
+ * player handles its messages in order on a small shared pool, and each channel guards its own
+ * state, so busy channels don't hold each other up.
+ */
+public class LocalServer {
+
+  private static final Logger logger = LogManager.getLogger(LocalServer.class);
+
+  /**
+   * The number of high scores kept
+   */
+  private static final int HISCORE_COUNT = 10;
+
+  /**
+   * A client's connection to the local server
+   */
+  public interface Endpoint {
+
+    /**
+     * Send a message to the server
+     * @param message The message
+     */
+    void send(String message);
+
+    /**
+     * Send a binary frame to the server
+     * @param frame The frame
+     */
+    void sendBinary(byte[] frame);
+
+    /**
+     * Ping the server, running onPong once the server has seen every message sent before it
+     * @param onPong Run on the client's delivery when the ping is answered
+     */
+    void ping(Runnable onPong);
+
+    /**
+     * Check whether the connection is open
+     * @return True if it is open
+     */
+    boolean isOpen();
+
+    /**
+     * Close the connection, leaving any channel
+     */
+    void close();
+  }
+
+  /**
+   * The threads every player and channel share
+   */
+  private final ExecutorService pool;
+
+  /**
+   * The threads of the pool, for measuring their CPU time
+   */
+  private final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+  /**
+   * The open channels, by name
+   */
+  private final ConcurrentSkipListMap<String, Channel> channels = new ConcurrentSkipListMap<>();
+
+  /**
+   * The connected players
+   */
+  private final Set<Player> players = ConcurrentHashMap.newKeySet();
+
+  /**
+   * The best scores of finished players, highest first
+   */
+  private final List<ScoreEntry> hiScores = new ArrayList<>();
+
+  /**
+   * Numbers the guest nicknames of new players
+   */
+  private final AtomicInteger guests = new AtomicInteger();
+
+  /**
+   * The number of messages handled
+   */
+  private final LongAdder handled = new LongAdder();
+
+  /**
+   * False once the server has shut down
+   */
+  private volatile boolean running = true;
+
+  /**
+   * Create a new local server with a thread for each processor
+   */
+  public LocalServer() {
+    this(Math.max(2, Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * Create a new local server
+   * @param threads The number of threads shared by every player and channel
+   */
+  public LocalServer(int threads) {
+    var count = new AtomicInteger();
+    pool = Executors.newFixedThreadPool(threads, runnable -> {
+      var thread = new Thread(runnable, "local-server-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      this.threads.add(thread);
+      return thread;
+    });
+    logger.info("Local server started with {} threads", threads);
+  }
+
+  /**
+   * Connect a new client
+   * @param receiver Receives each message sent to the client, in order
+   * @param onClosed Called once when the connection is closed, with true if the server closed it
+   * @return The client's connection
+   * @throws IOException If the server has shut down
+   */
+  public Endpoint connect(Consumer<String> receiver, Consumer<Boolean> onClosed) throws IOException {
+    return connect(receiver, frame -> receiver.accept(BinaryCodec.toText(frame)), onClosed);
+  }
+
+  /**
+   * Connect a new client that can receive binary frames
+   * @param receiver Receives each text message sent to the client, in order
+   * @param binaryReceiver Receives each binary frame sent to the client, in order with the text
+   * @param onClosed Called once when the connection is closed, with true if the server closed it
+   * @return The client's connection
+   * @throws IOException If the server has shut down
+   */
+  public Endpoint connect(Consumer<String> receiver, Consumer<byte[]> binaryReceiver,
+      Consumer<Boolean> onClosed) throws IOException {
+    if (!running) {
+      throw new IOException("The local server has shut down");
+    }
+    var player = new Player(this, "Guest" + guests.incrementAndGet(), pool, receiver, binaryReceiver,
+        onClosed);
+    players.add(player);
+    return player;
+  }
+
+  /**
+   * Close every connection and stop the server
+   */
+  public void shutdown() {
+    running = false;
+    for (Player player : players) {
+      player.close(true);
+    }
+    pool.shutdown();
+    logger.info("Local server shut down");
+  }
+
+  /**
+   * Get the number of connected players
+   * @return The number of players
+   */
+  public int getPlayerCount() {
+    return players.size();
+  }
+
+  /**
+   * Get the number of open channels
+   * @return The number of channels
+   */
+  public int getChannelCount() {
+    return channels.size();
+  }
+
+  /**
+   * Get the number of messages handled
+   * @return The number of messages
+   */
+  public long getHandled() {
+    return handled.sum();
+  }
+
+  /**
+   * Get the CPU time used by the server's threads so far
+   * @return The CPU time in nanoseconds, or -1 if the JVM can't measure it
+   */
+  public long getCpuNanos() {
+    var bean = ManagementFactory.getThreadMXBean();
+    if (!bean.isThreadCpuTimeSupported()) {
+      return -1;
+    }
+    long total = 0;
+    for (Thread thread : threads) {
+      total += Math.max(0, bean.getThreadCpuTime(thread.getId()));
+    }
+    return total;
+  }
+
+  /**
+   * Handle a message from a player. Runs on the player's inbox
+   * @param player The player
+   * @param message The message
+   */
+  void handle(Player player, String message) {
+    handled.increment();
+    int space = message.indexOf(' ');
+    var command = space < 0 ? message : message.substring(0, space);
+    var argument = space < 0 ? "" : message.substring(space + 1);
+
+    try {
+      switch (command) {
+        case "LIST" -> player.deliver(list());
+        case "CREATE" -> create(player, argument);
+        case "JOIN" -> join(player, argument);
+        case "PART" -> part(player);
+        case "NICK" -> nick(player, argument);
+        case "USERS" -> inChannel(player).ifPresent(channel -> player.deliver(channel.users()));
+        case "MSG" -> inChannel(player).ifPresent(
+            channel -> channel.broadcast("MSG " + player.nickname + ":" + argument, null));
+        case "START" -> start(player);
+        case "PIECE" -> inChannel(player).ifPresent(
+            channel -> player.deliver("PIECE " + channel.nextPiece(player)));
+        case "BOARD" -> inChannel(player).ifPresent(
+            channel -> channel.broadcast("BOARD " + player.nickname + ":" + argument, player));
+        case "BOARDDELTA" -> inChannel(player).ifPresent(
+            channel -> channel.broadcast("BOARDDELTA " + player.nickname + ":" + argument.replace(' ', ':'),
+                player));
+        case "SCORE" -> inChannel(player).ifPresent(channel -> {
+          channel.setScore(player, Integer.parseInt(argument.trim()));
+          channel.broadcast(channel.scores(), null);
+        });
+        case "LIVES" -> inChannel(player).ifPresent(channel -> {
+          channel.setLives(player, Integer.toString(Integer.parseInt(argument.trim())));
+          channel.broadcast(channel.scores(), null);
+        });
+        case "DIE" -> inChannel(player).ifPresent(channel -> {
+          recordHiScore(player.nickname, channel.setLives(player, "DEAD"));
+          channel.broadcast(channel.scores(), null);
+        });
+        case "SCORES" -> inChannel(player).ifPresent(channel -> player.deliver(channel.scores()));
+        case "HISCORES" -> player.deliver(hiScores());
+        case "BINARY" -> {
+          player.binary = true;
+          player.deliver("BINARY");
+        }
+        case "DELTAS" -> player.deliver("DELTAS");
+        default -> player.deliver("ERROR Unknown command " + command);
+      }
+    } catch (NumberFormatException e) {
+      player.deliver("ERROR Invalid number in " + command);
+    }
+  }
+
+  /**
+   * Handle a player disconnecting. Runs on the player's inbox
+   * @param player The player
+   */
+  void disconnected(Player player) {
+    part(player);
+    players.remove(player);
+  }
+
+  /**
+   * Get the CHANNELS message
+   */
+  private String list() {
+    return "CHANNELS " + String.join("\n", channels.keySet());
+  }
+
+  /**
+   * Create a channel and join it
+   */
+  private void create(Player player, String name) {
+    if (!isValidName(name)) {
+      player.deliver("ERROR Invalid channel name");
+    } else if (player.channel != null) {
+      player.deliver("ERROR You are already in a channel");
+    } else if (channels.putIfAbsent(name, new Channel(name)) != null) {
+      player.deliver("ERROR Channel " + name + " already exists");
+    } else {
+      join(player, name);
+    }
+  }
+
+  /**
+   * Join a channel
+   */
+  private void join(Player player, String name) {
+    if (player.channel != null) {
+      player.deliver("ERROR You are already in a channel");
+      return;
+    }
+    var joined = new boolean[1];
+    //Join inside the map update, so an emptied channel can't be removed while we join it
+    var channel = channels.computeIfPresent(name, (key, existing) -> {
+      joined[0] = existing.join(player);
+      return existing;
+    });
+    if (channel == null) {
+      player.deliver("ERROR Channel " + name + " does not exist");
+    } else if (!joined[0]) {
+      player.deliver("ERROR The game in " + name + " has already started");
+    } else {
+      player.channel = channel;
+      player.deliver("JOIN " + name);
+      if (channel.isHost(player)) {
+        player.deliver("HOST");
+      }
+      channel.broadcast(channel.users(), null);
+    }
+  }
+
+  /**
+   * Leave the current channel, if in one
+   */
+  private void part(Player player) {
+    var channel = player.channel;
+    if (channel == null) {
+      return;
+    }
+    player.channel = null;
+    var newHost = channel.leave(player);
+    channels.computeIfPresent(channel.getName(), (key, existing) -> existing.isEmpty() ? null : existing);
+    player.deliver("PARTED");
+    if (newHost != null) {
+      newHost.deliver("HOST");
+    }
+    channel.broadcast(channel.users(), null);
+  }
+
+  /**
+   * Change nickname
+   */
+  private void nick(Player player, String nickname) {
+    if (!isValidName(nickname) || nickname.indexOf(':') >= 0) {
+      player.deliver("ERROR Invalid nickname");
+      return;
+    }
+    player.nickname = nickname;
+    player.deliver("NICK " + nickname);
+    var channel = player.channel;
+    if (channel != null) {
+      channel.broadcast(channel.users(), null);
+    }
+  }
+
+  /**
+   * Start the game in the current channel
+   */
+  private void start(Player player) {
+    var channel = player.channel;
+    if (channel == null) {
+      player.deliver("ERROR You are not in a channel");
+    } else if (!channel.start(player)) {
+      player.deliver("ERROR Only the host can start the game, once");
+    } else {
+      channel.broadcast("START", null);
+    }
+  }
+
+  /**
+   * Get the player's channel, or send an error if they aren't in one
+   */
+  private static Optional<Channel> inChannel(Player player) {
+    var channel = player.channel;
+    if (channel == null) {
+      player.deliver("ERROR You are not in a channel");
+    }
+    return Optional.ofNullable(channel);
+  }
+
+  /**
+   * Check whether a channel or nickname is usable in the protocol
+   */
+  private static boolean isValidName(String name) {
+    return !name.isBlank() && name.indexOf('\n') < 0;
+  }
+
+  /**
+   * Record a finished player's score among the high scores
+   */
+  private void recordHiScore(String name, int score) {
+    synchronized (hiScores) {
+      int index = 0;
+      while (index < hiScores.size() && hiScores.get(index).score() >= score) {
+        index++;
+      }
+      if (index < HISCORE_COUNT) {
+        hiScores.add(index, new ScoreEntry(name, score));
+        if (hiScores.size() > HISCORE_COUNT) {
+          hiScores.remove(HISCORE_COUNT);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the HISCORES message
+   */
+  private String hiScores() {
+    var message = new StringBuilder("HISCORES ");
+    synchronized (hiScores) {
+      for (int i = 0; i < hiScores.size(); i++) {
+        if (i > 0) {
+          message.append('\n');
+        }
+        message.append(hiScores.get(i).name()).append(':').append(hiScores.get(i).score());
+      }
+    }
+    return message.toString();
+  }
+}
@@ -0,0 +1,173 @@
+package uk.ac.soton.comp1206.server;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.network.BinaryCodec;
+
+/**
+ * A client connected to the local server. Messages from the client are handled one at a time in the
+ * order they were sent, and messages to the client are delivered one at a time in the order they
+ * were queued, each on the server's shared pool.
+ */
+class Player implements LocalServer.Endpoint {
+
+  private static final Logger logger = LogManager.getLogger(Player.class);
+
+  /**
+   * The server the player is connected to
+   */
+  private final LocalServer server;
+
+  /**
+   * Runs the handling of messages from the client
+   */
+  private final Executor inbox;
+
+  /**
+   * Runs the delivery of messages to the client
+   */
+  private final Executor outbox;
+
+  /**
+   * Receives messages sent to the client
+   */
+  private final Consumer<String> receiver;
+
+  /**
+   * Receives binary frames sent to the client
+   */
+  private final Consumer<byte[]> binaryReceiver;
+
+  /**
+   * Called once when the connection is closed, with true if the server closed it
+   */
+  private final Consumer<Boolean> onClosed;
+
+  /**
+   * True once the connection is closed
+   */
+  private volatile boolean closed = false;
+
+  /**
+   * True once the client has asked for binary frames. Only changed on the inbox
+   */
+  volatile boolean binary = false;
+
+  /**
+   * The player's nickname. Only changed on the inbox
+   */
+  volatile String nickname;
+
+  /**
+   * The channel the player is in, or null. Only changed on the inbox
+   */
+  volatile Channel channel;
+
+  /**
+   * The player's latest score. Guarded by the channel
+   */
+  int score;
+
+  /**
+   * The player's latest lives, or "DEAD". Guarded by the channel
+   */
+  String lives = "3";
+
+  /**
+   * How many of the channel's pieces the player has been sent. Guarded by the channel
+   */
+  int pieces;
+
+  /**
+   * Create a new player
+   * @param server The server the player is connected to
+   * @param nickname The player's starting nickname
+   * @param pool The server's shared pool
+   * @param receiver Receives messages sent to the client
+   * @param binaryReceiver Receives binary frames sent to the client
+   * @param onClosed Called once when the connection is closed
+   */
+  Player(LocalServer server, String nickname, Executor pool, Consumer<String> receiver,
+      Consumer<byte[]> binaryReceiver, Consumer<Boolean> onClosed) {
+    this.server = server;
+    this.nickname = nickname;
+    this.inbox = new SerialExecutor(pool);
+    this.outbox = new SerialExecutor(pool);
+    this.receiver = receiver;
+    this.binaryReceiver = binaryReceiver;
+    this.onClosed = onClosed;
+  }
+
+  @Override
+  public void send(String message) {
+    if (!closed) {
+      inbox.execute(() -> server.handle(this, message));
+    }
+  }
+
+  @Override
+  public void sendBinary(byte[] frame) {
+    if (!closed) {
+      inbox.execute(() -> server.handle(this, BinaryCodec.toText(frame)));
+    }
+  }
+
+  @Override
+  public void ping(Runnable onPong) {
+    if (!closed) {
+      inbox.execute(() -> outbox.execute(onPong));
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return !closed;
+  }
+
+  @Override
+  public void close() {
+    close(false);
+  }
+
+  /**
+   * Close the connection, leaving any channel the player is in
+   * @param byServer True if the server is closing it
+   */
+  void close(boolean byServer) {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    inbox.execute(() -> server.disconnected(this));
+    outbox.execute(() -> onClosed.accept(byServer));
+  }
+
+  /**
+   * Queue a message to the client, as a binary frame if the client asked for them and it has one
+   * @param message The message
+   */
+  void deliver(String message) {
+    if (closed) {
+      return;
+    }
+    var frame = binary ? BinaryCodec.encode(message) : null;
+    outbox.execute(() -> {
+      try {
+        if (frame != null) {
+          binaryReceiver.accept(frame);
+        } else {
+          receiver.accept(message);
+        }
+      } catch (RuntimeException e) {
+        logger.error("Unable to deliver to {}: {}", nickname, e.getMessage());
+      }
+    });
+  }
+
+  @Override
+  public String toString() {
+    return nickname;
+  }
+}
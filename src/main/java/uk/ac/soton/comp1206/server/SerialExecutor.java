@@ -0,0 +1,79 @@
+package uk.ac.soton.comp1206.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs tasks one at a time, in the order they were submitted, on a shared pool. Many serial
+ * executors can share a few threads, and each only holds a thread while it has work.
+ */
+class SerialExecutor implements Executor {
+
+  /**
+   * The most tasks run before the thread is handed back to the pool
+   */
+  private static final int BATCH = 64;
+
+  /**
+   * The pool the tasks run on
+   */
+  private final Executor pool;
+
+  /**
+   * Tasks waiting to run
+   */
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+  /**
+   * True while a drain is scheduled or running on the pool
+   */
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+
+  /**
+   * Create a new serial executor
+   * @param pool The pool the tasks run on
+   */
+  SerialExecutor(Executor pool) {
+    this.pool = pool;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    tasks.add(task);
+    schedule();
+  }
+
+  /**
+   * Schedule a drain unless one is already scheduled. Tasks are dropped once the pool has shut down
+   */
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true)) {
+      try {
+        pool.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        tasks.clear();
+        scheduled.set(false);
+      }
+    }
+  }
+
+  /**
+   * Run a batch of tasks, then reschedule if any are left so other executors get a turn
+   */
+  private void drain() {
+    try {
+      Runnable task;
+      for (int i = 0; i < BATCH && (task = tasks.poll()) != null; i++) {
+        task.run();
+      }
+    } finally {
+      scheduled.set(false);
+      if (!tasks.isEmpty()) {
+        schedule();
+      }
+    }
+  }
+}
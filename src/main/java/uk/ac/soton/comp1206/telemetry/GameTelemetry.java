@@ -0,0 +1,238 @@
+package uk.ac.soton.comp1206.telemetry;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The moves made in one game, kept a column per field so the game can be written out as one block.
+ * A move is a piece placed, a placement the grid rejected, or a piece that ran out of time. Rotations
+ * and swaps aren't moves themselves, but are counted against the move that follows them.
+ *
+ * <p>Decision time is measured from the last piece placed or timed out, or from the start of the
+ * game, so it includes any rejected attempts in between.
+ */
+public class GameTelemetry {
+
+  /**
+   * A piece placed on the grid
+   */
+  public static final byte PLACED = 0;
+
+  /**
+   * A placement the grid rejected
+   */
+  public static final byte REJECTED = 1;
+
+  /**
+   * A piece that ran out of time, losing a life
+   */
+  public static final byte TIMED_OUT = 2;
+
+  /**
+   * The columns of one byte per move, in the order they are written
+   */
+  static final int KIND = 0;
+  static final int PIECE = 1;
+  static final int X = 2;
+  static final int Y = 3;
+  static final int ROTATIONS = 4;
+  static final int SWAPS = 5;
+  static final int LINES = 6;
+  static final int BLOCKS = 7;
+  static final int MULTIPLIER = 8;
+  static final int LEVEL = 9;
+  static final int BYTE_COLUMNS = 10;
+
+  /**
+   * The bytes each move takes: the time and decision time, then a byte for each other column
+   */
+  static final int MOVE_BYTES = 4 + 4 + BYTE_COLUMNS;
+
+  /**
+   * The first four bytes of a game's block, "TGAM"
+   */
+  static final int BLOCK_MAGIC = 0x5447414D;
+
+  /**
+   * The size of a game's header: magic, moves, start time, score and a checksum of the columns
+   */
+  static final int BLOCK_HEADER = 24;
+
+  /**
+   * When the game started, in milliseconds since the epoch
+   */
+  private final long started = System.currentTimeMillis();
+
+  /**
+   * When the game started, for measuring times within it
+   */
+  private final long startNanos = System.nanoTime();
+
+  /**
+   * When the last decision started
+   */
+  private long decisionNanos = startNanos;
+
+  /**
+   * The milliseconds from the start of the game to each move
+   */
+  private int[] time = new int[64];
+
+  /**
+   * The milliseconds taken to decide on each move
+   */
+  private int[] decision = new int[64];
+
+  /**
+   * The other columns, indexed by KIND to LEVEL
+   */
+  private final byte[][] bytes = new byte[BYTE_COLUMNS][64];
+
+  /**
+   * The number of moves
+   */
+  private int moves = 0;
+
+  /**
+   * Rotations since the last move
+   */
+  private int rotations = 0;
+
+  /**
+   * Swaps since the last move
+   */
+  private int swaps = 0;
+
+  /**
+   * Lines and blocks cleared by the placement being recorded
+   */
+  private int lines = 0;
+  private int blocks = 0;
+
+  /**
+   * Count a rotation of the current piece
+   */
+  public void rotated() {
+    rotations++;
+  }
+
+  /**
+   * Count a swap of the current and next piece
+   */
+  public void swapped() {
+    swaps++;
+  }
+
+  /**
+   * Note what the placement being checked cleared, to be recorded with it
+   * @param lines The rows and columns cleared
+   * @param blocks The blocks cleared
+   */
+  public void cleared(int lines, int blocks) {
+    this.lines = lines;
+    this.blocks = blocks;
+  }
+
+  /**
+   * Record a piece placed
+   * @param piece The piece
+   * @param x The column it was placed at
+   * @param y The row it was placed at
+   * @param multiplier The multiplier it was scored with
+   * @param level The level it was placed at
+   */
+  public void placed(int piece, int x, int y, int multiplier, int level) {
+    move(PLACED, piece, x, y, multiplier, level);
+    decisionNanos = System.nanoTime();
+  }
+
+  /**
+   * Record a placement the grid rejected
+   * @param piece The piece
+   * @param x The column it was tried at
+   * @param y The row it was tried at
+   * @param multiplier The multiplier at the time
+   * @param level The level at the time
+   */
+  public void rejected(int piece, int x, int y, int multiplier, int level) {
+    move(REJECTED, piece, x, y, multiplier, level);
+  }
+
+  /**
+   * Record a piece that ran out of time
+   * @param piece The piece
+   * @param multiplier The multiplier it was lost at
+   * @param level The level it was lost at
+   */
+  public void timedOut(int piece, int multiplier, int level) {
+    move(TIMED_OUT, piece, -1, -1, multiplier, level);
+    decisionNanos = System.nanoTime();
+  }
+
+  /**
+   * Get the number of moves recorded
+   * @return The number of moves
+   */
+  public int getMoves() {
+    return moves;
+  }
+
+  /**
+   * Write the game as a block: the header then each column in turn
+   * @param score The final score
+   * @return The block, ready to be written
+   */
+  ByteBuffer toBlock(int score) {
+    var block = ByteBuffer.allocate(BLOCK_HEADER + moves * MOVE_BYTES);
+    block.position(BLOCK_HEADER);
+    block.asIntBuffer().put(time, 0, moves).put(decision, 0, moves);
+    block.position(BLOCK_HEADER + moves * 8);
+    for (byte[] column : bytes) {
+      block.put(column, 0, moves);
+    }
+    var crc = new CRC32();
+    crc.update(block.flip().position(BLOCK_HEADER));
+    block.putInt(0, BLOCK_MAGIC).putInt(4, moves).putLong(8, started).putInt(16, score)
+        .putInt(20, (int) crc.getValue());
+    return block.rewind();
+  }
+
+  /**
+   * Add a move, with the rotations and swaps since the last one and what it cleared
+   */
+  private void move(byte kind, int piece, int x, int y, int multiplier, int level) {
+    if (moves == time.length) {
+      time = Arrays.copyOf(time, moves * 2);
+      decision = Arrays.copyOf(decision, moves * 2);
+      for (int i = 0; i < BYTE_COLUMNS; i++) {
+        bytes[i] = Arrays.copyOf(bytes[i], moves * 2);
+      }
+    }
+    long now = System.nanoTime();
+    time[moves] = (int) ((now - startNanos) / 1_000_000);
+    decision[moves] = (int) ((now - decisionNanos) / 1_000_000);
+    bytes[KIND][moves] = kind;
+    bytes[PIECE][moves] = clamp(piece);
+    bytes[X][moves] = clamp(x);
+    bytes[Y][moves] = clamp(y);
+    bytes[ROTATIONS][moves] = clamp(rotations);
+    bytes[SWAPS][moves] = clamp(swaps);
+    bytes[LINES][moves] = clamp(kind == PLACED ? lines : 0);
+    bytes[BLOCKS][moves] = clamp(kind == PLACED ? blocks : 0);
+    bytes[MULTIPLIER][moves] = clamp(multiplier);
+    bytes[LEVEL][moves] = clamp(level);
+    moves++;
+    rotations = 0;
+    swaps = 0;
+    lines = 0;
+    blocks = 0;
+  }
+
+  /**
+   * Fit a value in a byte, saturating rather than wrapping
+   */
+  private static byte clamp(int value) {
+    return (byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, value));
+  }
+}
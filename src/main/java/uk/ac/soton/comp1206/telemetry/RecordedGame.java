@@ -0,0 +1,168 @@
+package uk.ac.soton.comp1206.telemetry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One game read back from a telemetry file. Fields are read straight from the file's mapped columns
+ * each time they are asked for, so nothing is copied.
+ */
+public class RecordedGame {
+
+  /**
+   * The game's block
+   */
+  private final ByteBuffer block;
+
+  /**
+   * The number of moves
+   */
+  private final int moves;
+
+  /**
+   * Read a game from its block
+   * @param block The block, starting at its header
+   */
+  RecordedGame(ByteBuffer block) {
+    this.block = block;
+    this.moves = block.getInt(4);
+  }
+
+  /**
+   * Get the number of moves
+   * @return The number of moves
+   */
+  public int getMoves() {
+    return moves;
+  }
+
+  /**
+   * Get when the game started
+   * @return The start time, in milliseconds since the epoch
+   */
+  public long getStarted() {
+    return block.getLong(8);
+  }
+
+  /**
+   * Get the final score
+   * @return The score
+   */
+  public int getScore() {
+    return block.getInt(16);
+  }
+
+  /**
+   * Get when a move was made
+   * @param move The move
+   * @return The milliseconds from the start of the game
+   */
+  public int time(int move) {
+    return block.getInt(GameTelemetry.BLOCK_HEADER + move * 4);
+  }
+
+  /**
+   * Get how long was taken to decide on a move
+   * @param move The move
+   * @return The milliseconds since the last piece was placed or timed out
+   */
+  public int decision(int move) {
+    return block.getInt(GameTelemetry.BLOCK_HEADER + moves * 4 + move * 4);
+  }
+
+  /**
+   * Get what kind of move a move was
+   * @param move The move
+   * @return {@link GameTelemetry#PLACED}, {@link GameTelemetry#REJECTED} or {@link GameTelemetry#TIMED_OUT}
+   */
+  public int kind(int move) {
+    return column(GameTelemetry.KIND, move);
+  }
+
+  /**
+   * Get the piece moved
+   * @param move The move
+   * @return The piece's value
+   */
+  public int piece(int move) {
+    return column(GameTelemetry.PIECE, move);
+  }
+
+  /**
+   * Get the column a piece was placed at
+   * @param move The move
+   * @return The column, or -1 if the piece timed out
+   */
+  public int x(int move) {
+    return column(GameTelemetry.X, move);
+  }
+
+  /**
+   * Get the row a piece was placed at
+   * @param move The move
+   * @return The row, or -1 if the piece timed out
+   */
+  public int y(int move) {
+    return column(GameTelemetry.Y, move);
+  }
+
+  /**
+   * Get the rotations made before a move
+   * @param move The move
+   * @return The rotations since the last move
+   */
+  public int rotations(int move) {
+    return column(GameTelemetry.ROTATIONS, move);
+  }
+
+  /**
+   * Get the swaps made before a move
+   * @param move The move
+   * @return The swaps since the last move
+   */
+  public int swaps(int move) {
+    return column(GameTelemetry.SWAPS, move);
+  }
+
+  /**
+   * Get the rows and columns a move cleared
+   * @param move The move
+   * @return The lines cleared, 0 unless the piece was placed
+   */
+  public int lines(int move) {
+    return column(GameTelemetry.LINES, move);
+  }
+
+  /**
+   * Get the blocks a move cleared
+   * @param move The move
+   * @return The blocks cleared, 0 unless the piece was placed
+   */
+  public int blocks(int move) {
+    return column(GameTelemetry.BLOCKS, move);
+  }
+
+  /**
+   * Get the multiplier a move was made at
+   * @param move The move
+   * @return The multiplier
+   */
+  public int multiplier(int move) {
+    return column(GameTelemetry.MULTIPLIER, move);
+  }
+
+  /**
+   * Get the level a move was made at
+   * @param move The move
+   * @return The level
+   */
+  public int level(int move) {
+    return column(GameTelemetry.LEVEL, move);
+  }
+
+  /**
+   * Read a byte column
+   */
+  private int column(int column, int move) {
+    return block.get(GameTelemetry.BLOCK_HEADER + moves * 8 + column * moves + move);
+  }
+}
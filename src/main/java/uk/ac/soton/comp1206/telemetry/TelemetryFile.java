@@ -0,0 +1,158 @@
+package uk.ac.soton.comp1206.telemetry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * A telemetry file opened for reading. The file is memory mapped in segments of up to
+ * {@link #SEGMENT} bytes, each holding whole games, and games are scanned in parallel straight from
+ * the mapping.
+ */
+public class TelemetryFile implements Closeable {
+
+  /**
+   * The most bytes mapped at once
+   */
+  static final long SEGMENT = 1L << 30;
+
+  /**
+   * The open file
+   */
+  private final FileChannel channel;
+
+  /**
+   * Every complete game in the file, in the order they were written
+   */
+  private final List<RecordedGame> games = new ArrayList<>();
+
+  /**
+   * The total number of moves
+   */
+  private long moves = 0;
+
+  /**
+   * Open a telemetry file and map it. A torn game at the end is ignored
+   * @param file The telemetry file
+   * @throws IOException If the file can't be read or isn't a telemetry file
+   */
+  public TelemetryFile(Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    var header = ByteBuffer.allocate(TelemetryLog.HEADER);
+    if (channel.read(header, 0) < TelemetryLog.HEADER || header.getInt(0) != TelemetryLog.MAGIC
+        || header.getInt(4) != TelemetryLog.VERSION) {
+      channel.close();
+      throw new IOException(file + " is not a telemetry file");
+    }
+
+    long end = validEnd(channel, channel.size());
+    long segmentStart = TelemetryLog.HEADER;
+    ByteBuffer segment = null;
+    for (long offset = TelemetryLog.HEADER; offset < end; ) {
+      long length = blockLength(channel, offset);
+      if (segment == null || offset + length > segmentStart + segment.capacity()) {
+        segmentStart = offset;
+        segment = channel.map(MapMode.READ_ONLY, offset, Math.min(end - offset, Math.max(SEGMENT, length)));
+      }
+      var game = new RecordedGame(segment.slice((int) (offset - segmentStart), (int) length));
+      games.add(game);
+      moves += game.getMoves();
+      offset += length;
+    }
+  }
+
+  /**
+   * Get the number of games
+   * @return The number of games
+   */
+  public int getGames() {
+    return games.size();
+  }
+
+  /**
+   * Get the number of moves across every game
+   * @return The number of moves
+   */
+  public long getMoves() {
+    return moves;
+  }
+
+  /**
+   * Scan every game in parallel. Each thread adds games to its own result, and the results are then
+   * combined into one
+   * @param create Creates an empty result
+   * @param add Adds a game to a result
+   * @param combine Adds the second result to the first
+   * @param <R> The type of the result
+   * @return The result over every game
+   */
+  public <R> R scan(Supplier<R> create, BiConsumer<R, RecordedGame> add, BiConsumer<R, R> combine) {
+    return games.parallelStream().collect(create, add, combine);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Find the end of the last complete game in a telemetry file: one whose block fits in the file and,
+   * for the last block, whose columns match their checksum
+   * @param channel The open file
+   * @param size The size of the file
+   * @return The offset just past the last complete game
+   * @throws IOException If the file can't be read
+   */
+  static long validEnd(FileChannel channel, long size) throws IOException {
+    long end = TelemetryLog.HEADER;
+    long last = -1;
+    while (end + GameTelemetry.BLOCK_HEADER <= size) {
+      long length = blockLength(channel, end);
+      if (length < 0 || end + length > size) {
+        break;
+      }
+      last = end;
+      end += length;
+    }
+    if (last >= 0 && !checksumMatches(channel, last, end - last)) {
+      end = last;
+    }
+    return end;
+  }
+
+  /**
+   * Read the length of the block at an offset from its header
+   * @return The length, or -1 if there is no block header there
+   */
+  private static long blockLength(FileChannel channel, long offset) throws IOException {
+    var header = ByteBuffer.allocate(8);
+    if (channel.read(header, offset) < 8 || header.getInt(0) != GameTelemetry.BLOCK_MAGIC || header.getInt(4) < 0) {
+      return -1;
+    }
+    return GameTelemetry.BLOCK_HEADER + (long) header.getInt(4) * GameTelemetry.MOVE_BYTES;
+  }
+
+  /**
+   * Check a block's columns against the checksum in its header
+   */
+  private static boolean checksumMatches(FileChannel channel, long offset, long length) throws IOException {
+    var block = ByteBuffer.allocate((int) length);
+    while (block.hasRemaining()) {
+      if (channel.read(block, offset + block.position()) < 0) {
+        break;
+      }
+    }
+    var crc = new CRC32();
+    crc.update(block.flip().position(GameTelemetry.BLOCK_HEADER));
+    return (int) crc.getValue() == block.getInt(20);
+  }
+}
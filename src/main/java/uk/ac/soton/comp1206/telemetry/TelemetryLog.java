@@ -0,0 +1,143 @@
+package uk.ac.soton.comp1206.telemetry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.metrics.Metrics;
+
+/**
+ * Appends each finished game's telemetry to a file, on a background thread. The file is a short
+ * header followed by one block per game, and is only ever appended to. If the game stopped part way
+ * through writing a block, the torn block is cut off before the next one is written.
+ */
+public class TelemetryLog implements Closeable {
+
+  private static final Logger logger = LogManager.getLogger(TelemetryLog.class);
+
+  /**
+   * The first four bytes of a telemetry file, "TTLM"
+   */
+  static final int MAGIC = 0x54544C4D;
+
+  /**
+   * The version of the file layout
+   */
+  static final int VERSION = 1;
+
+  /**
+   * The size of the file header: magic and version
+   */
+  static final int HEADER = 8;
+
+  /**
+   * Writes games off the JavaFX Application Thread
+   */
+  private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+    var thread = new Thread(runnable, "telemetry-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * The telemetry file
+   */
+  private final Path file;
+
+  /**
+   * The open file, or null until the first game is written. Only used on the writer thread
+   */
+  private FileChannel channel;
+
+  /**
+   * Create a new telemetry log. Nothing is opened until the first game is recorded
+   * @param file The telemetry file
+   */
+  public TelemetryLog(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Append a finished game. Games with no moves are skipped
+   * @param game The game's telemetry
+   * @param score The final score
+   */
+  public void record(GameTelemetry game, int score) {
+    if (game.getMoves() == 0) {
+      return;
+    }
+    var block = game.toBlock(score);
+    writer.execute(() -> {
+      try {
+        open();
+        while (block.hasRemaining()) {
+          channel.write(block);
+        }
+        channel.force(false);
+        Metrics.counter("telemetry.games").increment();
+      } catch (IOException e) {
+        logger.error("Unable to write telemetry to {}: {}", file, e.getMessage());
+        Metrics.counter("telemetry.errors").increment();
+      }
+    });
+  }
+
+  /**
+   * Write any games waiting and close the file
+   */
+  @Override
+  public void close() {
+    writer.execute(() -> {
+      try {
+        if (channel != null) {
+          channel.close();
+        }
+      } catch (IOException e) {
+        logger.error("Unable to close {}: {}", file, e.getMessage());
+      }
+    });
+    writer.shutdown();
+    try {
+      writer.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Open the file if it isn't already, writing the header to a new file and cutting off any torn block
+   * at the end of an old one
+   */
+  private void open() throws IOException {
+    if (channel != null) {
+      return;
+    }
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    long size = channel.size();
+    var header = ByteBuffer.allocate(HEADER);
+    if (size < HEADER || channel.read(header, 0) < HEADER
+        || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+      if (size > 0) {
+        logger.warn("Replacing unreadable telemetry file {}", file);
+      }
+      channel.truncate(0);
+      channel.write(ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).flip(), 0);
+      channel.position(HEADER);
+      return;
+    }
+
+    long end = TelemetryFile.validEnd(channel, size);
+    if (end < size) {
+      logger.warn("Dropped {} bytes of torn telemetry from {}", size - end, file);
+      channel.truncate(end);
+    }
+    channel.position(end);
+  }
+}
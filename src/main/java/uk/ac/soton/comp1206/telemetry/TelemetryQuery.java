@@ -0,0 +1,161 @@
+package uk.ac.soton.comp1206.telemetry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.utilities.Histogram;
+
+/**
+ * Summarises a telemetry file: for each level, how many moves were made, how often pieces were
+ * rejected or ran out of time and how long players took to decide, against the time the game allows;
+ * then how many lines each placement cleared, and how often players rotate and swap. Games are
+ * scanned in parallel straight from the mapped file.
+ *
+ * <p>Run with {@code mvn -Ploadtest exec:java -Dexec.mainClass=uk.ac.soton.comp1206.telemetry.TelemetryQuery
+ * -Dexec.args=telemetry.dat}. The file defaults to telemetry.dat.
+ */
+public class TelemetryQuery {
+
+  /**
+   * The number of levels a move can be recorded at
+   */
+  private static final int LEVELS = Byte.MAX_VALUE + 1;
+
+  /**
+   * The number of lines a move can be recorded clearing
+   */
+  private static final int LINES = Byte.MAX_VALUE + 1;
+
+  /**
+   * Totals over the games one thread has scanned
+   */
+  private static class Totals {
+
+    private long games;
+    private long score;
+    private final long[] moves = new long[LEVELS];
+    private final long[] placed = new long[LEVELS];
+    private final long[] rejected = new long[LEVELS];
+    private final long[] timedOut = new long[LEVELS];
+    private final long[] cleared = new long[LINES];
+    private long rotations;
+    private long swaps;
+
+    /**
+     * Decision times at each level, created when the level is first seen
+     */
+    private final Histogram[] decisions = new Histogram[LEVELS];
+
+    /**
+     * Add a game's moves
+     */
+    private void add(RecordedGame game) {
+      games++;
+      score += game.getScore();
+      for (int i = 0; i < game.getMoves(); i++) {
+        int level = Math.max(0, game.level(i));
+        moves[level]++;
+        rotations += game.rotations(i);
+        swaps += game.swaps(i);
+        switch (game.kind(i)) {
+          case GameTelemetry.PLACED -> {
+            placed[level]++;
+            cleared[Math.max(0, game.lines(i))]++;
+            decisions(level).record(game.decision(i));
+          }
+          case GameTelemetry.REJECTED -> rejected[level]++;
+          case GameTelemetry.TIMED_OUT -> {
+            timedOut[level]++;
+            decisions(level).record(game.decision(i));
+          }
+          default -> {
+          }
+        }
+      }
+    }
+
+    /**
+     * Get the decision times at a level, creating them if needed
+     */
+    private Histogram decisions(int level) {
+      if (decisions[level] == null) {
+        decisions[level] = new Histogram();
+      }
+      return decisions[level];
+    }
+
+    /**
+     * Add another thread's totals
+     */
+    private void combine(Totals other) {
+      games += other.games;
+      score += other.score;
+      for (int level = 0; level < LEVELS; level++) {
+        moves[level] += other.moves[level];
+        placed[level] += other.placed[level];
+        rejected[level] += other.rejected[level];
+        timedOut[level] += other.timedOut[level];
+        if (other.decisions[level] != null) {
+          decisions(level).add(other.decisions[level]);
+        }
+      }
+      for (int lines = 0; lines < LINES; lines++) {
+        cleared[lines] += other.cleared[lines];
+      }
+      rotations += other.rotations;
+      swaps += other.swaps;
+    }
+  }
+
+  /**
+   * Summarise a telemetry file
+   * @param args The telemetry file, if not telemetry.dat
+   * @throws IOException If the file can't be read
+   */
+  public static void main(String[] args) throws IOException {
+    var file = Path.of(args.length > 0 ? args[0] : "telemetry.dat");
+
+    long start = System.nanoTime();
+    Totals totals;
+    long moves;
+    try (var telemetry = new TelemetryFile(file)) {
+      totals = telemetry.scan(Totals::new, Totals::add, Totals::combine);
+      moves = telemetry.getMoves();
+    }
+    long millis = (System.nanoTime() - start) / 1_000_000;
+
+    System.out.printf("%,d games, %,d moves, mean score %,d, scanned in %,d ms%n%n", totals.games, moves,
+        totals.games == 0 ? 0 : totals.score / totals.games, millis);
+
+    var game = new Game(5, 5);
+    System.out.printf("%5s %10s %9s %9s %9s %9s %9s %9s%n", "level", "moves", "rejected", "timed out",
+        "mean ms", "p50 ms", "p90 ms", "timer ms");
+    for (int level = 0; level < LEVELS; level++) {
+      if (totals.moves[level] == 0) {
+        continue;
+      }
+      game.setLevel(level);
+      var decided = totals.decisions(level);
+      System.out.printf("%5d %,10d %8.1f%% %8.1f%% %9d %9d %9d %9d%n", level, totals.moves[level],
+          100.0 * totals.rejected[level] / totals.moves[level],
+          100.0 * totals.timedOut[level] / totals.moves[level],
+          decided.getMean(), decided.getPercentile(50), decided.getPercentile(90), game.getTimerDelay());
+    }
+
+    long placed = 0;
+    for (long count : totals.placed) {
+      placed += count;
+    }
+    System.out.printf("%n%5s %12s %9s%n", "lines", "placements", "share");
+    for (int lines = 0; lines < LINES; lines++) {
+      if (totals.cleared[lines] > 0) {
+        System.out.printf("%5d %,12d %8.1f%%%n", lines, totals.cleared[lines], 100.0 * totals.cleared[lines] / placed);
+      }
+    }
+
+    if (placed > 0) {
+      System.out.printf("%n%.2f rotations and %.2f swaps per placement%n", (double) totals.rotations / placed,
+          (double) totals.swaps / placed);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package uk.ac.soton.comp1206.ui;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Pos;
+import javafx.scene.layout.StackPane;
+import javafx.scene.text.Text;
+import javafx.util.Duration;
+import uk.ac.soton.comp1206.network.NetworkMetrics;
+
+/**
+ * A panel drawn over the current scene showing the network metrics, refreshed twice a second while
+ * it is visible. It is hidden until toggled and never takes mouse input from the scene beneath it.
+ */
+public class DebugOverlay extends StackPane {
+
+  /**
+   * The metrics to show
+   */
+  private final NetworkMetrics metrics;
+
+  /**
+   * The text showing the metrics
+   */
+  private final Text text = new Text();
+
+  /**
+   * Refreshes the text while visible
+   */
+  private final Timeline refresh = new Timeline(new KeyFrame(Duration.millis(500), e -> update()));
+
+  /**
+   * Create a new, hidden debug overlay
+   * @param metrics The metrics to show
+   */
+  public DebugOverlay(NetworkMetrics metrics) {
+    this.metrics = metrics;
+
+    text.getStyleClass().add("debugoverlay");
+    getChildren().add(text);
+    setAlignment(Pos.BOTTOM_LEFT);
+    setMouseTransparent(true);
+    setPickOnBounds(false);
+    setVisible(false);
+
+    refresh.setCycleCount(Animation.INDEFINITE);
+  }
+
+  /**
+   * Show the overlay if it is hidden, or hide it if it is shown
+   */
+  public void toggle() {
+    setVisible(!isVisible());
+    if (isVisible()) {
+      update();
+      refresh.play();
+    } else {
+      refresh.stop();
+    }
+  }
+
+  /**
+   * Sample the metrics and show them
+   */
+  private void update() {
+    metrics.sample();
+    text.setText(metrics.summary());
+  }
+}
@@ -1,7 +1,11 @@
 package uk.ac.soton.comp1206.ui;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import javafx.application.Platform;
 import javafx.scene.Scene;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
@@ -10,7 +14,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.App;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.jfr.SceneBuildEvent;
+import uk.ac.soton.comp1206.metrics.Metrics;
+import uk.ac.soton.comp1206.metrics.MetricsExporter;
 import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.network.LoopbackTransport;
+import uk.ac.soton.comp1206.network.ReplayTransport;
 import uk.ac.soton.comp1206.scene.BaseScene;
 import uk.ac.soton.comp1206.scene.ChallengeScene;
 import uk.ac.soton.comp1206.scene.HowToPlayScene;
@@ -21,6 +30,12 @@ import uk.ac.soton.comp1206.scene.MultiplayerScene;
 import uk.ac.soton.comp1206.scene.NewScoreScene;
 import uk.ac.soton.comp1206.scene.ScoresScene;
 import uk.ac.soton.comp1206.scene.SettingScene;
+import uk.ac.soton.comp1206.scores.OnlineScores;
+import uk.ac.soton.comp1206.scores.ScoreService;
+import uk.ac.soton.comp1206.scores.ScoreStore;
+import uk.ac.soton.comp1206.server.LocalServer;
+import uk.ac.soton.comp1206.telemetry.TelemetryLog;
+import uk.ac.soton.comp1206.utilities.Multimedia;
 
 /**
  * The GameWindow is the single window for the game where everything takes place. To move between screens in the game,
@@ -36,6 +51,21 @@ public class GameWindow {
      * The Communicator associated with the GameWindow
      */
     final Communicator communicator;
+    /**
+     * The scores set on this machine, read and written off the JavaFX Application Thread. Each read or
+     * write may take up to tetrecs.ioTimeout seconds
+     */
+    private final ScoreService scoreService = new ScoreService(
+        new ScoreStore(Path.of("scores.dat"), Path.of("scores.txt")),
+        Integer.getInteger("tetrecs.ioTimeout", 5) * 1000L);
+    /**
+     * Records the moves of every game played to telemetry.dat
+     */
+    private final TelemetryLog telemetryLog = new TelemetryLog(Path.of("telemetry.dat"));
+    /**
+     * The server's high scores, kept between scenes for tetrecs.scoreTtl seconds
+     */
+    private final OnlineScores onlineScores;
     /**
      * The width of the GameWindow
      */
@@ -56,6 +86,14 @@ public class GameWindow {
      * The Scene associated with the GameWindow
      */
     private Scene scene;
+    /**
+     * Writes every metric to metrics.jsonl each tetrecs.metricsInterval seconds and publishes them over JMX
+     */
+    private final MetricsExporter metricsExporter;
+    /**
+     * Shows the network metrics over every scene, toggled with F3
+     */
+    private DebugOverlay debugOverlay;
 
     /**
      * Create a new GameWindow attached to the given stage with the specified width and height
@@ -79,7 +117,10 @@ public class GameWindow {
         setupDefaultScene();
 
         //Setup communicator
-        communicator = new Communicator("ws://ofb-labs.soton.ac.uk:9700");
+        communicator = createCommunicator();
+        onlineScores = new OnlineScores(communicator, Integer.getInteger("tetrecs.scoreTtl", 60) * 1000L);
+        metricsExporter = new MetricsExporter(Path.of("metrics.jsonl"), Integer.getInteger("tetrecs.metricsInterval", 10));
+        debugOverlay = new DebugOverlay(communicator.getMetrics());
 
       //Go to the menu
         startIntro();
@@ -97,6 +138,46 @@ public class GameWindow {
         Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Regular.ttf"),32);
         Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Bold.ttf"),32);
         Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-ExtraBold.ttf"),32);
+
+        //Decode the music in the background so switching scenes never waits on it
+        Multimedia.preloadBackgroundMusic("menu.mp3", "game.mp3", "end.wav");
+    }
+
+    /**
+     * Create the communicator. Setting the tetrecs.server system property to a web socket URL connects to
+     * that server instead of the default, and setting it to "local" plays against a stand-in server running
+     * inside the game, with no network needed. Setting it to "replay:file" plays back a capture at the pace
+     * it was recorded, and "replay-fast:file" plays it back as fast as possible. Setting tetrecs.capture to
+     * a file records every frame sent and received to it
+     * @return the communicator
+     */
+    private Communicator createCommunicator() {
+        var server = System.getProperty("tetrecs.server", "ws://ofb-labs.soton.ac.uk:9700");
+        Communicator created;
+        if (server.equals("local")) {
+            logger.info("Using the local server");
+            var localServer = new LocalServer();
+            created = new Communicator(() -> new LoopbackTransport(localServer));
+            created.requestBinaryFrames();
+            created.requestBoardDeltas();
+        } else if (server.startsWith("replay:") || server.startsWith("replay-fast:")) {
+            var paced = server.startsWith("replay:");
+            var file = Path.of(server.substring(server.indexOf(':') + 1));
+            logger.info("Replaying {}{}", file, paced ? "" : " as fast as possible");
+            created = new Communicator(() -> new ReplayTransport(file, paced));
+        } else {
+            created = new Communicator(server);
+        }
+
+        var capture = System.getProperty("tetrecs.capture");
+        if (capture != null) {
+            try {
+                created.startCapture(Path.of(capture));
+            } catch (IOException e) {
+                logger.error("Unable to capture to {}: {}", capture, e.getMessage());
+            }
+        }
+        return created;
     }
 
     /**
@@ -181,15 +262,55 @@ public class GameWindow {
         cleanup();
 
         //Create the new scene and set it up
+        long start = System.nanoTime();
+        var event = new SceneBuildEvent();
+        event.begin();
         newScene.build();
         currentScene = newScene;
         scene = newScene.setScene();
+        showDebugOverlay(scene);
         stage.setScene(scene);
+        Metrics.histogram("ui.sceneBuild.nanos").record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.scene = newScene.getClass().getSimpleName();
+            event.commit();
+        }
 
       //Initialize the scene when ready
         Platform.runLater(() -> currentScene.initialise());
     }
 
+    /**
+     * Put the debug overlay on top of a scene and let F3 toggle it
+     * @param scene the scene
+     */
+    private void showDebugOverlay(Scene scene) {
+        if (scene.getRoot() instanceof GamePane pane) {
+            pane.getChildren().add(debugOverlay);
+        }
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (e.getCode() == KeyCode.F3) {
+                debugOverlay.toggle();
+                e.consume();
+            }
+        });
+    }
+
+    /**
+     * Finish any capture and write the network metrics to a file before the game exits
+     */
+    public void shutdown() {
+        communicator.stopCapture();
+        communicator.getMetrics().dump(Path.of("network-metrics.txt"));
+        try {
+            scoreService.close();
+        } catch (IOException e) {
+            logger.error("Unable to close the score store: {}", e.getMessage());
+        }
+        telemetryLog.close();
+        metricsExporter.close();
+    }
+
     /**
      * Set up the default scene (an empty black scene) when no scene is loaded
      */
@@ -203,11 +324,35 @@ public class GameWindow {
      */
     public void cleanup() {
         logger.info("Clearing up previous scene");
-        communicator.clearListeners();
+        communicator.renewScope();
     }
 
 
 
+    /**
+     * Get the scores set on this machine
+     * @return the score service
+     */
+    public ScoreService getScoreService() {
+        return scoreService;
+    }
+
+    /**
+     * Get the log every game's telemetry is recorded to
+     * @return the telemetry log
+     */
+    public TelemetryLog getTelemetryLog() {
+        return telemetryLog;
+    }
+
+    /**
+     * Get the server's high scores
+     * @return the online scores
+     */
+    public OnlineScores getOnlineScores() {
+        return onlineScores;
+    }
+
     /**
      * Get the current scene being displayed
      * @return scene
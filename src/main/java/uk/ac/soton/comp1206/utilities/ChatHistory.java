@@ -0,0 +1,407 @@
+package uk.ac.soton.comp1206.utilities;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.collections.ObservableListBase;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The lines of a chat, of which only a window of a fixed number is held in memory. The window is a
+ * ring buffer and is what the list shows. Every line is also appended to a log on disk, so lines that
+ * have dropped out of the window can be paged back in at either end as the user scrolls. Only one
+ * offset in every {@link #INDEX_EVERY} lines is kept to find lines in the log, so memory stays flat
+ * however long the chat runs.
+ *
+ * <p>While following, new lines are added to the end of the window and the oldest dropped. When not
+ * following, such as while the user reads back, new lines only go to the log until following resumes.
+ * If the log can't be written the chat just keeps the latest lines.
+ *
+ * <p>The log is written on a background thread, so a busy chat doesn't hold up the UI. Paging in
+ * waits for the lines before it to be written.
+ *
+ * <p>Not thread safe. Use from the JavaFX Application Thread.
+ */
+public class ChatHistory extends ObservableListBase<String> implements Closeable {
+
+  private static final Logger logger = LogManager.getLogger(ChatHistory.class);
+
+  /**
+   * How many lines there are between the offsets kept of lines in the log
+   */
+  static final int INDEX_EVERY = 64;
+
+  /**
+   * Writes and reads the log off the JavaFX Application Thread
+   */
+  private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+    var thread = new Thread(runnable, "chat-log");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * The lines in the window
+   */
+  private final String[] ring;
+
+  /**
+   * The index in the ring of the first line in the window
+   */
+  private int head = 0;
+
+  /**
+   * The number of lines in the window
+   */
+  private int size = 0;
+
+  /**
+   * The number of the first line in the window, counting from the start of the chat
+   */
+  private long first = 0;
+
+  /**
+   * The number of lines in the chat
+   */
+  private long total = 0;
+
+  /**
+   * True while new lines are added to the window
+   */
+  private boolean following = true;
+
+  /**
+   * True once the log can't be used
+   */
+  private volatile boolean failed = false;
+
+  /**
+   * The log of every line, opened with the first line. Only used on the writer thread
+   */
+  private FileChannel log;
+
+  /**
+   * The file holding the log. Only used on the writer thread
+   */
+  private Path file;
+
+  /**
+   * The length of the log. Only used on the writer thread
+   */
+  private long logLength = 0;
+
+  /**
+   * The offset in the log of every {@link #INDEX_EVERY}th line. Only used on the writer thread
+   */
+  private long[] index = new long[16];
+
+  /**
+   * Create a new, empty chat history
+   * @param limit The most lines to hold in memory
+   */
+  public ChatHistory(int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Chat limit must be at least 1");
+    }
+    ring = new String[limit];
+  }
+
+  @Override
+  public String get(int i) {
+    if (i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException(i);
+    }
+    return ring[(head + i) % ring.length];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Add a line to the end of the chat
+   * @param line The line
+   */
+  public void append(String line) {
+    //Both, as the log is read back a line at a time and either ends a line
+    var flat = line.replace('\n', ' ').replace('\r', ' ');
+    boolean atEnd = end() == total;
+    if (!failed) {
+      long number = total;
+      writer.execute(() -> write(number, flat));
+    }
+    total++;
+    if (atEnd && (following || failed)) {
+      beginChange();
+      addLast(flat);
+      endChange();
+    }
+  }
+
+  /**
+   * Page older lines from the log into the start of the window, dropping as many from the end if the
+   * window is full
+   * @param count The most lines to page in
+   * @return The number of lines paged in
+   */
+  public int pageOlder(int count) {
+    if (first == 0) {
+      return 0;
+    }
+    var lines = read(Math.max(0, first - count), first);
+    beginChange();
+    for (int i = lines.size() - 1; i >= 0; i--) {
+      addFirst(lines.get(i));
+    }
+    endChange();
+    return lines.size();
+  }
+
+  /**
+   * Page newer lines from the log into the end of the window, dropping as many from the start if the
+   * window is full
+   * @param count The most lines to page in
+   * @return The number of lines paged in
+   */
+  public int pageNewer(int count) {
+    if (end() >= total) {
+      return 0;
+    }
+    var lines = read(end(), Math.min(total, end() + count));
+    beginChange();
+    lines.forEach(this::addLast);
+    endChange();
+    return lines.size();
+  }
+
+  /**
+   * Set whether new lines are added to the window. Starting to follow again brings the window up to
+   * date, jumping straight to the latest lines if more have arrived than the window holds
+   * @param following True to add new lines to the window
+   */
+  public void setFollowing(boolean following) {
+    this.following = following;
+    if (!following || end() == total) {
+      return;
+    }
+    if (total - end() < ring.length) {
+      pageNewer((int) (total - end()));
+      return;
+    }
+    var lines = read(total - ring.length, total);
+    beginChange();
+    while (size > 0) {
+      removeFirst();
+    }
+    first = total - lines.size();
+    lines.forEach(this::addLast);
+    endChange();
+  }
+
+  /**
+   * Get whether new lines are added to the window
+   * @return True if following
+   */
+  public boolean isFollowing() {
+    return following;
+  }
+
+  /**
+   * Get whether there are lines before the window
+   * @return True if there are older lines in the log
+   */
+  public boolean hasOlder() {
+    return first > 0;
+  }
+
+  /**
+   * Get whether there are lines after the window
+   * @return True if there are newer lines in the log
+   */
+  public boolean hasNewer() {
+    return end() < total;
+  }
+
+  /**
+   * Get the number of lines in the chat, including those not in memory
+   * @return The number of lines
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * Close and delete the log. Lines still waiting to be written are discarded
+   */
+  @Override
+  public void close() {
+    if (writer.isShutdown()) {
+      return;
+    }
+    failed = true;
+    writer.execute(this::delete);
+    writer.shutdown();
+  }
+
+  /**
+   * Get the number of the line after the window
+   */
+  private long end() {
+    return first + size;
+  }
+
+  /**
+   * Add a line to the end of the window, dropping the first if it is full. Must be within a change
+   */
+  private void addLast(String line) {
+    if (size == ring.length) {
+      removeFirst();
+    }
+    ring[(head + size) % ring.length] = line;
+    size++;
+    nextAdd(size - 1, size);
+  }
+
+  /**
+   * Add a line to the start of the window, dropping the last if it is full. Must be within a change
+   */
+  private void addFirst(String line) {
+    if (size == ring.length) {
+      int last = (head + size - 1) % ring.length;
+      var removed = ring[last];
+      ring[last] = null;
+      size--;
+      nextRemove(size, removed);
+    }
+    head = (head + ring.length - 1) % ring.length;
+    ring[head] = line;
+    size++;
+    first--;
+    nextAdd(0, 1);
+  }
+
+  /**
+   * Drop the first line of the window. Must be within a change
+   */
+  private void removeFirst() {
+    var removed = ring[head];
+    ring[head] = null;
+    head = (head + 1) % ring.length;
+    size--;
+    first++;
+    nextRemove(0, removed);
+  }
+
+  /**
+   * Append a line to the log, opening it first if needed. Runs on the writer thread
+   * @param number The number of the line
+   * @param line The line
+   */
+  private void write(long number, String line) {
+    if (failed) {
+      return;
+    }
+    try {
+      if (log == null) {
+        file = Files.createTempFile("tetrecs-chat", ".log");
+        file.toFile().deleteOnExit();
+        log = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      }
+      if (number % INDEX_EVERY == 0) {
+        int entry = (int) (number / INDEX_EVERY);
+        if (entry == index.length) {
+          index = Arrays.copyOf(index, index.length * 2);
+        }
+        index[entry] = logLength;
+      }
+      var bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+      while (bytes.hasRemaining()) {
+        logLength += log.write(bytes, logLength);
+      }
+    } catch (IOException e) {
+      logger.error("Unable to write chat log, older lines will be dropped: {}", e.getMessage());
+      failed = true;
+      delete();
+    }
+  }
+
+  /**
+   * Close and delete the log, if it was opened. Runs on the writer thread
+   */
+  private void delete() {
+    if (log == null) {
+      return;
+    }
+    try {
+      log.close();
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      logger.warn("Unable to remove chat log {}: {}", file, e.getMessage());
+    }
+    log = null;
+  }
+
+  /**
+   * Read lines from the log, once every line before them has been written
+   * @param from The number of the first line
+   * @param to The number of the line after the last
+   * @return The lines, or none if the log can't be read
+   */
+  private List<String> read(long from, long to) {
+    if (failed) {
+      return new ArrayList<>();
+    }
+    try {
+      return writer.submit(() -> readLog(from, to)).get();
+    } catch (ExecutionException e) {
+      logger.error("Unable to read chat log: {}", e.getCause().getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * Read lines from the log. Runs on the writer thread
+   * @param from The number of the first line
+   * @param to The number of the line after the last
+   * @return The lines, or none if the log can't be read
+   */
+  private List<String> readLog(long from, long to) {
+    var lines = new ArrayList<String>((int) (to - from));
+    if (log == null) {
+      return lines;
+    }
+    try {
+      log.position(index[(int) (from / INDEX_EVERY)]);
+      // Not closed, as that would close the log
+      var reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(log), StandardCharsets.UTF_8));
+      for (long skip = from % INDEX_EVERY; skip > 0; skip--) {
+        reader.readLine();
+      }
+      for (long line = from; line < to; line++) {
+        lines.add(reader.readLine());
+      }
+    } catch (IOException e) {
+      logger.error("Unable to read chat log: {}", e.getMessage());
+      lines.clear();
+    }
+    return lines;
+  }
+}
@@ -0,0 +1,221 @@
+package uk.ac.soton.comp1206.utilities;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values, such as latencies in nanoseconds, in the style of an HDR
+ * histogram. Values are counted in buckets that are exact below 64 and cover about 3% of their value
+ * above that, so recording is a couple of bit operations and an atomic increment, and percentiles are
+ * accurate to within one bucket. The buckets are striped by thread, as a LongAdder is, so threads
+ * recording at once rarely touch the same counts; a stripe is only allocated once a thread uses it.
+ */
+public class Histogram {
+
+  /**
+   * The number of bits of each value kept below its highest set bit
+   */
+  private static final int SUB_BUCKET_BITS = 5;
+
+  /**
+   * The number of buckets for each power of two
+   */
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Enough buckets for any positive long
+   */
+  private static final int BUCKETS = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+  /**
+   * The number of stripes of buckets, a power of two
+   */
+  private static final int STRIPES =
+      Integer.highestOneBit(Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+  /**
+   * The count in each bucket for each stripe, or null for a stripe no thread has used
+   */
+  private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+
+  /**
+   * The number of values recorded
+   */
+  private final LongAdder count = new LongAdder();
+
+  /**
+   * The sum of the values recorded
+   */
+  private final LongAdder sum = new LongAdder();
+
+  /**
+   * The largest value recorded
+   */
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Record a value. Negative values are recorded as 0
+   * @param value The value
+   */
+  public void record(long value) {
+    value = Math.max(0, value);
+    stripe().incrementAndGet(indexOf(value));
+    count.increment();
+    sum.add(value);
+    if (value > max.get()) {
+      max.accumulateAndGet(value, Math::max);
+    }
+  }
+
+  /**
+   * Get the number of values recorded
+   * @return The count
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Get the mean of the values recorded
+   * @return The mean, or 0 if nothing has been recorded
+   */
+  public long getMean() {
+    long n = count.sum();
+    return n == 0 ? 0 : sum.sum() / n;
+  }
+
+  /**
+   * Get the largest value recorded
+   * @return The maximum, or 0 if nothing has been recorded
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Get the value below which the given percentage of recorded values fall
+   * @param percentile The percentage, between 0 and 100
+   * @return The highest value in the bucket holding that percentile, or 0 if nothing has been recorded
+   */
+  public long getPercentile(double percentile) {
+    var counts = new long[BUCKETS];
+    long total = 0;
+    for (int s = 0; s < STRIPES; s++) {
+      var stripe = stripes.get(s);
+      if (stripe != null) {
+        for (int i = 0; i < BUCKETS; i++) {
+          long bucket = stripe.get(i);
+          counts[i] += bucket;
+          total += bucket;
+        }
+      }
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= target) {
+        return Math.min(highestValueAt(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Add every value recorded in another histogram to this one
+   * @param other The other histogram
+   */
+  public void add(Histogram other) {
+    var counts = stripe();
+    for (int s = 0; s < STRIPES; s++) {
+      var stripe = other.stripes.get(s);
+      if (stripe == null) {
+        continue;
+      }
+      for (int i = 0; i < BUCKETS; i++) {
+        long bucket = stripe.get(i);
+        if (bucket != 0) {
+          counts.addAndGet(i, bucket);
+        }
+      }
+    }
+    count.add(other.count.sum());
+    sum.add(other.sum.sum());
+    max.accumulateAndGet(other.max.get(), Math::max);
+  }
+
+  /**
+   * Remove every recorded value
+   */
+  public void reset() {
+    for (int s = 0; s < STRIPES; s++) {
+      var stripe = stripes.get(s);
+      if (stripe != null) {
+        for (int i = 0; i < BUCKETS; i++) {
+          stripe.set(i, 0);
+        }
+      }
+    }
+    count.reset();
+    sum.reset();
+    max.set(0);
+  }
+
+  /**
+   * Get the current thread's stripe of buckets, allocating it on first use
+   * @return The stripe
+   */
+  private AtomicLongArray stripe() {
+    int s = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    var stripe = stripes.get(s);
+    if (stripe == null) {
+      stripes.compareAndSet(s, null, new AtomicLongArray(BUCKETS));
+      stripe = stripes.get(s);
+    }
+    return stripe;
+  }
+
+  /**
+   * Get the bucket a value is counted in
+   * @param value The value
+   * @return The bucket index
+   */
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Get the lowest value counted in a bucket
+   * @param index The bucket index
+   * @return The lowest value
+   */
+  static long lowestValueAt(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+    return subBucket << shift;
+  }
+
+  /**
+   * Get the highest value counted in a bucket
+   * @param index The bucket index
+   * @return The highest value
+   */
+  static long highestValueAt(int index) {
+    return index + 1 < BUCKETS ? lowestValueAt(index + 1) - 1 : Long.MAX_VALUE;
+  }
+}
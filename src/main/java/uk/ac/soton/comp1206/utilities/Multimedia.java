@@ -6,6 +6,7 @@ import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.metrics.Metrics;
 
 /**
  * This class handles the playing of all media
@@ -22,9 +23,13 @@ public class Multimedia {
   private static MediaPlayer audioPlayer;
 
   /**
-   * Media player used for music
+   * Engine used for background music
    */
-  private static MediaPlayer musicPlayer;
+  private static final MusicEngine music = new MusicEngine(volume);
+
+  static {
+    Metrics.gauge("audio.music.bytes", music::getFootprintBytes);
+  }
 
   /**
    * Plays a given audio file
@@ -37,8 +42,9 @@ public class Multimedia {
     audioPlayer = new MediaPlayer(new Media(toPlay));
     audioPlayer.setVolume(volume.get());
     audioPlayer.play();
+    Metrics.counter("audio.effects.played").increment();
 
-    logger.info("Playing audio {}", audioPath);
+    logger.debug("Playing audio {}", audioPath);
   }
 
   /**
@@ -49,30 +55,48 @@ public class Multimedia {
   }
 
   /**
-   * Plays a given audio file in the background on loop
+   * Plays a given audio file in the background on loop, crossfading from whatever was playing
    *
    * @param audioPath The path to the audio file to be played
    */
   public static void playBackgroundMusic(String audioPath) {
-    String toPlay = Objects.requireNonNull(Multimedia.class.getResource("/music/" + audioPath))
-        .toExternalForm();
-    musicPlayer = new MediaPlayer(new Media(toPlay));
-    musicPlayer.cycleCountProperty().set(Integer.MAX_VALUE);
-    musicPlayer.setVolume(volume.get());
-    musicPlayer.play();
-    logger.info("Playing music {}", audioPath);
+    music.play(audioPath);
+    Metrics.counter("audio.music.played").increment();
+    logger.debug("Playing music {}", audioPath);
+  }
+
+  /**
+   * Load music files in the background so they can be started without delay later
+   *
+   * @param audioPaths The paths to the audio files to be loaded
+   */
+  public static void preloadBackgroundMusic(String... audioPaths) {
+    for (String audioPath : audioPaths) {
+      music.preload(audioPath);
+    }
   }
 
   /**
-   * Stop the audio file being played in the background
+   * Fade out the audio file being played in the background
    */
   public static void stopBackgroundMusic() {
-    musicPlayer.stop();
+    music.stop();
   }
 
   public static void resetVolume(){
-    musicPlayer.setVolume(volume.get());
-    audioPlayer.setVolume(volume.get());
+    music.resetVolume();
+    if (audioPlayer != null) {
+      audioPlayer.setVolume(volume.get());
+    }
+  }
+
+  /**
+   * Get the engine used for background music
+   *
+   * @return The music engine
+   */
+  public static MusicEngine getMusicEngine() {
+    return music;
   }
 
   public static SimpleDoubleProperty volumeProperty() {return volume;}
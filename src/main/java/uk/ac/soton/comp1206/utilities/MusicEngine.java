@@ -0,0 +1,232 @@
+package uk.ac.soton.comp1206.utilities;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.metrics.Metrics;
+
+/**
+ * Plays looping background music. Tracks are decoded on a background thread, cached so that each
+ * track only ever has one MediaPlayer, and switched between with a crossfade rather than a hard
+ * stop.
+ */
+public class MusicEngine {
+
+  private static final Logger logger = LogManager.getLogger(MusicEngine.class);
+
+  /**
+   * Loads tracks off the JavaFX Application Thread
+   */
+  private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+    var thread = new Thread(runnable, "music-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * A loaded (or loading) player for each track that has been requested
+   */
+  private final Map<String, CompletableFuture<MediaPlayer>> players = new ConcurrentHashMap<>();
+
+  /**
+   * The size in bytes of the encoded source of each loaded track
+   */
+  private final Map<String, Long> trackSizes = new ConcurrentHashMap<>();
+
+  /**
+   * The volume music should play at once faded in
+   */
+  private final DoubleProperty volume;
+
+  /**
+   * How long a crossfade between two tracks takes
+   */
+  private final ObjectProperty<Duration> crossfadeDuration =
+      new SimpleObjectProperty<>(Duration.millis(1500));
+
+  /**
+   * The player currently audible (or fading in)
+   */
+  private MediaPlayer currentPlayer;
+
+  /**
+   * The track most recently asked for. Used so a slow load doesn't start a track that has
+   * already been replaced
+   */
+  private String requestedTrack;
+
+  /**
+   * The crossfade in progress, if any
+   */
+  private Timeline fade;
+
+  /**
+   * Create a new music engine
+   * @param volume The volume music should play at
+   */
+  public MusicEngine(DoubleProperty volume) {
+    this.volume = volume;
+  }
+
+  /**
+   * Start loading a track in the background so a later call to play can start it without delay
+   * @param track The file name of the track within the music folder
+   * @return A future completed with the player for the track
+   */
+  public CompletableFuture<MediaPlayer> preload(String track) {
+    return players.computeIfAbsent(track, t -> CompletableFuture.supplyAsync(() -> load(t), loader));
+  }
+
+  /**
+   * Crossfade from the current track to the given track, looping it until replaced. Must be
+   * called on the JavaFX Application Thread
+   * @param track The file name of the track within the music folder
+   */
+  public void play(String track) {
+    requestedTrack = track;
+    preload(track).whenComplete((player, error) -> Platform.runLater(() -> {
+      if (error != null) {
+        logger.error("Unable to load music {}: {}", track, error.getMessage());
+        Metrics.counter("audio.errors").increment();
+        players.remove(track);
+        return;
+      }
+      if (track.equals(requestedTrack)) {
+        crossfadeTo(player);
+      }
+    }));
+  }
+
+  /**
+   * Fade out the current track. Must be called on the JavaFX Application Thread
+   */
+  public void stop() {
+    requestedTrack = null;
+    crossfadeTo(null);
+  }
+
+  /**
+   * Apply the current volume to the playing track
+   */
+  public void resetVolume() {
+    if (currentPlayer != null && fade == null) {
+      currentPlayer.setVolume(volume.get());
+    }
+  }
+
+  /**
+   * Dispose of a cached track. The next play of it will load it again
+   * @param track The file name of the track within the music folder
+   */
+  public void release(String track) {
+    var future = players.remove(track);
+    trackSizes.remove(track);
+    if (future != null) {
+      future.thenAccept(player -> Platform.runLater(() -> {
+        if (player != currentPlayer) {
+          player.dispose();
+        }
+      }));
+    }
+  }
+
+  /**
+   * Get the estimated memory held by the cached tracks. This is the size of the encoded sources,
+   * which is what the media pipeline buffers for each player
+   * @return The footprint in bytes
+   */
+  public long getFootprintBytes() {
+    return trackSizes.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * Get the number of players currently cached
+   * @return The number of cached players
+   */
+  public int getCachedTrackCount() {
+    return players.size();
+  }
+
+  /**
+   * Get the property holding the crossfade duration
+   * @return The crossfade duration property
+   */
+  public ObjectProperty<Duration> crossfadeDurationProperty() {
+    return crossfadeDuration;
+  }
+
+  /**
+   * Create a looping player for a track
+   * @param track The file name of the track within the music folder
+   * @return The player
+   */
+  private MediaPlayer load(String track) {
+    URL url = MusicEngine.class.getResource("/music/" + track);
+    if (url == null) {
+      throw new IllegalArgumentException("No such track " + track);
+    }
+    var player = new MediaPlayer(new Media(url.toExternalForm()));
+    player.setCycleCount(MediaPlayer.INDEFINITE);
+
+    try {
+      trackSizes.put(track, url.openConnection().getContentLengthLong());
+    } catch (IOException e) {
+      logger.error("Unable to size music {}: {}", track, e.getMessage());
+    }
+    logger.debug("Loaded music {}, music footprint now {} bytes", track, getFootprintBytes());
+    return player;
+  }
+
+  /**
+   * Fade the current player out and the given player in
+   * @param next The player to fade in, or null to fade to silence
+   */
+  private void crossfadeTo(MediaPlayer next) {
+    if (next == currentPlayer) {
+      return;
+    }
+    if (fade != null) {
+      fade.stop();
+      fade.getOnFinished().handle(null);
+    }
+
+    var previous = currentPlayer;
+    currentPlayer = next;
+
+    fade = new Timeline();
+    if (previous != null) {
+      fade.getKeyFrames().add(new KeyFrame(crossfadeDuration.get(),
+          new KeyValue(previous.volumeProperty(), 0)));
+    }
+    if (next != null) {
+      next.setVolume(0);
+      next.play();
+      fade.getKeyFrames().add(new KeyFrame(crossfadeDuration.get(),
+          new KeyValue(next.volumeProperty(), volume.get())));
+    }
+    fade.setOnFinished(e -> {
+      if (previous != null) {
+        previous.stop();
+      }
+      fade = null;
+      resetVolume();
+    });
+    fade.play();
+  }
+}